@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import java.net.URI;
+import java.util.UUID;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.messaging.MessageExchange;
+import javax.jbi.messaging.MessageExchange.Role;
+import javax.jbi.messaging.MessagingException;
+import javax.jbi.messaging.NormalizedMessage;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.dom.DOMSource;
+
+import org.ow2.petals.bc.gateway.JBISender;
+import org.ow2.petals.bc.gateway.commons.DomainContext;
+import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
+import org.ow2.petals.component.framework.api.message.Exchange;
+import org.ow2.petals.component.framework.message.ExchangeImpl;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Builds exchanges looking like the ones going through the gateway: a hello service with a payload of a given size
+ * and a few exchange properties.
+ */
+public final class BenchmarkExchanges {
+
+    private static final String NAMESPACE = "http://petals.ow2.org/bc/gateway/benchmarks";
+
+    public static final ServiceKey SERVICE = new ServiceKey("helloEndpoint", new QName(NAMESPACE, "HelloService"),
+            new QName(NAMESPACE, "HelloInterface"));
+
+    public static final QName OPERATION = new QName(NAMESPACE, "sayHello");
+
+    /**
+     * The message exchange patterns used by the benchmarks.
+     */
+    public enum Mep {
+        IN_ONLY("http://www.w3.org/2004/08/wsdl/in-only"),
+        IN_OUT("http://www.w3.org/2004/08/wsdl/in-out"),
+        ROBUST_IN_ONLY("http://www.w3.org/2004/08/wsdl/robust-in-only");
+
+        public final URI uri;
+
+        private Mep(final String uri) {
+            this.uri = URI.create(uri);
+        }
+    }
+
+    private BenchmarkExchanges() {
+        // utility class
+    }
+
+    /**
+     * @return an XML document of approximately <code>size</code> bytes once serialized, made of many small elements
+     *         like a typical business payload
+     */
+    public static Document newPayload(final int size) {
+        final Document doc;
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            doc = factory.newDocumentBuilder().newDocument();
+        } catch (final ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+
+        final Element root = doc.createElementNS(NAMESPACE, "sayHello");
+        doc.appendChild(root);
+        // each item is around 64 bytes once serialized
+        final String text = "Hello from a Petals domain to another one!";
+        for (int written = 0; written < size; written += 64) {
+            final Element item = doc.createElementNS(NAMESPACE, "item");
+            item.setTextContent(text);
+            root.appendChild(item);
+        }
+        return doc;
+    }
+
+    /**
+     * @return a new exchange as it is received from the NMR by a consumer domain (i.e., sent by a consumer in this
+     *         Petals domain)
+     */
+    public static MessageExchange newRequest(final Mep mep, final Document payload) throws MessagingException {
+        final MessageExchange exchange = new BenchmarkMessageExchange(UUID.randomUUID().toString(), mep.uri,
+                Role.PROVIDER);
+        exchange.setService(SERVICE.service);
+        exchange.setInterfaceName(SERVICE.interfaceName);
+        exchange.setOperation(OPERATION);
+        exchange.setProperty("org.ow2.petals.benchmarks.correlation", UUID.randomUUID().toString());
+        exchange.setProperty("org.ow2.petals.benchmarks.priority", Integer.valueOf(5));
+
+        final NormalizedMessage in = exchange.createMessage();
+        in.setContent(new DOMSource(payload));
+        in.setProperty("org.ow2.petals.benchmarks.origin", "domain0");
+        exchange.setMessage(in, Exchange.IN_MESSAGE_NAME);
+        return exchange;
+    }
+
+    /**
+     * @return the same exchange as answered by the provider of the other Petals domain: with an out message for
+     *         {@link Mep#IN_OUT} and a done status otherwise
+     */
+    public static MessageExchange newAnswer(final Mep mep, final MessageExchange request, final Document payload)
+            throws MessagingException {
+        final MessageExchange exchange = new BenchmarkMessageExchange(request.getExchangeId(), mep.uri,
+                Role.CONSUMER);
+        exchange.setService(request.getService());
+        exchange.setInterfaceName(request.getInterfaceName());
+        exchange.setOperation(request.getOperation());
+        for (final Object name : request.getPropertyNames()) {
+            exchange.setProperty((String) name, request.getProperty((String) name));
+        }
+        exchange.setMessage(request.getMessage(Exchange.IN_MESSAGE_NAME), Exchange.IN_MESSAGE_NAME);
+
+        if (mep == Mep.IN_OUT) {
+            final NormalizedMessage out = exchange.createMessage();
+            out.setContent(new DOMSource(payload));
+            exchange.setMessage(out, Exchange.OUT_MESSAGE_NAME);
+        } else {
+            exchange.setStatus(ExchangeStatus.DONE);
+        }
+        return exchange;
+    }
+
+    /**
+     * @return a {@link JBISender} creating exchanges without a container: they can't be sent
+     */
+    public static JBISender newSender() {
+        return new JBISender() {
+            @Override
+            public void sendToNMR(final DomainContext ctx, final Exchange exchange) throws MessagingException {
+                throw new MessagingException("No NMR in the benchmarks");
+            }
+
+            @Override
+            public Exchange createExchange(final QName interfaceName, final QName serviceName,
+                    final String endpointName, final URI mep) throws MessagingException {
+                final MessageExchange exchange = new BenchmarkMessageExchange(UUID.randomUUID().toString(), mep,
+                        Role.CONSUMER);
+                exchange.setInterfaceName(interfaceName);
+                exchange.setService(serviceName);
+                return new ExchangeImpl(exchange);
+            }
+        };
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.messaging.Fault;
+import javax.jbi.messaging.MessageExchange;
+import javax.jbi.messaging.MessagingException;
+import javax.jbi.messaging.NormalizedMessage;
+import javax.jbi.servicedesc.ServiceEndpoint;
+import javax.xml.namespace.QName;
+
+/**
+ * A minimal {@link MessageExchange} standing for the one of the NMR, so that the benchmarks do not need a running
+ * container.
+ */
+public class BenchmarkMessageExchange implements MessageExchange {
+
+    private final String exchangeId;
+
+    private final URI pattern;
+
+    private final Role role;
+
+    private ExchangeStatus status = ExchangeStatus.ACTIVE;
+
+    private Exception error;
+
+    private Fault fault;
+
+    private final Map<String, NormalizedMessage> messages = new HashMap<>();
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private ServiceEndpoint endpoint;
+
+    private QName service;
+
+    private QName interfaceName;
+
+    private QName operation;
+
+    public BenchmarkMessageExchange(final String exchangeId, final URI pattern, final Role role) {
+        this.exchangeId = exchangeId;
+        this.pattern = pattern;
+        this.role = role;
+    }
+
+    @Override
+    public URI getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public String getExchangeId() {
+        return exchangeId;
+    }
+
+    @Override
+    public ExchangeStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(final ExchangeStatus status) throws MessagingException {
+        this.status = status;
+    }
+
+    @Override
+    public void setError(final Exception error) {
+        this.error = error;
+        this.status = ExchangeStatus.ERROR;
+    }
+
+    @Override
+    public Exception getError() {
+        return error;
+    }
+
+    @Override
+    public Fault getFault() {
+        return fault;
+    }
+
+    @Override
+    public void setFault(final Fault fault) throws MessagingException {
+        this.fault = fault;
+    }
+
+    @Override
+    public NormalizedMessage createMessage() throws MessagingException {
+        return new BenchmarkNormalizedMessage();
+    }
+
+    @Override
+    public Fault createFault() throws MessagingException {
+        return new BenchmarkNormalizedMessage();
+    }
+
+    @Override
+    public NormalizedMessage getMessage(final String name) {
+        return messages.get(name.toLowerCase());
+    }
+
+    @Override
+    public void setMessage(final NormalizedMessage msg, final String name) throws MessagingException {
+        messages.put(name.toLowerCase(), msg);
+    }
+
+    @Override
+    public Object getProperty(final String name) {
+        return properties.get(name);
+    }
+
+    @Override
+    public void setProperty(final String name, final Object obj) {
+        if (obj == null) {
+            properties.remove(name);
+        } else {
+            properties.put(name, obj);
+        }
+    }
+
+    @Override
+    public Set<String> getPropertyNames() {
+        return properties.keySet();
+    }
+
+    @Override
+    public void setEndpoint(final ServiceEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public void setService(final QName service) {
+        this.service = service;
+    }
+
+    @Override
+    public void setInterfaceName(final QName interfaceName) {
+        this.interfaceName = interfaceName;
+    }
+
+    @Override
+    public void setOperation(final QName name) {
+        this.operation = name;
+    }
+
+    @Override
+    public ServiceEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public QName getService() {
+        return service;
+    }
+
+    @Override
+    public QName getInterfaceName() {
+        return interfaceName;
+    }
+
+    @Override
+    public QName getOperation() {
+        return operation;
+    }
+
+    @Override
+    public boolean isTransacted() {
+        return false;
+    }
+
+    @Override
+    public Role getRole() {
+        return role;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jbi.messaging.Fault;
+import javax.jbi.messaging.MessagingException;
+import javax.security.auth.Subject;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import jakarta.activation.DataHandler;
+
+/**
+ * A minimal {@link javax.jbi.messaging.NormalizedMessage} (and {@link Fault}) standing for the one of the NMR: like
+ * the Petals one, it is {@link Serializable} so that it can go through the Java serialization used by older versions
+ * of the gateway.
+ */
+public class BenchmarkNormalizedMessage implements Fault, Serializable {
+
+    private static final long serialVersionUID = -3092871567520364018L;
+
+    private transient Source content;
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private final Map<String, DataHandler> attachments = new HashMap<>();
+
+    private Subject subject;
+
+    @Override
+    public void addAttachment(final String id, final DataHandler content) throws MessagingException {
+        attachments.put(id, content);
+    }
+
+    @Override
+    public Source getContent() {
+        return content;
+    }
+
+    @Override
+    public DataHandler getAttachment(final String id) {
+        return attachments.get(id);
+    }
+
+    @Override
+    public Set<String> getAttachmentNames() {
+        return attachments.keySet();
+    }
+
+    @Override
+    public void removeAttachment(final String id) throws MessagingException {
+        attachments.remove(id);
+    }
+
+    @Override
+    public void setContent(final Source content) throws MessagingException {
+        this.content = content;
+    }
+
+    @Override
+    public void setProperty(final String name, final Object value) {
+        if (value == null) {
+            properties.remove(name);
+        } else {
+            properties.put(name, value);
+        }
+    }
+
+    @Override
+    public void setSecuritySubject(final Subject subject) {
+        this.subject = subject;
+    }
+
+    @Override
+    public Set<String> getPropertyNames() {
+        return properties.keySet();
+    }
+
+    @Override
+    public Object getProperty(final String name) {
+        return properties.get(name);
+    }
+
+    @Override
+    public Subject getSecuritySubject() {
+        return subject;
+    }
+
+    private void writeObject(final ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        if (content == null) {
+            s.writeObject(null);
+        } else {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                TransformerFactory.newInstance().newTransformer().transform(content, new StreamResult(bytes));
+            } catch (final TransformerException e) {
+                throw new IOException(e);
+            }
+            s.writeObject(bytes.toByteArray());
+        }
+    }
+
+    private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        final byte[] bytes = (byte[]) s.readObject();
+        if (bytes != null) {
+            content = new StreamSource(new ByteArrayInputStream(bytes));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import java.io.InputStream;
+
+import org.ow2.petals.bc.gateway.commons.SslContextCache;
+import org.ow2.petals.bc.gateway.utils.BcGatewaySslProvider;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.IdentityCipherSuiteFilter;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+
+/**
+ * Two peers of a TLS connection in memory (without any socket) so that only the cost of the {@link SslHandler}s is
+ * measured, with the same settings as {@link SslContextCache} and mutual authentication.
+ */
+public final class BenchmarkSsl {
+
+    private static final String CERTIFICATE = "/ssl/test.crt";
+
+    private static final String KEY = "/ssl/test_unencrypted.pem";
+
+    private BenchmarkSsl() {
+        // Utility class --> No constructor
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if the provider is not available: the results would be the ones of another provider
+     */
+    private static void checkAvailable(final BcGatewaySslProvider provider) {
+        if (!provider.isAvailable()) {
+            throw new IllegalStateException("SSL provider '" + provider.value() + "' is not available",
+                    provider.unavailabilityCause());
+        }
+    }
+
+    public static SslContext newServerContext(final BcGatewaySslProvider provider) throws Exception {
+        checkAvailable(provider);
+        try (final InputStream certificate = open(CERTIFICATE); final InputStream key = open(KEY);
+                final InputStream trusted = open(CERTIFICATE)) {
+            return SslContextBuilder.forServer(certificate, key).trustManager(trusted).clientAuth(ClientAuth.REQUIRE)
+                    .sslProvider(provider.getNettyProvider()).ciphers(null, IdentityCipherSuiteFilter.INSTANCE)
+                    .sessionCacheSize(SslContextCache.SESSION_CACHE_SIZE)
+                    .sessionTimeout(SslContextCache.SESSION_TIMEOUT).build();
+        }
+    }
+
+    public static SslContext newClientContext(final BcGatewaySslProvider provider) throws Exception {
+        checkAvailable(provider);
+        try (final InputStream certificate = open(CERTIFICATE); final InputStream key = open(KEY);
+                final InputStream trusted = open(CERTIFICATE)) {
+            return SslContextBuilder.forClient().keyManager(certificate, key).trustManager(trusted)
+                    .sslProvider(provider.getNettyProvider()).ciphers(null, IdentityCipherSuiteFilter.INSTANCE)
+                    .sessionCacheSize(SslContextCache.SESSION_CACHE_SIZE)
+                    .sessionTimeout(SslContextCache.SESSION_TIMEOUT).build();
+        }
+    }
+
+    private static InputStream open(final String resource) {
+        final InputStream in = BenchmarkSsl.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Missing resource " + resource);
+        }
+        return in;
+    }
+
+    /**
+     * Moves what each peer wrote to the other one until there is nothing left to exchange.
+     */
+    public static void pump(final EmbeddedChannel client, final EmbeddedChannel server) {
+        boolean moved;
+        do {
+            moved = transfer(client, server);
+            moved |= transfer(server, client);
+        } while (moved);
+    }
+
+    private static boolean transfer(final EmbeddedChannel from, final EmbeddedChannel to) {
+        boolean moved = false;
+        Object msg;
+        while ((msg = from.readOutbound()) != null) {
+            to.writeInbound(msg);
+            moved = true;
+        }
+        return moved;
+    }
+
+    public static void handshake(final EmbeddedChannel client, final EmbeddedChannel server) {
+        pump(client, server);
+        final SslHandler clientHandler = client.pipeline().get(SslHandler.class);
+        final SslHandler serverHandler = server.pipeline().get(SslHandler.class);
+        if (!clientHandler.handshakeFuture().isSuccess() || !serverHandler.handshakeFuture().isSuccess()) {
+            throw new IllegalStateException("Handshake failed", clientHandler.handshakeFuture().isDone()
+                    ? clientHandler.handshakeFuture().cause()
+                    : serverHandler.handshakeFuture().cause());
+        }
+    }
+}
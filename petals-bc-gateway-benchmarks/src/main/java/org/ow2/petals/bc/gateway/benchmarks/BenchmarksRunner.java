@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler so that the allocation rate (<code>gc.alloc.rate.norm</code>, in bytes per
+ * operation) is reported next to the throughput:
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar [benchmarks regexp] [payload sizes, comma separated]
+ * </pre>
+ * 
+ * Use <code>java -cp target/benchmarks.jar org.openjdk.jmh.Main -h</code> for all the JMH options.
+ */
+public class BenchmarksRunner {
+
+    public static void main(final String[] args) throws Exception {
+        final ChainedOptionsBuilder options = new OptionsBuilder().include(args.length > 0 ? args[0] : ".*Benchmark.*")
+                .addProfiler(GCProfiler.class);
+        if (args.length > 1) {
+            options.param("payloadSize", args[1].split(","));
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ow2.petals.bc.gateway.benchmarks.BenchmarkExchanges.Mep;
+import org.ow2.petals.bc.gateway.commons.ExchangeHelper;
+import org.ow2.petals.bc.gateway.commons.messages.Transported;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedMessage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.serialization.ClassResolver;
+import io.netty.handler.codec.serialization.ClassResolvers;
+import io.netty.handler.codec.serialization.ObjectDecoder;
+import io.netty.handler.codec.serialization.ObjectEncoder;
+
+/**
+ * Encoding and decoding of a new exchange with the binary {@link TransportedCodec} and with the Java serialization of
+ * the Netty object codec (used with older versions of the gateway).
+ * 
+ * A new codec is used for each message: like for the first message sent on a connection, the QNames are
+ * written in full.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({ "IN_ONLY", "IN_OUT", "ROBUST_IN_ONLY" })
+    public Mep mep;
+
+    @Param({ "1024", "102400", "1048576", "10485760" })
+    public int payloadSize;
+
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+
+    private final ClassResolver cr = ClassResolvers.cacheDisabled(null);
+
+    private TransportedMessage message;
+
+    private ByteBuf encoded;
+
+    private ByteBuf serialized;
+
+    private EmbeddedChannel encoder;
+
+    private EmbeddedChannel decoder;
+
+    @Setup
+    public void setup() throws Exception {
+        message = ExchangeHelper.updateTransportedExchange(null, BenchmarkExchanges.SERVICE,
+                BenchmarkExchanges.newRequest(mep, BenchmarkExchanges.newPayload(payloadSize)));
+
+        encoded = alloc.buffer();
+        new TransportedCodec(cr).encode(message, encoded, TransportedCodec.VERSION);
+
+        encoder = new EmbeddedChannel(new ObjectEncoder());
+        // the default maximum size is too small for the biggest payloads
+        decoder = new EmbeddedChannel(new ObjectDecoder(Integer.MAX_VALUE, cr));
+        encoder.writeOutbound(message);
+        serialized = encoder.readOutbound();
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoded.release();
+        serialized.release();
+        encoder.finishAndReleaseAll();
+        decoder.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int binaryEncode() throws Exception {
+        final ByteBuf out = alloc.buffer();
+        try {
+            new TransportedCodec(cr).encode(message, out, TransportedCodec.VERSION);
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public Transported binaryDecode() throws Exception {
+        final ByteBuf in = encoded.retainedDuplicate();
+        try {
+            return new TransportedCodec(cr).decode(in);
+        } finally {
+            in.release();
+        }
+    }
+
+    @Benchmark
+    public int serializationEncode() {
+        encoder.writeOutbound(message);
+        final ByteBuf out = encoder.readOutbound();
+        try {
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public Object serializationDecode() {
+        decoder.writeInbound(serialized.retainedDuplicate());
+        return decoder.readInbound();
+    }
+}
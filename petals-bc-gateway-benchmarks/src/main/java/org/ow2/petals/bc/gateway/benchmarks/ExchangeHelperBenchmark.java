@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jbi.messaging.MessageExchange;
+import javax.jbi.messaging.MessagingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ow2.petals.bc.gateway.JBISender;
+import org.ow2.petals.bc.gateway.benchmarks.BenchmarkExchanges.Mep;
+import org.ow2.petals.bc.gateway.commons.ExchangeHelper;
+import org.ow2.petals.bc.gateway.commons.messages.Transported;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedMessage;
+import org.ow2.petals.component.framework.api.message.Exchange;
+import org.w3c.dom.Document;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.serialization.ClassResolvers;
+
+/**
+ * The conversions between the exchanges of the NMR and the {@link TransportedMessage}s done for each step of an
+ * exchange going through the gateway.
+ * 
+ * The messages given to {@link ExchangeHelper#updateStoredExchange(Exchange, TransportedMessage, JBISender, Boolean,
+ * Boolean)} are decoded by the binary codec, as they would be when received from the other side.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExchangeHelperBenchmark {
+
+    @Param({ "IN_ONLY", "IN_OUT", "ROBUST_IN_ONLY" })
+    public Mep mep;
+
+    @Param({ "1024", "102400", "1048576", "10485760" })
+    public int payloadSize;
+
+    private final JBISender sender = BenchmarkExchanges.newSender();
+
+    private MessageExchange request;
+
+    private MessageExchange answer;
+
+    private TransportedMessage sentRequest;
+
+    private TransportedMessage receivedRequest;
+
+    private TransportedMessage receivedAnswer;
+
+    @Setup
+    public void setup() throws Exception {
+        final Document payload = BenchmarkExchanges.newPayload(payloadSize);
+        request = BenchmarkExchanges.newRequest(mep, payload);
+        answer = BenchmarkExchanges.newAnswer(mep, request, payload);
+
+        sentRequest = ExchangeHelper.updateTransportedExchange(null, BenchmarkExchanges.SERVICE, request);
+        receivedRequest = roundTrip(sentRequest);
+        receivedAnswer = roundTrip(
+                ExchangeHelper.updateTransportedExchange(receivedRequest, BenchmarkExchanges.SERVICE, answer));
+    }
+
+    private static TransportedMessage roundTrip(final TransportedMessage m) throws Exception {
+        final ByteBuf buf = Unpooled.buffer();
+        try {
+            new TransportedCodec(ClassResolvers.cacheDisabled(null)).encode(m, buf, TransportedCodec.VERSION);
+            final Transported decoded = new TransportedCodec(ClassResolvers.cacheDisabled(null)).decode(buf);
+            return (TransportedMessage) decoded;
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * A new exchange received from the NMR by a consumer domain, before being sent to the provider partner
+     */
+    @Benchmark
+    public TransportedMessage newTransportedMessage() {
+        return ExchangeHelper.updateTransportedExchange(null, BenchmarkExchanges.SERVICE, request);
+    }
+
+    /**
+     * The answer received from the NMR by a provider domain, before being sent back to the consumer partner
+     */
+    @Benchmark
+    public TransportedMessage answerTransportedMessage() {
+        return ExchangeHelper.updateTransportedExchange(receivedRequest, BenchmarkExchanges.SERVICE, answer);
+    }
+
+    /**
+     * A new exchange received by a provider domain, before being sent to the NMR
+     */
+    @Benchmark
+    public Exchange newStoredExchange() throws MessagingException {
+        return ExchangeHelper.updateStoredExchange(null, receivedRequest, sender, Boolean.TRUE, Boolean.FALSE);
+    }
+
+    /**
+     * The answer received by a consumer domain, applied to the exchange it kept before sending it back to the NMR
+     * (the stored exchange is rebuilt each time because it is modified).
+     */
+    @Benchmark
+    public Exchange answerStoredExchange() throws MessagingException {
+        final Exchange stored = sender.createExchange(BenchmarkExchanges.SERVICE.interfaceName,
+                BenchmarkExchanges.SERVICE.service, BenchmarkExchanges.SERVICE.endpointName, mep.uri);
+        stored.setInMessage(request.getMessage(Exchange.IN_MESSAGE_NAME));
+        return ExchangeHelper.updateStoredExchange(stored, receivedAnswer, sender, Boolean.TRUE, Boolean.FALSE);
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ow2.petals.bc.gateway.utils.BcGatewaySslProvider;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+
+/**
+ * Rate of the TLS handshakes (with client authentication) of a new connection between two gateways, with each
+ * {@link BcGatewaySslProvider}.
+ * 
+ * With <code>resumed</code>, the client gives the peer host and port as the gateway does, so that every handshake
+ * after the first one resumes the previous session; without it, every handshake is a full one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SslHandshakeBenchmark {
+
+    @Param({ "JDK", "OPENSSL" })
+    public BcGatewaySslProvider provider;
+
+    @Param({ "false", "true" })
+    public boolean resumed;
+
+    private SslContext serverContext;
+
+    private SslContext clientContext;
+
+    @Setup
+    public void setup() throws Exception {
+        serverContext = BenchmarkSsl.newServerContext(provider);
+        clientContext = BenchmarkSsl.newClientContext(provider);
+    }
+
+    @Benchmark
+    public boolean handshake() {
+        final ByteBufAllocator alloc = ByteBufAllocator.DEFAULT;
+        final SslHandler clientHandler = resumed ? clientContext.newHandler(alloc, "gateway", 7500)
+                : clientContext.newHandler(alloc);
+        final EmbeddedChannel server = new EmbeddedChannel(new SslHandler(serverContext.newEngine(alloc)));
+        final EmbeddedChannel client = new EmbeddedChannel(clientHandler);
+        try {
+            BenchmarkSsl.handshake(client, server);
+            return clientHandler.engine().getSession().isValid();
+        } finally {
+            client.finishAndReleaseAll();
+            server.finishAndReleaseAll();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ow2.petals.bc.gateway.utils.BcGatewaySslProvider;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.SslHandler;
+
+/**
+ * Bulk throughput of an established TLS connection between two gateways with each {@link BcGatewaySslProvider}: each
+ * operation encrypts a payload on the client side and decrypts it on the server side.
+ * 
+ * The score multiplied by the payload size gives the throughput in bytes per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SslThroughputBenchmark {
+
+    @Param({ "JDK", "OPENSSL" })
+    public BcGatewaySslProvider provider;
+
+    @Param({ "1024", "65536", "1048576" })
+    public int payloadSize;
+
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+
+    private ByteBuf payload;
+
+    private EmbeddedChannel client;
+
+    private EmbeddedChannel server;
+
+    @Setup
+    public void setup() throws Exception {
+        final byte[] bytes = new byte[payloadSize];
+        // random bytes, like encrypted or compressed content
+        ThreadLocalRandom.current().nextBytes(bytes);
+        payload = alloc.directBuffer(payloadSize);
+        payload.writeBytes(bytes);
+
+        server = new EmbeddedChannel(new SslHandler(BenchmarkSsl.newServerContext(provider).newEngine(alloc)));
+        client = new EmbeddedChannel(BenchmarkSsl.newClientContext(provider).newHandler(alloc));
+        BenchmarkSsl.handshake(client, server);
+    }
+
+    @TearDown
+    public void tearDown() {
+        payload.release();
+        client.finishAndReleaseAll();
+        server.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int transfer() {
+        client.writeOutbound(payload.retainedDuplicate());
+        BenchmarkSsl.pump(client, server);
+        int received = 0;
+        ByteBuf decrypted;
+        while ((decrypted = server.readInbound()) != null) {
+            received += decrypted.readableBytes();
+            decrypted.release();
+        }
+        if (received != payloadSize) {
+            throw new IllegalStateException("Received " + received + " bytes instead of " + payloadSize);
+        }
+        return received;
+    }
+}
@@ -17,6 +17,8 @@
  */
 package org.ow2.petals.binding.gateway.clientserver.api;
 
+import java.util.Map;
+
 import org.ow2.petals.basisapi.exception.PetalsException;
 
 /**
@@ -27,6 +29,118 @@ import org.ow2.petals.basisapi.exception.PetalsException;
  */
 public interface AdminRuntimeService extends CommonAdminService {
 
+    /**
+     * Number of exchanges waiting for an answer from the other side of a domain
+     */
+    public static final String EXCHANGES_IN_PROGRESS = "in-progress";
+
+    /**
+     * Number of exchanges that expired while waiting for an answer from the other side of a domain
+     */
+    public static final String EXCHANGES_EXPIRED = "expired";
+
+    /**
+     * Number of exchanges rejected because there were already too many exchanges in progress for a domain
+     */
+    public static final String EXCHANGES_REJECTED = "rejected";
+
+    /**
+     * Number of new exchanges sent to or received from the other side of a domain
+     */
+    public static final String METRIC_STARTED = "started";
+
+    /**
+     * Number of exchanges that ended without error through a domain
+     */
+    public static final String METRIC_COMPLETED = "completed";
+
+    /**
+     * Number of exchanges that ended with an error through a domain (including the ones that timed out)
+     */
+    public static final String METRIC_ERRORED = "errored";
+
+    /**
+     * Number of exchanges that timed out in the NMR or while waiting for an answer from the other side of a domain
+     */
+    public static final String METRIC_TIMED_OUT = "timed-out";
+
+    /**
+     * Number of exchanges waiting for an answer from the other side of a domain
+     */
+    public static final String METRIC_IN_FLIGHT = "in-flight";
+
+    /**
+     * Number of messages decoded from the other side of a domain
+     */
+    public static final String METRIC_MESSAGES_IN = "messages-in";
+
+    /**
+     * Number of messages encoded for the other side of a domain
+     */
+    public static final String METRIC_MESSAGES_OUT = "messages-out";
+
+    /**
+     * Size (in bytes) of the messages decoded from the other side of a domain
+     */
+    public static final String METRIC_BYTES_IN = "bytes-in";
+
+    /**
+     * Size (in bytes) of the messages encoded for the other side of a domain
+     */
+    public static final String METRIC_BYTES_OUT = "bytes-out";
+
+    /**
+     * Total time (in microseconds) spent decoding the messages from the other side of a domain
+     */
+    public static final String METRIC_DECODE_TIME = "decode-time-us";
+
+    /**
+     * Total time (in microseconds) spent encoding the messages for the other side of a domain
+     */
+    public static final String METRIC_ENCODE_TIME = "encode-time-us";
+
+    /**
+     * Prefix of the metrics of the time between a message sent to the other side of a domain and its answer (on the
+     * wire and in the other side)
+     */
+    public static final String METRIC_REMOTE_LATENCY = "remote-latency";
+
+    /**
+     * Prefix of the metrics of the time between a message received from the other side of a domain and its answer
+     * from the NMR
+     */
+    public static final String METRIC_LOCAL_LATENCY = "local-latency";
+
+    /**
+     * Suffix of the latency metrics for the number of measures
+     */
+    public static final String METRIC_LATENCY_COUNT = "-count";
+
+    /**
+     * Suffix of the latency metrics for the mean (in microseconds)
+     */
+    public static final String METRIC_LATENCY_MEAN = "-mean-us";
+
+    /**
+     * Suffix of the latency metrics for the median (in microseconds, approximated by excess)
+     */
+    public static final String METRIC_LATENCY_P50 = "-p50-us";
+
+    /**
+     * Suffix of the latency metrics for the 90th percentile (in microseconds, approximated by excess)
+     */
+    public static final String METRIC_LATENCY_P90 = "-p90-us";
+
+    /**
+     * Suffix of the latency metrics for the 99th percentile (in microseconds, approximated by excess)
+     */
+    public static final String METRIC_LATENCY_P99 = "-p99-us";
+
+    /**
+     * Suffix of the latency metrics for the maximum (in microseconds)
+     */
+    public static final String METRIC_LATENCY_MAX = "-max-us";
+
     /**
      * Repropagate endpoints to all consumer domains of a component.
      * 
@@ -57,6 +171,31 @@ public interface AdminRuntimeService extends CommonAdminService {
      */
     public void refreshPropagations(String suName, String consumerDomain) throws PetalsException;
 
+    /**
+     * Get the counters of the exchanges in progress of all the provider and consumer domains of the component.
+     * 
+     * @return for each domain (identified by <code>suName/domainId</code>), the values of
+     *         {@link #EXCHANGES_IN_PROGRESS}, {@link #EXCHANGES_EXPIRED} and {@link #EXCHANGES_REJECTED}
+     */
+    public Map<String, Map<String, Long>> getExchangesInProgress();
+
+    /**
+     * Get the metrics of all the provider and consumer domains of the component.
+     * 
+     * @return for each domain (identified by <code>suName/domainId</code>), the values of the <code>METRIC_*</code>
+     *         metrics
+     */
+    public Map<String, Map<String, Long>> getDomainsMetrics();
+
+    /**
+     * Get the metrics of the services exchanged through all the provider and consumer domains of the component.
+     * 
+     * @return for each service of each domain (identified by <code>suName/domainId {ns}service[:endpoint]
+     *         ({ns}interface)</code>), the values of the <code>METRIC_*</code> metrics related to exchanges and
+     *         latencies
+     */
+    public Map<String, Map<String, Long>> getServicesMetrics();
+
     /**
      * Trigger reconnection to all provider domain of the component.
      *
@@ -18,13 +18,17 @@
 package org.ow2.petals.bc.gateway;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.MissingResourceException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,10 +36,19 @@ import javax.jbi.JBIException;
 import javax.jbi.messaging.MessageExchange;
 import javax.jbi.messaging.MessagingException;
 import javax.jbi.servicedesc.ServiceEndpoint;
+import javax.xml.namespace.QName;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.ow2.petals.basisapi.exception.PetalsException;
 import org.ow2.petals.bc.gateway.commons.AbstractDomain;
+import org.ow2.petals.bc.gateway.commons.DomainMetrics;
+import org.ow2.petals.bc.gateway.commons.ExchangeMetrics;
+import org.ow2.petals.bc.gateway.commons.ExchangesExecutor;
+import org.ow2.petals.bc.gateway.commons.LatencyHistogram;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedFrameDecoder;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedFraming;
+import org.ow2.petals.bc.gateway.commons.handlers.WriteCoalescing;
+import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
 import org.ow2.petals.bc.gateway.inbound.ConsumerDomain;
 import org.ow2.petals.bc.gateway.inbound.TransportListener;
 import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiConsumerDomain;
@@ -48,9 +61,12 @@ import org.ow2.petals.bc.gateway.outbound.ProviderService;
 import org.ow2.petals.bc.gateway.utils.BcGatewayJbiConstants;
 import org.ow2.petals.bc.gateway.utils.BcGatewayJbiHelper;
 import org.ow2.petals.bc.gateway.utils.BcGatewayJbiHelper.Pair;
+import org.ow2.petals.bc.gateway.utils.BcGatewayNettyTransport;
+import org.ow2.petals.bc.gateway.utils.BcGatewaySslProvider;
 import org.ow2.petals.binding.gateway.clientserver.api.AdminRuntimeService;
 import org.ow2.petals.component.framework.api.exception.PEtALSCDKException;
 import org.ow2.petals.component.framework.bc.AbstractBindingComponent;
+import org.ow2.petals.component.framework.jbidescriptor.generated.Component;
 import org.ow2.petals.component.framework.jbidescriptor.generated.Consumes;
 import org.ow2.petals.component.framework.jbidescriptor.generated.Provides;
 import org.ow2.petals.component.framework.mbean.MBeanHelper;
@@ -62,12 +78,12 @@ import org.w3c.dom.Document;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.serialization.ClassResolver;
 import io.netty.handler.codec.serialization.ClassResolvers;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 /**
  * There is one instance for the whole component. The class is declared in the jbi.xml.
@@ -98,9 +114,40 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
     @Nullable
     private EventLoopGroup clientsGroup;
 
+    /**
+     * Used to expire the exchanges in progress of all the domains
+     */
+    @Nullable
+    private HashedWheelTimer exchangesTimer;
+
+    /**
+     * Used to activate the endpoints of the services propagated to the provider domains (and to rewrite their
+     * descriptions) outside of their event loops
+     */
+    @Nullable
+    private EventExecutorGroup descriptionsGroup;
+
+    /**
+     * Used to deliver the exchanges received by all the domains to the NMR
+     */
+    @Nullable
+    private ExchangesExecutor exchangesExecutor;
+
     private final Map<String, TransportListener> listeners = new HashMap<>();
 
-    private final ConcurrentMap<ServiceEndpointKey, ServiceData> services = new ConcurrentHashMap<>();
+    /**
+     * The endpoints activated for the provider domains, indexed by service name and then by endpoint name so that the
+     * exchanges can be routed without allocating anything.
+     * 
+     * It is never modified: a new one is published on each (de)registration (with {@link #servicesLock} held) so that
+     * the exchanges never wait for the provider domains updating their propagated services.
+     */
+    private volatile Map<QName, Map<String, ServiceData>> services = Collections.emptyMap();
+
+    /**
+     * lock for publishing a new {@link #services}
+     */
+    private final Lock servicesLock = new ReentrantLock();
 
     private static class ServiceData {
         private @Nullable ServiceEndpoint endpoint;
@@ -115,6 +162,14 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
         }
     }
 
+    private TransportedFraming framing = TransportedFraming.DEFAULT;
+
+    private BcGatewayNettyTransport transport = BcGatewayNettyTransport.NIO;
+
+    private BcGatewaySslProvider sslProvider = BcGatewaySslProvider.JDK;
+
+    private WriteCoalescing coalescing = WriteCoalescing.DISABLED;
+
     private volatile boolean started = false;
 
     private volatile boolean init = false;
@@ -133,18 +188,72 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
                         BcGatewayJbiConstants.DEFAULT_PROVIDER_DOMAINS_MAX_POOL_SIZE);
         this.getLogger().config("Max pool size of consumer domains: " + cdMaxPoolSize);
         this.getLogger().config("Max pool size of provider domains: " + cdMaxPoolSize);
+        final int descriptionsMaxPoolSize = this.getParameterAsPositiveInteger(
+                BcGatewayJbiConstants.EL_DESCRIPTIONS_MAX_POOL_SIZE.getLocalPart(),
+                BcGatewayJbiConstants.DEFAULT_DESCRIPTIONS_MAX_POOL_SIZE);
+        this.getLogger().config("Max pool size of descriptions: " + descriptionsMaxPoolSize);
+
+        final int chunkSize = this.getParameterAsPositiveInteger(
+                BcGatewayJbiConstants.EL_TRANSPORT_CHUNK_SIZE.getLocalPart(),
+                BcGatewayJbiConstants.DEFAULT_TRANSPORT_CHUNK_SIZE);
+        if (chunkSize > TransportedFrameDecoder.MAX_CHUNK_SIZE) {
+            throw new PEtALSCDKException(String.format("The chunk size can't be bigger than %d bytes",
+                    TransportedFrameDecoder.MAX_CHUNK_SIZE));
+        }
+        final int maxReassemblySize = this.getParameterAsPositiveInteger(
+                BcGatewayJbiConstants.EL_TRANSPORT_MAX_REASSEMBLY_SIZE.getLocalPart(),
+                BcGatewayJbiConstants.DEFAULT_TRANSPORT_MAX_REASSEMBLY_SIZE);
+        this.getLogger().config("Chunk size of transported messages: " + chunkSize);
+        this.getLogger().config("Max reassembly size of transported messages: " + maxReassemblySize);
+        framing = new TransportedFraming(chunkSize, maxReassemblySize);
+
+        final Component component = getJbiComponentDescriptor().getComponent();
+        final int exchangesMaxPoolSize = BcGatewayJbiHelper.getParameterAsNonNegativeInteger(component,
+                BcGatewayJbiConstants.EL_EXCHANGES_MAX_POOL_SIZE,
+                BcGatewayJbiConstants.DEFAULT_EXCHANGES_MAX_POOL_SIZE);
+        final boolean exchangesVirtualThreads = BcGatewayJbiHelper.getParameterAsBoolean(component,
+                BcGatewayJbiConstants.EL_EXCHANGES_VIRTUAL_THREADS,
+                BcGatewayJbiConstants.DEFAULT_EXCHANGES_VIRTUAL_THREADS);
+        final int exchangesMaxPending = BcGatewayJbiHelper.getParameterAsNonNegativeInteger(component,
+                BcGatewayJbiConstants.EL_EXCHANGES_MAX_PENDING, BcGatewayJbiConstants.DEFAULT_EXCHANGES_MAX_PENDING);
+
+        transport = BcGatewayNettyTransport.select(BcGatewayJbiHelper.getNettyTransport(component), getLogger());
+        this.getLogger().config("Netty transport: " + transport.value());
+
+        sslProvider = BcGatewaySslProvider.select(BcGatewayJbiHelper.getSslProvider(component), getLogger());
+        this.getLogger().config("SSL provider: " + sslProvider.value());
+
+        final boolean coalesce = BcGatewayJbiHelper.getParameterAsBoolean(component,
+                BcGatewayJbiConstants.EL_WRITE_COALESCING, BcGatewayJbiConstants.DEFAULT_WRITE_COALESCING);
+        final int maxFlushes = this.getParameterAsPositiveInteger(
+                BcGatewayJbiConstants.EL_WRITE_COALESCING_MAX_FLUSHES.getLocalPart(),
+                BcGatewayJbiConstants.DEFAULT_WRITE_COALESCING_MAX_FLUSHES);
+        final int delay = BcGatewayJbiHelper.getParameterAsNonNegativeInteger(component,
+                BcGatewayJbiConstants.EL_WRITE_COALESCING_DELAY, BcGatewayJbiConstants.DEFAULT_WRITE_COALESCING_DELAY);
+        this.getLogger().config("Write coalescing: " + coalesce
+                + (coalesce ? " (max flushes: " + maxFlushes + ", delay: " + delay + "us)" : ""));
+        coalescing = new WriteCoalescing(coalesce, maxFlushes, delay);
 
         // only one thread for accepting new connections is enough (shared between all transport listeners)
         // we don't create connections often
-        bossGroup = new NioEventLoopGroup(1,
+        bossGroup = transport.newEventLoopGroup(1,
                 new DefaultThreadFactory(componentName + " - Transports Acceptor - netty"));
         // This represents the number of thread concurrently usable by all the incoming connections
-        workerGroup = new NioEventLoopGroup(cdMaxPoolSize,
+        workerGroup = transport.newEventLoopGroup(cdMaxPoolSize,
                 new DefaultThreadFactory(componentName + " - Consumer Domains - netty"));
         // This represents the number of thread concurrently usable by all the outgoing connections
-        clientsGroup = new NioEventLoopGroup(pdMaxPoolSize,
+        clientsGroup = transport.newEventLoopGroup(pdMaxPoolSize,
                 new DefaultThreadFactory(componentName + " - Provider Domains - netty"));
 
+        exchangesTimer = new HashedWheelTimer(
+                new DefaultThreadFactory(componentName + " - Exchanges Expiration - netty"));
+
+        descriptionsGroup = new DefaultEventExecutorGroup(descriptionsMaxPoolSize,
+                new DefaultThreadFactory(componentName + " - Descriptions - netty"));
+
+        exchangesExecutor = newExchangesExecutor(componentName, exchangesMaxPoolSize, exchangesVirtualThreads,
+                exchangesMaxPending);
+
         for (final JbiTransportListener jtl : BcGatewayJbiHelper
                 .getTransportListeners(getJbiComponentDescriptor().getComponent())) {
             assert jtl != null;
@@ -171,7 +280,7 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
             throw new PEtALSCDKException("Can't create logger for provider domain " + jpd.getId(), e);
         }
         final ProviderDomain pd = new ProviderDomain(this, handler, jpd, provides, getSender(), newClientBootstrap(),
-                logger, newClassResolver());
+                getExchangesTimer(), getExchangesExecutor(), logger, newClassResolver());
         if (started) {
             pd.connect(false);
         }
@@ -189,20 +298,22 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
             throw new PEtALSCDKException("Can't create logger for consumer domain " + jcd.getId(), e);
         }
         final TransportListener tl = getTransportListener(jcd.getTransport());
-        return new ConsumerDomain(handler, tl, getServiceUnitManager(), jcd, consumes, getSender(), logger);
+        return new ConsumerDomain(handler, tl, getServiceUnitManager(), jcd, consumes, getSender(),
+                getExchangesTimer(), getExchangesExecutor(), logger);
     }
 
     private Bootstrap newClientBootstrap() {
-        // TODO use epoll on linux?
-        final Bootstrap bootstrap = new Bootstrap().group(clientsGroup).channel(NioSocketChannel.class);
+        final Bootstrap bootstrap = new Bootstrap().group(clientsGroup).channel(transport.getSocketChannelClass())
+                .attr(TransportedFraming.KEY, framing).attr(WriteCoalescing.KEY, coalescing)
+                .attr(BcGatewaySslProvider.KEY, sslProvider);
         assert bootstrap != null;
         return bootstrap;
     }
 
     private ServerBootstrap newServerBootstrap() {
-        // TODO use epoll on linux?
         final ServerBootstrap bootstrap = new ServerBootstrap().group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class);
+                .channel(transport.getServerSocketChannelClass()).childAttr(TransportedFraming.KEY, framing)
+                .childAttr(WriteCoalescing.KEY, coalescing).childAttr(BcGatewaySslProvider.KEY, sslProvider);
         assert bootstrap != null;
         return bootstrap;
     }
@@ -255,6 +366,21 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
             clientsGroup = null;
         }
 
+        if (exchangesTimer != null) {
+            exchangesTimer.stop();
+            exchangesTimer = null;
+        }
+
+        if (descriptionsGroup != null) {
+            descriptionsGroup.shutdownGracefully();
+            descriptionsGroup = null;
+        }
+
+        if (exchangesExecutor != null) {
+            exchangesExecutor.shutdown();
+            exchangesExecutor = null;
+        }
+
         sender = null;
 
         listeners.clear();
@@ -348,8 +474,9 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
     }
 
     @Override
-    public @Nullable ProviderService matches(final ServiceEndpointKey key) {
-        return services.get(key).service;
+    public @Nullable ProviderService matches(final ServiceEndpoint endpoint) {
+        final ServiceData data = getServiceData(endpoint.getServiceName(), endpoint.getEndpointName());
+        return data != null ? data.service : null;
     }
 
     @Override
@@ -366,8 +493,8 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
     @Override
     public @Nullable Document getServiceDescription(final @Nullable ServiceEndpoint endpoint) {
         final Document desc = super.getServiceDescription(endpoint);
-        if (desc == null) {
-            final ServiceData data = services.get(new ServiceEndpointKey(endpoint));
+        if (desc == null && endpoint != null) {
+            final ServiceData data = getServiceData(endpoint.getServiceName(), endpoint.getEndpointName());
             return data != null ? data.description : null;
         }
         return desc;
@@ -379,7 +506,7 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
         final ServiceData data = new ServiceData(ps,
                 description == null ? getServiceUnitManager().getServiceDescription(key) : description);
 
-        if (services.putIfAbsent(key, data) != null) {
+        if (!putServiceData(key, data)) {
             throw new PEtALSCDKException("Duplicate service " + key);
         }
 
@@ -387,14 +514,16 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
             data.endpoint = getContext().activateEndpoint(key.getServiceName(), key.getEndpointName());
             getLogger().log(Level.INFO, "New Service Endpoint deployed: " + data.endpoint);
         } catch (final JBIException e) {
-            services.remove(key);
+            removeServiceData(key);
             throw new PEtALSCDKException(e);
         }
+
+        endpointsChanged();
     }
 
     @Override
     public boolean deregister(final ServiceEndpointKey key) throws PEtALSCDKException {
-        final ServiceData removed = services.remove(key);
+        final ServiceData removed = removeServiceData(key);
 
         if (removed != null) {
             try {
@@ -403,12 +532,133 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
             } catch (final JBIException e) {
                 throw new PEtALSCDKException(e);
             }
+            endpointsChanged();
             return true;
         } else {
             return false;
         }
     }
 
+    private @Nullable ServiceData getServiceData(final QName service, final String endpointName) {
+        final Map<String, ServiceData> endpoints = services.get(service);
+        return endpoints != null ? endpoints.get(endpointName) : null;
+    }
+
+    /**
+     * @return <code>false</code> if there is already an endpoint for this key
+     */
+    private boolean putServiceData(final ServiceEndpointKey key, final ServiceData data) {
+        servicesLock.lock();
+        try {
+            final Map<QName, Map<String, ServiceData>> current = services;
+            final Map<String, ServiceData> endpoints = current.get(key.getServiceName());
+            if (endpoints != null && endpoints.containsKey(key.getEndpointName())) {
+                return false;
+            }
+            final Map<String, ServiceData> newEndpoints = endpoints != null ? new HashMap<>(endpoints)
+                    : new HashMap<String, ServiceData>();
+            newEndpoints.put(key.getEndpointName(), data);
+            final Map<QName, Map<String, ServiceData>> newServices = new HashMap<>(current);
+            newServices.put(key.getServiceName(), Collections.unmodifiableMap(newEndpoints));
+            services = Collections.unmodifiableMap(newServices);
+            return true;
+        } finally {
+            servicesLock.unlock();
+        }
+    }
+
+    private @Nullable ServiceData removeServiceData(final ServiceEndpointKey key) {
+        servicesLock.lock();
+        try {
+            final Map<QName, Map<String, ServiceData>> current = services;
+            final Map<String, ServiceData> endpoints = current.get(key.getServiceName());
+            if (endpoints == null) {
+                return null;
+            }
+            final ServiceData removed = endpoints.get(key.getEndpointName());
+            if (removed == null) {
+                return null;
+            }
+            final Map<QName, Map<String, ServiceData>> newServices = new HashMap<>(current);
+            if (endpoints.size() == 1) {
+                newServices.remove(key.getServiceName());
+            } else {
+                final Map<String, ServiceData> newEndpoints = new HashMap<>(endpoints);
+                newEndpoints.remove(key.getEndpointName());
+                newServices.put(key.getServiceName(), Collections.unmodifiableMap(newEndpoints));
+            }
+            services = Collections.unmodifiableMap(newServices);
+            return removed;
+        } finally {
+            servicesLock.unlock();
+        }
+    }
+
+    /**
+     * The endpoints activated by this component (for the services propagated to its provider domains) can be consumed
+     * by its own consumer domains: they don't need to wait for their polling to propagate them further.
+     */
+    private void endpointsChanged() {
+        for (final ConsumerDomain cd : getServiceUnitManager().getConsumerDomains()) {
+            cd.endpointsChanged();
+        }
+    }
+
+    /**
+     * Executes a task (de)activating endpoints or rewriting their descriptions (see {@link ProviderDomain}) on a thread
+     * dedicated to it, or directly if the component is already shut down (in which case it is only cleaning up).
+     */
+    public void executeDescriptionTask(final Runnable task) {
+        final EventExecutorGroup group = descriptionsGroup;
+        if (group != null && !group.isShuttingDown()) {
+            try {
+                group.execute(task);
+                return;
+            } catch (final RejectedExecutionException e) {
+                // it was shut down in between
+            }
+        }
+        task.run();
+    }
+
+    private ExchangesExecutor newExchangesExecutor(final String componentName, final int maxPoolSize,
+            final boolean virtualThreads, final int maxPending) {
+        if (virtualThreads || maxPoolSize > 0) {
+            this.getLogger().config("Max pending exchanges per connection: " + maxPending
+                    + (maxPending == 0 ? " (no limit)" : ""));
+        }
+        if (virtualThreads) {
+            final ExchangesExecutor executor = ExchangesExecutor.newVirtualThreads(getLogger(), maxPending);
+            if (executor != null) {
+                this.getLogger().config("Exchanges delivered by virtual threads");
+                return executor;
+            }
+            getLogger().warning(String.format("Virtual threads are not available (%s), falling back to %s",
+                    ExchangesExecutor.virtualThreadsUnavailabilityCause(),
+                    BcGatewayJbiConstants.EL_EXCHANGES_MAX_POOL_SIZE.getLocalPart()));
+        }
+        this.getLogger().config("Max pool size of exchanges: " + maxPoolSize
+                + (maxPoolSize == 0 ? " (delivered on the event loops)" : ""));
+        if (maxPoolSize > 0) {
+            return new ExchangesExecutor(new DefaultEventExecutorGroup(maxPoolSize,
+                    new DefaultThreadFactory(componentName + " - Exchanges - netty")), maxPending);
+        } else {
+            return ExchangesExecutor.DIRECT;
+        }
+    }
+
+    private ExchangesExecutor getExchangesExecutor() {
+        final ExchangesExecutor executor = exchangesExecutor;
+        assert executor != null;
+        return executor;
+    }
+
+    private HashedWheelTimer getExchangesTimer() {
+        final HashedWheelTimer timer = exchangesTimer;
+        assert timer != null;
+        return timer;
+    }
+
     /**
      * Used by the {@link AbstractDomain}s to send exchanges. But they come back through one of the
      * {@link BcGatewayJBIListener}.
@@ -479,6 +729,91 @@ public class BcGatewayComponent extends AbstractBindingComponent implements Prov
         cd.refreshPropagations();
     }
 
+    @Override
+    public Map<String, Map<String, Long>> getExchangesInProgress() {
+        final Map<String, Map<String, Long>> res = new TreeMap<>();
+        for (final ProviderDomain pd : getServiceUnitManager().getProviderDomains()) {
+            res.put(pd.getSUHandler().getName() + "/" + pd.getId(), getExchangesInProgress(pd));
+        }
+        for (final ConsumerDomain cd : getServiceUnitManager().getConsumerDomains()) {
+            res.put(cd.getSUHandler().getName() + "/" + cd.getId(), getExchangesInProgress(cd));
+        }
+        return res;
+    }
+
+    private static Map<String, Long> getExchangesInProgress(final AbstractDomain domain) {
+        final Map<String, Long> res = new TreeMap<>();
+        res.put(EXCHANGES_IN_PROGRESS, (long) domain.getExchangesInProgress());
+        res.put(EXCHANGES_EXPIRED, domain.getExpiredExchanges());
+        res.put(EXCHANGES_REJECTED, domain.getRejectedExchanges());
+        return res;
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getDomainsMetrics() {
+        final Map<String, Map<String, Long>> res = new TreeMap<>();
+        for (final ProviderDomain pd : getServiceUnitManager().getProviderDomains()) {
+            res.put(pd.getSUHandler().getName() + "/" + pd.getId(), getDomainMetrics(pd));
+        }
+        for (final ConsumerDomain cd : getServiceUnitManager().getConsumerDomains()) {
+            res.put(cd.getSUHandler().getName() + "/" + cd.getId(), getDomainMetrics(cd));
+        }
+        return res;
+    }
+
+    private static Map<String, Long> getDomainMetrics(final AbstractDomain domain) {
+        final DomainMetrics metrics = domain.getMetrics();
+        final Map<String, Long> res = getExchangeMetrics(metrics);
+        res.put(METRIC_IN_FLIGHT, (long) domain.getExchangesInProgress());
+        res.put(METRIC_MESSAGES_IN, metrics.getMessagesIn());
+        res.put(METRIC_MESSAGES_OUT, metrics.getMessagesOut());
+        res.put(METRIC_BYTES_IN, metrics.getBytesIn());
+        res.put(METRIC_BYTES_OUT, metrics.getBytesOut());
+        res.put(METRIC_DECODE_TIME, metrics.getDecodeTime());
+        res.put(METRIC_ENCODE_TIME, metrics.getEncodeTime());
+        return res;
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getServicesMetrics() {
+        final Map<String, Map<String, Long>> res = new TreeMap<>();
+        for (final ProviderDomain pd : getServiceUnitManager().getProviderDomains()) {
+            putServicesMetrics(res, pd);
+        }
+        for (final ConsumerDomain cd : getServiceUnitManager().getConsumerDomains()) {
+            putServicesMetrics(res, cd);
+        }
+        return res;
+    }
+
+    private static void putServicesMetrics(final Map<String, Map<String, Long>> res, final AbstractDomain domain) {
+        final String prefix = domain.getSUHandler().getName() + "/" + domain.getId() + " ";
+        for (final Entry<ServiceKey, ExchangeMetrics> e : domain.getMetrics().getServicesMetrics().entrySet()) {
+            res.put(prefix + e.getKey(), getExchangeMetrics(e.getValue()));
+        }
+    }
+
+    private static Map<String, Long> getExchangeMetrics(final ExchangeMetrics metrics) {
+        final Map<String, Long> res = new TreeMap<>();
+        res.put(METRIC_STARTED, metrics.getStarted());
+        res.put(METRIC_COMPLETED, metrics.getCompleted());
+        res.put(METRIC_ERRORED, metrics.getErrored());
+        res.put(METRIC_TIMED_OUT, metrics.getTimedOut());
+        putLatencyMetrics(res, METRIC_REMOTE_LATENCY, metrics.getRemoteLatency());
+        putLatencyMetrics(res, METRIC_LOCAL_LATENCY, metrics.getLocalLatency());
+        return res;
+    }
+
+    private static void putLatencyMetrics(final Map<String, Long> res, final String prefix,
+            final LatencyHistogram latency) {
+        res.put(prefix + METRIC_LATENCY_COUNT, latency.getCount());
+        res.put(prefix + METRIC_LATENCY_MEAN, latency.getMean());
+        res.put(prefix + METRIC_LATENCY_P50, latency.getPercentile(50));
+        res.put(prefix + METRIC_LATENCY_P90, latency.getPercentile(90));
+        res.put(prefix + METRIC_LATENCY_P99, latency.getPercentile(99));
+        res.put(prefix + METRIC_LATENCY_MAX, latency.getMax());
+    }
+
     @Override
     public void reconnectDomains(final boolean force) throws PetalsException {
         for (final ProviderDomain pd : getServiceUnitManager().getProviderDomains()) {
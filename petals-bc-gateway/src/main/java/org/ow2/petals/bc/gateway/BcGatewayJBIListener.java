@@ -48,12 +48,14 @@ public class BcGatewayJBIListener extends AbstractJBIListener {
         // - either for a provides or for one of our dynamically created endpoints
         // - new exchanges (answers go to onAsyncJBIMessage)
         if (exchange.isActiveStatus() && exchange.isProviderRole()) {
-            final ServiceEndpointKey key = new ServiceEndpointKey(exchange.getEndpoint());
-            final ProviderService ps = getComponent().matches(key);
+            final ProviderService ps = getComponent().matches(exchange.getEndpoint());
             if (ps != null) {
-                ps.sendToChannel(exchange);
+                if (!ps.sendToChannel(exchange)) {
+                    return true;
+                }
             } else {
-                exchange.setError(new MessagingException("Endpoint '" + key + "' unknown on this component!"));
+                exchange.setError(new MessagingException(
+                        "Endpoint '" + new ServiceEndpointKey(exchange.getEndpoint()) + "' unknown on this component!"));
                 return true;
             }
         } else {
@@ -17,28 +17,45 @@
  */
 package org.ow2.petals.bc.gateway.commons;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 import java.util.logging.Logger;
 
+import javax.jbi.messaging.ExchangeStatus;
 import javax.jbi.messaging.MessagingException;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.ow2.petals.bc.gateway.JBISender;
 import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedAck;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedException;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedForExchange;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedMessage;
-import org.ow2.petals.bc.gateway.utils.BcGatewayJbiHelper.Pair;
 import org.ow2.petals.commons.log.FlowAttributes;
 import org.ow2.petals.commons.log.Level;
 import org.ow2.petals.commons.log.PetalsExecutionContext;
 import org.ow2.petals.component.framework.api.message.Exchange;
 import org.ow2.petals.component.framework.su.ServiceUnitDataHandler;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 
 public abstract class AbstractDomain {
 
@@ -46,16 +63,143 @@ public abstract class AbstractDomain {
 
     protected final ServiceUnitDataHandler handler;
 
-    private final JBISender sender;
+    protected final JBISender sender;
 
     /**
-     * Exchange is added
+     * Exchange is added when sent to the channel and we wait for an answer, it is removed when the answer is received
+     * or when it expires (see {@link #getExchangeTimeout(TransportedMessage, JBISender)}).
      */
-    private final ConcurrentMap<String, Pair<Exchange, FlowAttributes>> exchangesInProgress = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ExchangeInProgress> exchangesInProgress = new ConcurrentHashMap<>();
 
-    public AbstractDomain(final JBISender sender, final ServiceUnitDataHandler handler, final Logger logger) {
+    /**
+     * The size of {@link #exchangesInProgress}, reserved before adding to it so that
+     * {@link #getExchangesInProgressCapacity()} is respected.
+     */
+    private final AtomicInteger exchangesInProgressCount = new AtomicInteger();
+
+    private final LongAdder expiredExchanges = new LongAdder();
+
+    private final LongAdder rejectedExchanges = new LongAdder();
+
+    private final DomainMetrics metrics = new DomainMetrics();
+
+    private final SslContextCache sslContext = new SslContextCache();
+
+    /**
+     * Added to the timeout of an exchange in progress before it expires (in milliseconds).
+     */
+    private static final long EXPIRATION_GRACE_PERIOD = 10000;
+
+    /**
+     * Used to expire the {@link #exchangesInProgress}
+     */
+    protected final Timer timer;
+
+    /**
+     * Used to deliver the exchanges received from the channels to the NMR
+     */
+    protected final ExchangesExecutor executor;
+
+    private static class ExchangeInProgress {
+
+        private final Exchange exchange;
+
+        private final ServiceKey service;
+
+        private final FlowAttributes flowAttributes;
+
+        /**
+         * The channel the answer is expected on
+         */
+        private final Channel channel;
+
+        /**
+         * When it was sent to the channel (see {@link System#nanoTime()})
+         */
+        private final long sentAt = System.nanoTime();
+
+        private volatile @Nullable Timeout expiration;
+
+        public ExchangeInProgress(final Exchange exchange, final ServiceKey service,
+                final FlowAttributes flowAttributes, final Channel channel) {
+            this.exchange = exchange;
+            this.service = service;
+            this.flowAttributes = flowAttributes;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * The number of exchanges of {@link #exchangesInProgress} waiting for an answer on a given {@link Channel}: the
+     * answer always comes back on the channel the exchange was sent on.
+     */
+    private static final AttributeKey<AtomicInteger> CHANNEL_EXCHANGES_IN_PROGRESS = AttributeKey
+            .valueOf(AbstractDomain.class, "exchangesInProgress");
+
+    /**
+     * If the reliable mode was negotiated during the authentication of a {@link Channel}: in this case, the
+     * {@link TransportedMessage} sent on it are kept in {@link #replayBuffer} until the other side acknowledges them.
+     */
+    public static final AttributeKey<Boolean> RELIABLE = AttributeKey.valueOf(AbstractDomain.class, "reliable");
+
+    /**
+     * The version of {@link TransportedCodec} negotiated during the authentication of a {@link Channel}
+     * ({@link TransportedCodec#NO_VERSION} if Java serialization is used).
+     */
+    public static final AttributeKey<Byte> CODEC_VERSION = AttributeKey.valueOf(AbstractDomain.class,
+            "codecVersion");
+
+    /**
+     * The messages sent to the other side on a reliable {@link Channel} that it didn't acknowledge yet, indexed by
+     * exchange id and then by step: they are resent on the next authenticated channel if theirs is closed.
+     * 
+     * The steps of an exchange are only modified inside {@link ConcurrentMap#compute(Object, BiFunction)} (or
+     * {@link ConcurrentMap#computeIfPresent(Object, BiFunction)}), or removed as a whole with
+     * {@link ConcurrentMap#remove(Object)}: these being atomic for a given exchange, {@link #replayBufferCount} stays
+     * right.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<Integer, Replayed>> replayBuffer = new ConcurrentHashMap<>();
+
+    /**
+     * The size of {@link #replayBuffer}, reserved before adding to it so that {@link #getReplayBufferSize()} is
+     * respected.
+     */
+    private final AtomicInteger replayBufferCount = new AtomicInteger();
+
+    /**
+     * The last messages received on reliable channels (see {@link #replayKey(String, int)}), to ignore the ones resent
+     * by the other side because our acknowledgement was lost with the connection.
+     */
+    private final Map<String, Boolean> received = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>() {
+        private static final long serialVersionUID = -5373917862395416787L;
+
+        @Override
+        protected boolean removeEldestEntry(final @Nullable Entry<String, Boolean> eldest) {
+            return size() > getReplayBufferSize();
+        }
+    });
+
+    private static class Replayed {
+
+        private final TransportedMessage message;
+
+        /**
+         * The channel the message was last written on
+         */
+        private volatile Channel channel;
+
+        public Replayed(final TransportedMessage message, final Channel channel) {
+            this.message = message;
+            this.channel = channel;
+        }
+    }
+
+    public AbstractDomain(final JBISender sender, final ServiceUnitDataHandler handler, final Timer timer,
+            final ExchangesExecutor executor, final Logger logger) {
         this.sender = sender;
         this.handler = handler;
+        this.timer = timer;
+        this.executor = executor;
         this.logger = logger;
     }
 
@@ -65,15 +209,253 @@ public abstract class AbstractDomain {
 
     public abstract String getId();
 
+    /**
+     * @return the number of exchanges sent on this {@link Channel} for which we are waiting for an answer
+     */
+    public static int getExchangesInProgress(final Channel channel) {
+        final AtomicInteger counter = channel.attr(CHANNEL_EXCHANGES_IN_PROGRESS).get();
+        return counter != null ? counter.get() : 0;
+    }
+
+    private static AtomicInteger getExchangesInProgressCounter(final Channel channel) {
+        final Attribute<AtomicInteger> attr = channel.attr(CHANNEL_EXCHANGES_IN_PROGRESS);
+        final AtomicInteger counter = attr.get();
+        if (counter != null) {
+            return counter;
+        }
+        final AtomicInteger newCounter = new AtomicInteger();
+        final AtomicInteger previous = attr.setIfAbsent(newCounter);
+        return previous != null ? previous : newCounter;
+    }
+
+    /**
+     * @return the number of exchanges sent on the channels of this domain for which we are waiting for an answer
+     */
+    public int getExchangesInProgress() {
+        return exchangesInProgressCount.get();
+    }
+
+    /**
+     * @return the number of exchanges in progress that expired before an answer was received
+     */
+    public long getExpiredExchanges() {
+        return expiredExchanges.sum();
+    }
+
+    /**
+     * @return the number of exchanges that were not sent because there was already too many exchanges in progress
+     */
+    public long getRejectedExchanges() {
+        return rejectedExchanges.sum();
+    }
+
+    public DomainMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SslContextCache getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * @return <code>true</code> if the reliable mode was negotiated for this {@link Channel}
+     */
+    public static boolean isReliable(final Channel channel) {
+        final Boolean reliable = channel.attr(RELIABLE).get();
+        return reliable != null && reliable;
+    }
+
+    /**
+     * @return <code>true</code> if the other side of this {@link Channel} understands the deltas of propagations
+     */
+    public static boolean supportsPropagationsDelta(final Channel channel) {
+        final Byte version = channel.attr(CODEC_VERSION).get();
+        return version != null && version >= TransportedCodec.DELTA_VERSION;
+    }
+
+    private static String replayKey(final String exchangeId, final int step) {
+        return exchangeId + "#" + step;
+    }
+
+    /**
+     * @return the maximum number of messages kept until the other side acknowledges them
+     */
+    protected abstract int getReplayBufferSize();
+
+    /**
+     * @return the context of a connected channel to the other side of this domain, or <code>null</code> if there is
+     *         none
+     */
+    protected abstract @Nullable ChannelHandlerContext getLiveContext();
+
+    /**
+     * @return the maximum number of exchanges in progress
+     */
+    protected abstract int getExchangesInProgressCapacity();
+
+    /**
+     * @return the timeout (in milliseconds) of the consumes or provides of the exchange sent on the channel, a negative
+     *         or 0 value means there is none
+     */
+    protected abstract long getExchangeTimeout(final TransportedMessage m, final JBISender jbiSender);
+
+    /**
+     * @return the time (in milliseconds) after which we stop waiting for an answer to an exchange sent on the channel
+     *         if it has no timeout, a negative or 0 value means never
+     */
+    protected abstract long getDefaultExchangeExpiration();
+
+    private void release(final ExchangeInProgress eip) {
+        exchangesInProgressCount.decrementAndGet();
+        getExchangesInProgressCounter(eip.channel).decrementAndGet();
+        final Timeout expiration = eip.expiration;
+        if (expiration != null) {
+            expiration.cancel();
+        }
+    }
+
+    private void expire(final String exchangeId, final ExchangeInProgress eip) {
+        // it may have been answered in the meantime
+        if (exchangesInProgress.remove(exchangeId, eip)) {
+            release(eip);
+            expiredExchanges.increment();
+            metrics.exchangeTimedOut(eip.service);
+            metrics.exchangeEnded(eip.service, true);
+            PetalsExecutionContext.putFlowAttributes(eip.flowAttributes);
+            final String msg = String.format(
+                    "No answer received from the other side of domain '%s' in time for exchange %s", getId(),
+                    exchangeId);
+            logger.warning(msg);
+            // there is no need to resend it anymore
+            removeReplayed(exchangeId);
+            sendErrorToNMR(eip.exchange, new MessagingException(msg));
+        }
+    }
+
     protected abstract void logAfterReceivingFromChannel(final TransportedMessage m);
 
+    public void receiveFromChannel(final ChannelHandlerContext ctx, final TransportedForExchange m) {
+        if (!(m instanceof TransportedMessage) || ((TransportedMessage) m).last) {
+            // the exchange is over, our steps don't need to be resent anymore
+            removeReplayed(m.exchangeId);
+        } else {
+            // the other side received our previous steps if it sends this one
+            removeReplayed(m.exchangeId, ((TransportedMessage) m).step - 1);
+        }
+
+        if (m instanceof TransportedMessage && isReliable(ctx.channel())) {
+            final TransportedMessage tm = (TransportedMessage) m;
+            // even for duplicates: it means our previous acknowledgement was lost
+            ctx.writeAndFlush(new TransportedAck(tm.exchangeId, tm.step));
+            if (received.put(replayKey(tm.exchangeId, tm.step), Boolean.TRUE) != null) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.fine("Ignoring step " + tm.step + " of exchange " + tm.exchangeId
+                            + " resent by the other side, it was already received");
+                }
+                return;
+            }
+        }
+
+        // the acknowledgement and the detection of duplicates are done right away, but the delivery to the NMR can be
+        // done outside of the event loop
+        executor.execute(m.exchangeId, ctx.channel(), new Runnable() {
+            @Override
+            public void run() {
+                doReceiveFromChannel(ctx, m);
+            }
+        });
+    }
+
+    /**
+     * The other side received a message we sent on a reliable channel, there is no need to keep it anymore.
+     */
+    public void receiveAckFromChannel(final TransportedAck ack) {
+        replayBuffer.computeIfPresent(ack.exchangeId, new ReplayedRemover(ack.step, ack.step));
+    }
+
+    /**
+     * Removes all the steps of an exchange from {@link #replayBuffer}.
+     */
+    private void removeReplayed(final String exchangeId) {
+        final Map<Integer, Replayed> steps = replayBuffer.remove(exchangeId);
+        if (steps != null) {
+            replayBufferCount.addAndGet(-steps.size());
+        }
+    }
+
+    /**
+     * Removes the steps of an exchange from {@link #replayBuffer} up to maxStep (included).
+     */
+    private void removeReplayed(final String exchangeId, final int maxStep) {
+        replayBuffer.computeIfPresent(exchangeId, new ReplayedRemover(1, maxStep));
+    }
+
+    private class ReplayedRemover
+            implements BiFunction<String, ConcurrentMap<Integer, Replayed>, ConcurrentMap<Integer, Replayed>> {
+
+        private final int minStep;
+
+        private final int maxStep;
+
+        public ReplayedRemover(final int minStep, final int maxStep) {
+            this.minStep = minStep;
+            this.maxStep = maxStep;
+        }
+
+        @Override
+        public @Nullable ConcurrentMap<Integer, Replayed> apply(final @Nullable String exchangeId,
+                final @Nullable ConcurrentMap<Integer, Replayed> steps) {
+            assert steps != null;
+            final Iterator<Integer> it = steps.keySet().iterator();
+            while (it.hasNext()) {
+                final int step = it.next();
+                if (step >= minStep && step <= maxStep) {
+                    it.remove();
+                    replayBufferCount.decrementAndGet();
+                }
+            }
+            // removes the exchange when there is nothing left
+            return steps.isEmpty() ? null : steps;
+        }
+    }
+
+    /**
+     * Resends on this newly authenticated channel all the messages that were sent on a channel that was closed before
+     * the other side acknowledged them.
+     */
+    public void resendToChannel(final ChannelHandlerContext ctx) {
+        if (!isReliable(ctx.channel())) {
+            return;
+        }
+
+        int resent = 0;
+        for (final Map<Integer, Replayed> steps : replayBuffer.values()) {
+            for (final Replayed r : steps.values()) {
+                final Channel previous = r.channel;
+                if (previous != ctx.channel() && !previous.isActive()) {
+                    writeReplayed(ctx, r);
+                    resent++;
+                }
+            }
+        }
+
+        if (resent > 0) {
+            logger.info("Resent " + resent + " messages not acknowledged by the other side of domain '" + getId()
+                    + "' before the disconnection");
+        }
+    }
+
     /**
      * TODO add tests about flow attributes
      */
-    public void receiveFromChannel(final ChannelHandlerContext ctx, final TransportedForExchange m) {
+    private void doReceiveFromChannel(final ChannelHandlerContext ctx, final TransportedForExchange m) {
         // in all case where I receive something, I remove the exchange I stored before!
         // if it has to come back (e.g., for InOptOut fault after out) it will be put back
-        final Pair<Exchange, FlowAttributes> stored = exchangesInProgress.remove(m.exchangeId);
+        final ExchangeInProgress stored = exchangesInProgress.remove(m.exchangeId);
+        if (stored != null) {
+            release(stored);
+            metrics.remoteAnswered(stored.service, System.nanoTime() - stored.sentAt);
+        }
 
         if (m instanceof TransportedException) {
             final TransportedException te = (TransportedException) m;
@@ -88,8 +470,22 @@ public abstract class AbstractDomain {
         } else if (m instanceof TransportedMessage) {
             final TransportedMessage tm = (TransportedMessage) m;
 
+            if (tm.step > 1 && stored == null) {
+                // the error was already sent back over the NMR
+                logger.warning("Received an answer for exchange " + tm.exchangeId
+                        + " that expired before, ignoring it");
+                return;
+            }
+
             assert tm.step == 1 ^ stored != null;
 
+            if (tm.step == 1) {
+                metrics.exchangeStarted(tm.service);
+            }
+            if (tm.last) {
+                metrics.exchangeEnded(tm.service, isError(tm));
+            }
+
             // do logs for starting the consumeExtStepBegin of CD or provideExtStepEnd of PD
             logAfterReceivingFromChannel(tm);
 
@@ -99,12 +495,12 @@ public abstract class AbstractDomain {
                 if (stored != null) {
                     // this corresponds for CD to consumeExtStep and for PD to provideStep
                     assert tm.step > 1;
-                    PetalsExecutionContext.putFlowAttributes(stored.getB());
+                    PetalsExecutionContext.putFlowAttributes(stored.flowAttributes);
 
                     // This gives us the stored exchange updated (for step>1), restoring the flow tracing activation
                     // state at message exchange level because it can be replaced by its
                     // provider domain side according to its flow tracing propagation configuration.
-                    exchange = ExchangeHelper.updateStoredExchange(stored.getA(), tm, this.sender, true,
+                    exchange = ExchangeHelper.updateStoredExchange(stored.exchange, tm, this.sender, true,
                             tm.initialExternalFlowTracingActivation);
 
                 } else {
@@ -150,12 +546,18 @@ public abstract class AbstractDomain {
      */
     protected abstract boolean isFlowTracingActivated(final @Nullable TransportedMessage m);
 
+    private static boolean isError(final TransportedMessage m) {
+        return m.exchange.getStatus() == ExchangeStatus.ERROR;
+    }
+
     private static DomainContext getContext(final AbstractDomain domain, final ChannelHandlerContext ctx,
             final TransportedMessage m) {
+        final long sentToNMRAt = System.nanoTime();
         return new DomainContext() {
             @Override
             public void sendToChannel(final Exchange exchange) {
                 assert !m.last;
+                domain.metrics.localAnswered(m.service, System.nanoTime() - sentToNMRAt);
                 domain.sendFromNMRToChannel(ctx, m.service, m, exchange);
             }
 
@@ -163,7 +565,9 @@ public abstract class AbstractDomain {
             public void sendTimeoutToChannel() {
                 // in this case, note that we will reuse the exchange that was received from the channel
                 // because the one we sent to the NMR (which timed out) can't be modified anymore
-                
+                domain.metrics.localAnswered(m.service, System.nanoTime() - sentToNMRAt);
+                domain.metrics.exchangeTimedOut(m.service);
+
                 final String timeoutErrorMsg = domain.buildTimeoutErrorMessage(m, domain.sender);
                 domain.sendErrorToChannel(ctx, m, new TimeoutException(timeoutErrorMsg));
             }
@@ -188,19 +592,83 @@ public abstract class AbstractDomain {
         final TransportedMessage m = ExchangeHelper.updateTransportedExchange(om, service,
                 exchange.getMessageExchange());
 
+        if (m.step == 1) {
+            metrics.exchangeStarted(service);
+        }
+
         if (!m.last) {
+            final int capacity = getExchangesInProgressCapacity();
+            // only new exchanges are rejected: for the others, the other side is waiting for this answer
+            if (exchangesInProgressCount.incrementAndGet() > capacity && m.step == 1) {
+                exchangesInProgressCount.decrementAndGet();
+                rejectedExchanges.increment();
+                metrics.exchangeEnded(service, true);
+                sendErrorToNMR(exchange, new MessagingException(String.format(
+                        "Too many exchanges in progress (%d) for domain '%s', the exchange can't be sent to it",
+                        capacity, getId())));
+                return;
+            }
+
             // the current flow is either the provide step or the consume ext step
             final FlowAttributes fa = PetalsExecutionContext.getFlowAttributes();
             // it was set by the CDK (or us if it didn't have the time to go through the NMR)
             assert fa != null;
-            final Pair<Exchange, FlowAttributes> prev = exchangesInProgress.putIfAbsent(m.exchangeId,
-                    Pair.of(exchange, fa));
+            final ExchangeInProgress eip = new ExchangeInProgress(exchange, service, fa, ctx.channel());
+            final ExchangeInProgress prev = exchangesInProgress.putIfAbsent(m.exchangeId, eip);
             assert prev == null;
+            getExchangesInProgressCounter(ctx.channel()).incrementAndGet();
+
+            final long timeout = getExchangeTimeout(m, sender);
+            // the other side should answer before, at least with its own timeout error
+            final long expiration = timeout > 0 ? timeout + EXPIRATION_GRACE_PERIOD : getDefaultExchangeExpiration();
+            if (expiration > 0) {
+                final String exchangeId = m.exchangeId;
+                // if it was already removed, expire() will simply do nothing
+                eip.expiration = timer.newTimeout(new TimerTask() {
+                    @Override
+                    public void run(final @Nullable Timeout t) {
+                        // the timer is shared by the whole component: the error is sent to the NMR as the messages
+                        // received for this exchange are
+                        executor.execute(exchangeId, new Runnable() {
+                            @Override
+                            public void run() {
+                                expire(exchangeId, eip);
+                            }
+                        });
+                    }
+                }, expiration, TimeUnit.MILLISECONDS);
+            }
         }
 
         sendToChannel(ctx, m);
     }
 
+    /**
+     * For exchanges coming from the NMR that could not be sent at all to the channel: the error is sent back right
+     * away.
+     */
+    protected void sendErrorToNMR(final Exchange exchange, final Exception e) {
+        logger.log(Level.FINE, "Sending back an error for exchange " + exchange.getExchangeId(), e);
+        exchange.setError(e);
+        try {
+            // the exchange is not active anymore, so there is no answer to wait for
+            this.sender.sendToNMR(new DomainContext() {
+                @Override
+                public void sendToChannel(final Exchange exchange) {
+                    throw new IllegalStateException("Impossible case");
+                }
+
+                @Override
+                public void sendTimeoutToChannel() {
+                    throw new IllegalStateException("Impossible case");
+                }
+            }, exchange);
+        } catch (final MessagingException me) {
+            logger.log(Level.WARNING, "Can't send back the error over the NMR for exchange "
+                    + exchange.getExchangeId(), me);
+        }
+    }
+
     protected abstract void logBeforeSendingToChannel(final TransportedMessage m);
 
     protected abstract String buildTimeoutErrorMessage(final TransportedMessage m, final JBISender jbiSender);
@@ -211,34 +679,136 @@ public abstract class AbstractDomain {
             final TransportedMessage tm = (TransportedMessage) m;
             logBeforeSendingToChannel(tm);
             m.senderExtStep = PetalsExecutionContext.getFlowAttributes();
+            if (tm.last) {
+                metrics.exchangeEnded(tm.service, isError(tm));
+            }
+
+            if (isReliable(ctx.channel())) {
+                if (replayBufferCount.incrementAndGet() <= getReplayBufferSize()) {
+                    sendReliablyToChannel(ctx, tm);
+                    return;
+                }
+                replayBufferCount.decrementAndGet();
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.fine("Too many messages not acknowledged by the other side of domain '" + getId()
+                            + "', step " + tm.step + " of exchange " + tm.exchangeId + " won't be resent if lost");
+                }
+            }
         }
 
         ctx.writeAndFlush(m).addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(final @Nullable ChannelFuture future) throws Exception {
                 assert future != null;
-                // TODO add tests for these use cases!
+                // only the messages not kept in the replay buffer get there: they won't be resent on reconnection
+                // (the failure of a write doesn't close the channel nor reach exceptionCaught, see
+                // https://groups.google.com/d/msg/netty/yWMRRS6zaQ0/2MYNvRZQAQAJ)
                 if (!future.isSuccess()) {
-                    // TODO introduce some basic retrying before cancelling the send
-                    // Careful because if we reconnect, I guess the channel is not the same one?!?!
-                    final Throwable cause = future.cause();
-                    // TODO is the channel notified of the error too?
-                    // see https://groups.google.com/d/msg/netty/yWMRRS6zaQ0/2MYNvRZQAQAJ
-                    if (m instanceof TransportedMessage && !((TransportedMessage) m).last) {
-                        final TransportedMessage tm = (TransportedMessage) m;
-                        tm.exchange.setError(new MessagingException(cause));
-                        // TODO what about the other side waiting for this exchange?! it should be removed there... but
-                        // if there is a connection problem, then maybe it is simply that it was stopped?
-                        // we could take note of which exchangeId failed and send them on reconnect for cleaning?
-                        logger.log(Level.WARNING,
-                                "Can't send message over the channel, sending back the error over the NMR: " + m,
-                                cause);
-                        // TODO we have to wrap the modification in a transported message even though it hasn't been
-                        // so there may be extra useless operations... improve that!
-                        receiveFromChannel(ctx, TransportedMessage.lastMessage(tm, tm.exchange));
-                    } else {
-                        logger.log(Level.WARNING, "Can't send message over the channel but nothing I can do now: " + m,
-                                cause);
+                    sendFailed(ctx, m, future.cause());
+                }
+            }
+        });
+    }
+
+    /**
+     * The message couldn't be written to the channel: if the exchange is still active, the error is sent back over the
+     * NMR.
+     */
+    private void sendFailed(final ChannelHandlerContext ctx, final TransportedForExchange m,
+            final @Nullable Throwable cause) {
+        if (m instanceof TransportedMessage && !((TransportedMessage) m).last) {
+            final TransportedMessage tm = (TransportedMessage) m;
+            tm.exchange.setError(new MessagingException(cause));
+            // the other side waiting for this exchange will expire it (see #expire(String, ExchangeInProgress))
+            logger.log(Level.WARNING, "Can't send message over the channel, sending back the error over the NMR: " + m,
+                    cause);
+            // the error is handled as if it came from the other side: not on the event loop and in order with the
+            // other steps of the exchange
+            final TransportedMessage last = TransportedMessage.lastMessage(tm, tm.exchange);
+            executor.execute(tm.exchangeId, new Runnable() {
+                @Override
+                public void run() {
+                    doReceiveFromChannel(ctx, last);
+                }
+            });
+        } else {
+            logger.log(Level.WARNING, "Can't send message over the channel but nothing I can do now: " + m, cause);
+        }
+    }
+
+    private void sendReliablyToChannel(final ChannelHandlerContext ctx, final TransportedMessage m) {
+        // the answers of an exchange are expected on the channel it was received on, but if it was closed in the
+        // meantime, the other side will get them on its new connection
+        ChannelHandlerContext target = ctx;
+        if (!ctx.channel().isActive()) {
+            final ChannelHandlerContext live = getLiveContext();
+            if (live != null && isReliable(live.channel())) {
+                target = live;
+            }
+        }
+
+        final Replayed r = new Replayed(m, target.channel());
+        replayBuffer.compute(m.exchangeId,
+                new BiFunction<String, ConcurrentMap<Integer, Replayed>, ConcurrentMap<Integer, Replayed>>() {
+                    @Override
+                    public ConcurrentMap<Integer, Replayed> apply(final @Nullable String exchangeId,
+                            final @Nullable ConcurrentMap<Integer, Replayed> steps) {
+                        final ConcurrentMap<Integer, Replayed> res = steps != null ? steps
+                                : new ConcurrentHashMap<Integer, Replayed>();
+                        if (res.put(m.step, r) != null) {
+                            replayBufferCount.decrementAndGet();
+                        }
+                        return res;
+                    }
+                });
+
+        if (m.last) {
+            // there is no next step to acknowledge it implicitly: if the acknowledgement never comes (e.g., the other
+            // side never reconnects), it must not stay forever
+            final long expiration = getDefaultExchangeExpiration();
+            if (expiration > 0) {
+                final String exchangeId = m.exchangeId;
+                timer.newTimeout(new TimerTask() {
+                    @Override
+                    public void run(final @Nullable Timeout t) {
+                        removeReplayed(exchangeId);
+                    }
+                }, expiration, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (target.channel().isActive()) {
+            writeReplayed(target, r);
+        } else if (logger.isLoggable(Level.FINE)) {
+            logger.fine("No connection to the other side of domain '" + getId() + "', step " + m.step
+                    + " of exchange " + m.exchangeId + " will be sent after the reconnection");
+        }
+    }
+
+    private void writeReplayed(final ChannelHandlerContext ctx, final Replayed r) {
+        r.channel = ctx.channel();
+        ctx.writeAndFlush(r.message).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(final @Nullable ChannelFuture future) throws Exception {
+                assert future != null;
+                if (!future.isSuccess()) {
+                    if (future.channel().isActive()) {
+                        // it is not because of the connection (e.g., the message can't be encoded): resending it
+                        // would fail the same way
+                        replayBuffer.computeIfPresent(r.message.exchangeId,
+                                new ReplayedRemover(r.message.step, r.message.step));
+                        sendFailed(ctx, r.message, future.cause());
+                        return;
+                    }
+
+                    // it is still in the replay buffer: it will be resent on the next channel
+                    logger.log(Level.FINE, "Can't send message over the channel, it will be resent after the "
+                            + "reconnection: " + r.message, future.cause());
+                    // the reconnection may have happened while we were writing
+                    final ChannelHandlerContext live = getLiveContext();
+                    if (live != null && live.channel() != future.channel() && isReliable(live.channel())
+                            && r.channel == future.channel()) {
+                        writeReplayed(live, r);
                     }
                 }
             }
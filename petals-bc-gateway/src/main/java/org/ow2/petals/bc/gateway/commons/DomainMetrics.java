@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * The metrics of an {@link AbstractDomain}, globally and for each {@link ServiceKey} exchanged through it.
+ * 
+ * Everything is recorded with {@link LongAdder}s and {@link LatencyHistogram}s so that the event loops and the NMR
+ * threads never contend on a lock to update them.
+ */
+public class DomainMetrics extends ExchangeMetrics {
+
+    /**
+     * Given by {@link AbstractDomain} to its channels once authenticated, so that the codec handlers can record the
+     * bytes they encode and decode.
+     */
+    public static final AttributeKey<DomainMetrics> KEY = AttributeKey.valueOf(DomainMetrics.class, "metrics");
+
+    private final ConcurrentMap<ServiceKey, ExchangeMetrics> services = new ConcurrentHashMap<>();
+
+    private final LongAdder messagesIn = new LongAdder();
+
+    private final LongAdder messagesOut = new LongAdder();
+
+    private final LongAdder bytesIn = new LongAdder();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    private final LongAdder decodeTime = new LongAdder();
+
+    private final LongAdder encodeTime = new LongAdder();
+
+    public static @Nullable DomainMetrics get(final Channel channel) {
+        return channel.attr(KEY).get();
+    }
+
+    public ExchangeMetrics getServiceMetrics(final ServiceKey service) {
+        final ExchangeMetrics metrics = services.get(service);
+        if (metrics != null) {
+            return metrics;
+        }
+        final ExchangeMetrics newMetrics = new ExchangeMetrics();
+        final ExchangeMetrics previous = services.putIfAbsent(service, newMetrics);
+        return previous != null ? previous : newMetrics;
+    }
+
+    public Map<ServiceKey, ExchangeMetrics> getServicesMetrics() {
+        return Collections.unmodifiableMap(services);
+    }
+
+    public void exchangeStarted(final ServiceKey service) {
+        started.increment();
+        getServiceMetrics(service).started.increment();
+    }
+
+    public void exchangeEnded(final ServiceKey service, final boolean error) {
+        (error ? errored : completed).increment();
+        final ExchangeMetrics metrics = getServiceMetrics(service);
+        (error ? metrics.errored : metrics.completed).increment();
+    }
+
+    public void exchangeTimedOut(final ServiceKey service) {
+        timedOut.increment();
+        getServiceMetrics(service).timedOut.increment();
+    }
+
+    public void remoteAnswered(final ServiceKey service, final long nanos) {
+        remoteLatency.record(nanos);
+        getServiceMetrics(service).remoteLatency.record(nanos);
+    }
+
+    public void localAnswered(final ServiceKey service, final long nanos) {
+        localLatency.record(nanos);
+        getServiceMetrics(service).localLatency.record(nanos);
+    }
+
+    public void decoded(final int bytes, final long nanos) {
+        messagesIn.increment();
+        bytesIn.add(bytes);
+        decodeTime.add(nanos);
+    }
+
+    public void encoded(final int bytes, final long nanos) {
+        messagesOut.increment();
+        bytesOut.add(bytes);
+        encodeTime.add(nanos);
+    }
+
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    public long getMessagesOut() {
+        return messagesOut.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * @return the total time (in microseconds) spent decoding the received messages
+     */
+    public long getDecodeTime() {
+        return TimeUnit.NANOSECONDS.toMicros(decodeTime.sum());
+    }
+
+    /**
+     * @return the total time (in microseconds) spent encoding the sent messages
+     */
+    public long getEncodeTime() {
+        return TimeUnit.NANOSECONDS.toMicros(encodeTime.sum());
+    }
+}
@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.messaging.Fault;
 import javax.jbi.messaging.MessageExchange;
 import javax.jbi.messaging.MessagingException;
 import javax.jbi.messaging.NormalizedMessage;
@@ -29,6 +30,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.ow2.petals.bc.gateway.JBISender;
 import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedMessage;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedNormalizedMessage;
 import org.ow2.petals.component.framework.api.Message;
 import org.ow2.petals.component.framework.api.message.Exchange;
 
@@ -78,7 +80,7 @@ public class ExchangeHelper {
             setProperties(m.exchange, result.getMessageExchange());
 
             result.setOperation(m.exchange.getOperation());
-            result.setInMessage(m.exchange.getMessage(Exchange.IN_MESSAGE_NAME));
+            result.setInMessage(toNMRMessage(result, m.exchange.getMessage(Exchange.IN_MESSAGE_NAME)));
 
         } else if (!m.last) {
             assert exchange != null;
@@ -87,9 +89,9 @@ public class ExchangeHelper {
 
             final NormalizedMessage out = m.exchange.getMessage(Exchange.OUT_MESSAGE_NAME);
             if (out != null && !exchange.isOutMessage()) {
-                exchange.setOutMessage(out);
+                exchange.setOutMessage(toNMRMessage(exchange, out));
             } else if (m.exchange.getFault() != null && exchange.getFault() == null) {
-                exchange.setFault(m.exchange.getFault());
+                exchange.setFault(toNMRFault(exchange, m.exchange.getFault()));
             }
 
             result = exchange;
@@ -118,6 +120,32 @@ public class ExchangeHelper {
         return result;
     }
 
+    /**
+     * Messages received with the binary codec are only placeholders for their content: they are copied (without
+     * parsing the content) to a message created for the exchange.
+     */
+    private static @Nullable NormalizedMessage toNMRMessage(final Exchange exchange,
+            final @Nullable NormalizedMessage message) throws MessagingException {
+        if (message instanceof TransportedNormalizedMessage) {
+            final NormalizedMessage result = exchange.getMessageExchange().createMessage();
+            ((TransportedNormalizedMessage) message).copyTo(result);
+            return result;
+        } else {
+            return message;
+        }
+    }
+
+    private static @Nullable Fault toNMRFault(final Exchange exchange, final @Nullable Fault fault)
+            throws MessagingException {
+        if (fault instanceof TransportedNormalizedMessage) {
+            final Fault result = exchange.getMessageExchange().createFault();
+            ((TransportedNormalizedMessage) fault).copyTo(result);
+            return result;
+        } else {
+            return fault;
+        }
+    }
+
     private static void updateProperties(final @Nullable MessageExchange from, final @Nullable MessageExchange to) {
         assert from != null;
         assert to != null;
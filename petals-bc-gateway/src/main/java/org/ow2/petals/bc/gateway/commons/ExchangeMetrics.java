@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters and latencies of the exchanges going through a domain (see {@link DomainMetrics}).
+ */
+public class ExchangeMetrics {
+
+    /**
+     * New exchanges, sent to or received from the other side
+     */
+    protected final LongAdder started = new LongAdder();
+
+    /**
+     * Exchanges whose last message (sent to or received from the other side) is not an error
+     */
+    protected final LongAdder completed = new LongAdder();
+
+    /**
+     * Exchanges whose last message is an error, or that were never answered
+     */
+    protected final LongAdder errored = new LongAdder();
+
+    /**
+     * Exchanges that timed out in the NMR or while waiting for the other side: they are also counted in
+     * {@link #errored}
+     */
+    protected final LongAdder timedOut = new LongAdder();
+
+    /**
+     * Time between a message sent to the other side and its answer, i.e., on the wire and in the NMR of the other side
+     */
+    protected final LatencyHistogram remoteLatency = new LatencyHistogram();
+
+    /**
+     * Time between a message received from the other side and its answer from our NMR
+     */
+    protected final LatencyHistogram localLatency = new LatencyHistogram();
+
+    public long getStarted() {
+        return started.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getErrored() {
+        return errored.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    public LatencyHistogram getRemoteLatency() {
+        return remoteLatency;
+    }
+
+    public LatencyHistogram getLocalLatency() {
+        return localLatency;
+    }
+}
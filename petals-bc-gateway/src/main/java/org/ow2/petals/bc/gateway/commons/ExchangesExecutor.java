@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * Executes the delivery to the NMR of the exchanges received from the channels.
+ * 
+ * It is done either:
+ * <ul>
+ * <li>directly on the event loop of the channel they were received on ({@link #DIRECT}),</li>
+ * <li>on the threads of a group so that a slow delivery doesn't delay the other channels of the event loop: the tasks
+ * of a given exchange are always executed by the same thread of the group, in the order they were submitted,</li>
+ * <li>or on virtual threads (from Java 21) so that a slow delivery doesn't delay any other exchange: the tasks of a
+ * given exchange are executed one after the other, in the order they were submitted.</li>
+ * </ul>
+ * 
+ * In the last two cases, the tasks are queued without limit by the threads executing them: when too many tasks
+ * submitted for a {@link Channel} were not executed yet, it stops being read until half of them are.
+ */
+public class ExchangesExecutor {
+
+    public static final ExchangesExecutor DIRECT = new ExchangesExecutor(null, 0);
+
+    private static final AttributeKey<Backlog> BACKLOG = AttributeKey.valueOf(ExchangesExecutor.class, "backlog");
+
+    private static final @Nullable Throwable VIRTUAL_THREADS_UNAVAILABILITY_CAUSE;
+
+    static {
+        Throwable cause = null;
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (final NoSuchMethodException | SecurityException e) {
+            cause = e;
+        }
+        VIRTUAL_THREADS_UNAVAILABILITY_CAUSE = cause;
+    }
+
+    private final @Nullable EventExecutorGroup group;
+
+    private final EventExecutor[] executors;
+
+    private final @Nullable ExecutorService virtualThreads;
+
+    /**
+     * lock for manipulating the {@link #pending}
+     */
+    private final Lock mainLock = new ReentrantLock();
+
+    /**
+     * The tasks waiting for the previous task of their exchange to be executed by a virtual thread.
+     * 
+     * There is an entry as long as a task of the exchange is being executed.
+     */
+    private final Map<String, Queue<Runnable>> pending = new HashMap<>();
+
+    private final @Nullable Logger logger;
+
+    /**
+     * The number of tasks submitted for a {@link Channel} and not executed yet above which it stops being read (0 for no
+     * limit)
+     */
+    private final int maxPending;
+
+    /**
+     * The tasks submitted for a {@link Channel} and not executed yet.
+     */
+    private static class Backlog {
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * Only accessed from the event loop of the {@link Channel}
+         */
+        private boolean paused = false;
+    }
+
+    public ExchangesExecutor(final @Nullable EventExecutorGroup group, final int maxPending) {
+        this.group = group;
+        final List<EventExecutor> executors = new ArrayList<>();
+        if (group != null) {
+            for (final EventExecutor executor : group) {
+                executors.add(executor);
+            }
+        }
+        this.executors = executors.toArray(new EventExecutor[executors.size()]);
+        this.virtualThreads = null;
+        this.logger = null;
+        this.maxPending = maxPending;
+    }
+
+    private ExchangesExecutor(final ExecutorService virtualThreads, final Logger logger, final int maxPending) {
+        this.group = null;
+        this.executors = new EventExecutor[0];
+        this.virtualThreads = virtualThreads;
+        this.logger = logger;
+        this.maxPending = maxPending;
+    }
+
+    public static boolean isVirtualThreadsAvailable() {
+        return VIRTUAL_THREADS_UNAVAILABILITY_CAUSE == null;
+    }
+
+    public static @Nullable Throwable virtualThreadsUnavailabilityCause() {
+        return VIRTUAL_THREADS_UNAVAILABILITY_CAUSE;
+    }
+
+    /**
+     * @param logger
+     *            used to log the errors of the tasks, as there is no event loop to do it
+     * @param maxPending
+     *            the number of tasks submitted for a {@link Channel} and not executed yet above which it stops being
+     *            read (0 for no limit)
+     * @return <code>null</code> if the virtual threads are not available (before Java 21)
+     */
+    public static @Nullable ExchangesExecutor newVirtualThreads(final Logger logger, final int maxPending) {
+        if (!isVirtualThreadsAvailable()) {
+            return null;
+        }
+        try {
+            // the component is compiled for Java 17
+            final ExecutorService virtualThreads = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            assert virtualThreads != null;
+            return new ExchangesExecutor(virtualThreads, logger, maxPending);
+        } catch (final ReflectiveOperationException e) {
+            logger.log(Level.WARNING, "Couldn't create virtual threads", e);
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #execute(String, Runnable)} but for a task submitted from the event loop of the channel the exchange
+     * was received on: the channel stops being read while it has too many tasks not executed yet.
+     */
+    public void execute(final String exchangeId, final Channel channel, final Runnable task) {
+        assert channel.eventLoop().inEventLoop();
+        if (maxPending == 0 || (virtualThreads == null && executors.length == 0)) {
+            // the tasks are executed right away
+            execute(exchangeId, task);
+            return;
+        }
+
+        Backlog backlog = channel.attr(BACKLOG).get();
+        if (backlog == null) {
+            backlog = new Backlog();
+            channel.attr(BACKLOG).set(backlog);
+        }
+        if (backlog.pending.incrementAndGet() >= maxPending && !backlog.paused) {
+            backlog.paused = true;
+            channel.config().setAutoRead(false);
+        }
+
+        final Backlog b = backlog;
+        execute(exchangeId, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    if (b.pending.decrementAndGet() == maxPending / 2) {
+                        resume(channel, b);
+                    }
+                }
+            }
+        });
+    }
+
+    private void resume(final Channel channel, final Backlog backlog) {
+        try {
+            channel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (backlog.paused && backlog.pending.get() <= maxPending / 2) {
+                        backlog.paused = false;
+                        // the channel may have been stopped from being read because it isn't writable too
+                        channel.config().setAutoRead(channel.isWritable());
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // the component is shutting down, there is nothing to read anymore
+        }
+    }
+
+    /**
+     * Must be called from the event loop of the {@link Channel}.
+     * 
+     * @return <code>false</code> if the channel must not be read because too many tasks submitted for it with
+     *         {@link #execute(String, Channel, Runnable)} were not executed yet
+     */
+    public static boolean isReadable(final Channel channel) {
+        final Backlog backlog = channel.attr(BACKLOG).get();
+        return backlog == null || !backlog.paused;
+    }
+
+    public void execute(final String exchangeId, final Runnable task) {
+        final ExecutorService virtualThreads = this.virtualThreads;
+        if (virtualThreads != null) {
+            executeOnVirtualThread(virtualThreads, exchangeId, task);
+        } else if (executors.length == 0) {
+            task.run();
+        } else {
+            final EventExecutor executor = executors[Math.floorMod(exchangeId.hashCode(), executors.length)];
+            try {
+                executor.execute(task);
+            } catch (final RejectedExecutionException e) {
+                // the component is shutting down
+                task.run();
+            }
+        }
+    }
+
+    private void executeOnVirtualThread(final ExecutorService virtualThreads, final String exchangeId,
+            final Runnable task) {
+        mainLock.lock();
+        try {
+            final Queue<Runnable> queue = pending.get(exchangeId);
+            if (queue != null) {
+                // it will be executed after the previous ones
+                queue.add(task);
+                return;
+            }
+            pending.put(exchangeId, new ArrayDeque<Runnable>());
+        } finally {
+            mainLock.unlock();
+        }
+
+        final Runnable tasks = new Runnable() {
+            @Override
+            public void run() {
+                runAll(exchangeId, task);
+            }
+        };
+        try {
+            virtualThreads.execute(tasks);
+        } catch (final RejectedExecutionException e) {
+            // the component is shutting down
+            tasks.run();
+        }
+    }
+
+    private void runAll(final String exchangeId, final Runnable first) {
+        Runnable task = first;
+        while (task != null) {
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                final Logger logger = this.logger;
+                assert logger != null;
+                logger.log(Level.WARNING, "Error while delivering exchange " + exchangeId, e);
+            }
+
+            mainLock.lock();
+            try {
+                final Queue<Runnable> queue = pending.get(exchangeId);
+                assert queue != null;
+                task = queue.poll();
+                if (task == null) {
+                    pending.remove(exchangeId);
+                }
+            } finally {
+                mainLock.unlock();
+            }
+        }
+    }
+
+    public void shutdown() {
+        final EventExecutorGroup group = this.group;
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+        final ExecutorService virtualThreads = this.virtualThreads;
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A histogram of durations (in microseconds) with one bucket per power of 2, so that recording a value never takes a
+ * lock: concurrent threads only contend on striped {@link LongAdder}s.
+ * 
+ * The percentiles are thus approximated by the upper bound of their bucket (i.e., they can be up to twice the real
+ * value), which is enough to see where the time is spent.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Bucket <code>i</code> contains the values <code>v</code> such that <code>2^(i-1) <= v < 2^i</code> (and bucket 0
+     * the value 0).
+     */
+    private static final int BUCKETS = Long.SIZE;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(new LongBinaryOperator() {
+        @Override
+        public long applyAsLong(final long left, final long right) {
+            return Math.max(left, right);
+        }
+    }, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos
+     *            the duration to record, in nanoseconds
+     */
+    public void record(final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        buckets[Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros))].increment();
+        count.increment();
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the mean of the recorded durations (in microseconds), 0 if there is none
+     */
+    public long getMean() {
+        final long count = this.count.sum();
+        return count > 0 ? sum.sum() / count : 0;
+    }
+
+    /**
+     * @return the maximum recorded duration (in microseconds)
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile
+     *            between 0 and 100
+     * @return an upper bound (in microseconds) of the given percentile of the recorded durations, 0 if there is none
+     */
+    public long getPercentile(final double percentile) {
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // the maximum is more precise for the last bucket
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return 0;
+    }
+
+    private static long upperBound(final int bucket) {
+        return bucket == 0 ? 0 : bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons;
+
+import java.util.Objects;
+
+import javax.net.ssl.SSLException;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.component.framework.util.ServiceUnitUtil;
+
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.IdentityCipherSuiteFilter;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+
+/**
+ * The {@link SslContext} of a domain: it is built once from the certificate and key files of the SU and then shared by
+ * all the connections of the domain, until the SSL configuration changes or the cache is {@link #invalidate()}d (when
+ * the domain is reloaded).
+ * 
+ * Because the {@link SslContext} holds the TLS sessions, sharing it also lets reconnections resume their previous
+ * session instead of doing a full handshake.
+ */
+public class SslContextCache {
+
+    /**
+     * The number of TLS sessions kept for resumption by an {@link SslContext}
+     */
+    public static final long SESSION_CACHE_SIZE = 1024;
+
+    /**
+     * How long (in seconds) the TLS sessions are kept for resumption
+     */
+    public static final long SESSION_TIMEOUT = 3600;
+
+    private @Nullable Configuration configuration;
+
+    private @Nullable SslContext context;
+
+    /**
+     * @return the {@link SslContext} for this configuration, built only if the cached one was for another one
+     */
+    public synchronized SslContext get(final Configuration configuration) throws SSLException {
+        SslContext context = this.context;
+        if (context == null || !configuration.equals(this.configuration)) {
+            context = configuration.build();
+            this.context = context;
+            this.configuration = configuration;
+        }
+        return context;
+    }
+
+    /**
+     * The next connection will rebuild the {@link SslContext}, reading again the certificate and key files.
+     */
+    public synchronized void invalidate() {
+        this.context = null;
+        this.configuration = null;
+    }
+
+    /**
+     * What the {@link SslContext} of a domain is built from: the paths are relative to the install root of the SU.
+     */
+    public static class Configuration {
+
+        private final boolean server;
+
+        private final SslProvider provider;
+
+        private final String installRoot;
+
+        private final @Nullable String certificate;
+
+        private final @Nullable String key;
+
+        private final @Nullable String passphrase;
+
+        private final @Nullable String remoteCertificate;
+
+        private Configuration(final boolean server, final SslProvider provider, final String installRoot,
+                final @Nullable String certificate, final @Nullable String key, final @Nullable String passphrase,
+                final @Nullable String remoteCertificate) {
+            this.server = server;
+            this.provider = provider;
+            this.installRoot = installRoot;
+            this.certificate = certificate;
+            this.key = key;
+            this.passphrase = passphrase;
+            this.remoteCertificate = remoteCertificate;
+        }
+
+        /**
+         * The client certificate is only required if <code>remoteCertificate</code> is not <code>null</code>
+         */
+        public static Configuration forServer(final SslProvider provider, final String installRoot,
+                final String certificate, final String key, final @Nullable String passphrase,
+                final @Nullable String remoteCertificate) {
+            return new Configuration(true, provider, installRoot, certificate, key, passphrase, remoteCertificate);
+        }
+
+        /**
+         * The client certificate is only sent if <code>certificate</code> and <code>key</code> are not
+         * <code>null</code>
+         */
+        public static Configuration forClient(final SslProvider provider, final String installRoot,
+                final @Nullable String certificate, final @Nullable String key, final @Nullable String passphrase,
+                final String remoteCertificate) {
+            return new Configuration(false, provider, installRoot, certificate, key, passphrase, remoteCertificate);
+        }
+
+        private SslContext build() throws SSLException {
+            final String certificate = this.certificate;
+            final String key = this.key;
+            final String remoteCertificate = this.remoteCertificate;
+
+            final SslContextBuilder builder;
+            if (server) {
+                assert certificate != null && key != null;
+                builder = SslContextBuilder.forServer(ServiceUnitUtil.getFile(installRoot, certificate),
+                        ServiceUnitUtil.getFile(installRoot, key), passphrase);
+                if (remoteCertificate != null) {
+                    builder.trustManager(ServiceUnitUtil.getFile(installRoot, remoteCertificate))
+                            .clientAuth(ClientAuth.REQUIRE);
+                }
+            } else {
+                assert remoteCertificate != null;
+                builder = SslContextBuilder.forClient()
+                        .trustManager(ServiceUnitUtil.getFile(installRoot, remoteCertificate));
+                if (certificate != null && key != null) {
+                    builder.keyManager(ServiceUnitUtil.getFile(installRoot, certificate),
+                            ServiceUnitUtil.getFile(installRoot, key), passphrase);
+                }
+            }
+
+            return builder.sslProvider(provider).ciphers(null, IdentityCipherSuiteFilter.INSTANCE)
+                    .sessionCacheSize(SESSION_CACHE_SIZE).sessionTimeout(SESSION_TIMEOUT).build();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(server, provider, installRoot, certificate, key, passphrase, remoteCertificate);
+        }
+
+        @Override
+        public boolean equals(final @Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Configuration)) {
+                return false;
+            }
+            final Configuration other = (Configuration) obj;
+            return server == other.server && provider == other.provider && installRoot.equals(other.installRoot)
+                    && Objects.equals(certificate, other.certificate) && Objects.equals(key, other.key)
+                    && Objects.equals(passphrase, other.passphrase)
+                    && Objects.equals(remoteCertificate, other.remoteCertificate);
+        }
+    }
+}
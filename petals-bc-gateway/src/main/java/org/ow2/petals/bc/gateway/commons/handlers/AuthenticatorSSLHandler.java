@@ -18,20 +18,24 @@
 package org.ow2.petals.bc.gateway.commons.handlers;
 
 import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLException;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.ow2.petals.bc.gateway.commons.AbstractDomain;
+import org.ow2.petals.bc.gateway.commons.DomainMetrics;
+import org.ow2.petals.bc.gateway.commons.SslContextCache;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
 import org.ow2.petals.bc.gateway.inbound.ConsumerDomain;
 import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiConsumerDomain;
 import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiProviderDomain;
 import org.ow2.petals.bc.gateway.outbound.ProviderDomain;
+import org.ow2.petals.bc.gateway.utils.BcGatewaySslProvider;
 import org.ow2.petals.bc.gateway.utils.BcGatewayJbiHelper.Either;
 import org.ow2.petals.commons.log.Level;
-import org.ow2.petals.component.framework.su.ServiceUnitDataHandler;
-import org.ow2.petals.component.framework.util.ServiceUnitUtil;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
@@ -39,9 +43,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
-import io.netty.handler.ssl.ClientAuth;
-import io.netty.handler.ssl.IdentityCipherSuiteFilter;
-import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.ssl.SslProvider;
 import io.netty.util.concurrent.DefaultPromise;
@@ -107,9 +109,24 @@ public class AuthenticatorSSLHandler extends SimpleChannelInboundHandler<Authent
 
         public final SSLType sslType;
 
-        public AuthRequest(final String authName, final SSLType sslType) {
+        /**
+         * The most recent version of {@link TransportedCodec} supported by the client: it is
+         * {@link TransportedCodec#NO_VERSION} when received from older versions of the gateway.
+         */
+        public final byte codecVersion;
+
+        /**
+         * If the client wants to use the reliable mode: it is <code>false</code> when received from older versions of
+         * the gateway.
+         */
+        public final boolean reliable;
+
+        public AuthRequest(final String authName, final SSLType sslType, final byte codecVersion,
+                final boolean reliable) {
             this.authName = authName;
             this.sslType = sslType;
+            this.codecVersion = codecVersion;
+            this.reliable = reliable;
         }
     }
 
@@ -117,6 +134,22 @@ public class AuthenticatorSSLHandler extends SimpleChannelInboundHandler<Authent
 
         private static final long serialVersionUID = 511548153508643571L;
 
+        /**
+         * The version of {@link TransportedCodec} chosen by the server: it is {@link TransportedCodec#NO_VERSION} when
+         * received from older versions of the gateway (that ignore the one in the {@link AuthRequest}).
+         */
+        public final byte codecVersion;
+
+        /**
+         * If the reliable mode is used on the connection: only if both sides want it, and it is <code>false</code>
+         * when received from older versions of the gateway.
+         */
+        public final boolean reliable;
+
+        public AuthAccept(final byte codecVersion, final boolean reliable) {
+            this.codecVersion = codecVersion;
+            this.reliable = reliable;
+        }
     }
 
     static class AuthRefuse implements AuthMessage {
@@ -224,7 +257,8 @@ public class AuthenticatorSSLHandler extends SimpleChannelInboundHandler<Authent
             final String authName = jpd.getRemoteAuthName();
             assert authName != null;
             final AuthRequest msg = new AuthRequest(authName,
-                    clientCert ? SSLType.CLIENTSERVER : (serverCert ? SSLType.SERVER : SSLType.NONE));
+                    clientCert ? SSLType.CLIENTSERVER : (serverCert ? SSLType.SERVER : SSLType.NONE),
+                    TransportedCodec.VERSION, jpd.isReliable());
 
             if (logger.isLoggable(Level.FINE)) {
                 logger.fine("Sending an AuthRequest (" + ctx.channel().remoteAddress() + ") for auth name "
@@ -302,20 +336,27 @@ public class AuthenticatorSSLHandler extends SimpleChannelInboundHandler<Authent
                 ctx.writeAndFlush(new AuthRefuse(error));
                 authenticationFuture.setFailure(new AuthRefuseException(error));
             } else {
-                setUpSslHandlers(ctx, cd, certificate, jcd.getKey(), jcd.getPassphrase(), remoteCertificate);
+                // older clients do not know about the codec and will send NO_VERSION
+                final byte codecVersion = (byte) Math.min(req.codecVersion, TransportedCodec.VERSION);
+                setUpSslHandlers(ctx, cd, certificate, jcd.getKey(), jcd.getPassphrase(), remoteCertificate,
+                        codecVersion, req.reliable && jcd.isReliable());
             }
         } else if (pdOrAuth.isA() && msg instanceof AuthAccept) {
             // if the client receives an accept, it can setup the handlers (ssl or not, and domain handler)
 
             final ProviderDomain pd = pdOrAuth.getA();
 
+            final AuthAccept accept = (AuthAccept) msg;
+
             if (logger.isLoggable(Level.FINE)) {
-                logger.fine("Received (" + ctx.channel().remoteAddress() + ") an AuthAccept");
+                logger.fine("Received (" + ctx.channel().remoteAddress() + ") an AuthAccept with codec version "
+                        + accept.codecVersion + " and reliable mode " + accept.reliable);
             }
 
             final JbiProviderDomain jpd = pd.getJPD();
 
-            setUpSslHandlers(ctx, pd, jpd.getCertificate(), jpd.getKey(), jpd.getPassphrase(), jpd.getRemoteCertificate());
+            setUpSslHandlers(ctx, pd, jpd.getCertificate(), jpd.getKey(), jpd.getPassphrase(), jpd.getRemoteCertificate(),
+                    accept.codecVersion, accept.reliable);
 
         } else if (pdOrAuth.isA() && msg instanceof AuthRefuse) {
             // if the client receives a refuse, it simply notifies the future
@@ -328,44 +369,35 @@ public class AuthenticatorSSLHandler extends SimpleChannelInboundHandler<Authent
 
     private void setUpSslHandlers(final ChannelHandlerContext ctx, final AbstractDomain domain,
             final @Nullable String certificate, final @Nullable String key, final @Nullable String passphrase,
-            final @Nullable String remoteCertificate) throws SSLException {
+            final @Nullable String remoteCertificate, final byte codecVersion, final boolean reliable)
+            throws SSLException {
 
         // TODO could we use certificate only for auth and not encryption?
-        // TODO support openssl
+        final SslProvider provider = BcGatewaySslProvider.get(ctx.channel()).getNettyProvider();
         final SslHandler sslHandler;
         if (pdOrAuth.isB() && certificate != null && key != null) {
             // server side ssl, do not forget startTls so that our accept can be sent after the handler is added
 
-            final ServiceUnitDataHandler handler = domain.getSUHandler();
-
-            final SslContextBuilder builder = SslContextBuilder
-                    .forServer(ServiceUnitUtil.getFile(handler.getInstallRoot(), certificate),
-                            ServiceUnitUtil.getFile(handler.getInstallRoot(), key), passphrase)
-                    .sslProvider(SslProvider.JDK).ciphers(null, IdentityCipherSuiteFilter.INSTANCE).sessionCacheSize(0)
-                    .sessionTimeout(0);
-
-            if (remoteCertificate != null) {
-                builder.trustManager(ServiceUnitUtil.getFile(handler.getInstallRoot(), remoteCertificate))
-                        .clientAuth(ClientAuth.REQUIRE);
-            }
+            final SslContext sslContext = domain.getSslContext().get(SslContextCache.Configuration.forServer(provider,
+                    domain.getSUHandler().getInstallRoot(), certificate, key, passphrase, remoteCertificate));
 
             // until https://github.com/netty/netty/issues/5170 is accepted
             // we need to create the handler by hand
-            sslHandler = new SslHandler(builder.build().newEngine(ctx.alloc()), true);
+            sslHandler = new SslHandler(sslContext.newEngine(ctx.alloc()), true);
         } else if (pdOrAuth.isA() && remoteCertificate != null) {
             // client side
 
-            final String installRoot = domain.getSUHandler().getInstallRoot();
-            final SslContextBuilder builder = SslContextBuilder.forClient().sslProvider(SslProvider.JDK)
-                    .trustManager(ServiceUnitUtil.getFile(installRoot, remoteCertificate))
-                    .ciphers(null, IdentityCipherSuiteFilter.INSTANCE).sessionCacheSize(0).sessionTimeout(0);
+            final SslContext sslContext = domain.getSslContext().get(SslContextCache.Configuration.forClient(provider,
+                    domain.getSUHandler().getInstallRoot(), certificate, key, passphrase, remoteCertificate));
 
-            if (certificate != null && key != null) {
-                builder.keyManager(ServiceUnitUtil.getFile(installRoot, certificate),
-                        ServiceUnitUtil.getFile(installRoot, key), passphrase);
+            // the client only resumes a TLS session for the same peer host and port
+            final SocketAddress address = ctx.channel().remoteAddress();
+            if (address instanceof InetSocketAddress) {
+                final InetSocketAddress inetAddress = (InetSocketAddress) address;
+                sslHandler = sslContext.newHandler(ctx.alloc(), inetAddress.getHostString(), inetAddress.getPort());
+            } else {
+                sslHandler = sslContext.newHandler(ctx.alloc());
             }
-
-            sslHandler = builder.build().newHandler(ctx.alloc());
         } else {
             sslHandler = null;
         }
@@ -374,6 +406,11 @@ public class AuthenticatorSSLHandler extends SimpleChannelInboundHandler<Authent
         // For a client, it contains the provider domain name (it was set by the component)
         final String logName = logger.getName();
 
+        // must be known before the domain handler is installed: it resends what was not acknowledged
+        ctx.channel().attr(AbstractDomain.RELIABLE).set(reliable);
+        ctx.channel().attr(AbstractDomain.CODEC_VERSION).set(codecVersion);
+        ctx.channel().attr(DomainMetrics.KEY).set(domain.getMetrics());
+
         // let's replace the debug logger with something specific to this consumer
         ctx.pipeline().replace(HandlerConstants.LOG_DEBUG_HANDLER, HandlerConstants.LOG_DEBUG_HANDLER,
                 new LoggingHandler(logName, LogLevel.TRACE));
@@ -393,8 +430,7 @@ public class AuthenticatorSSLHandler extends SimpleChannelInboundHandler<Authent
                         authenticationFuture.setFailure(future.cause());
                     } else {
                         // I must keep the handler here until now in case there is an exception so that I can log it
-                        ctx.pipeline().replace(HandlerConstants.DOMAIN_HANDLER, HandlerConstants.DOMAIN_HANDLER,
-                                dhb.build(domain));
+                        installDomainHandler(ctx, domain);
                         authenticationFuture.setSuccess(ctx.channel());
                     }
                 }
@@ -405,22 +441,54 @@ public class AuthenticatorSSLHandler extends SimpleChannelInboundHandler<Authent
 
         if (pdOrAuth.isB()) {
             if (logger.isLoggable(Level.FINE)) {
-                logger.fine("Sending an Accept (" + ctx.channel().remoteAddress() + ")");
+                logger.fine("Sending an Accept (" + ctx.channel().remoteAddress() + ") with codec version "
+                        + codecVersion + " and reliable mode " + reliable);
             }
 
             // this must be sent after the ssh handler is replaced (when using ssl) so that we are ready to receive ssl data right away
             // but this must be sent before the domain handler is replaced (when not using ssl), because it will send
             // data and it must arrive AFTER our Accept
-            ctx.writeAndFlush(new AuthAccept());
+            ctx.writeAndFlush(new AuthAccept(codecVersion, reliable));
         }
 
+        // the Accept was already encoded (by the ObjectEncoder), and the client can decode both formats
+        enableCodec(ctx, codecVersion);
+
         // else it is done in the FutureListener
         if (sslHandler == null) {
-            ctx.pipeline().replace(HandlerConstants.DOMAIN_HANDLER, HandlerConstants.DOMAIN_HANDLER, dhb.build(domain));
+            installDomainHandler(ctx, domain);
             authenticationFuture.setSuccess(ctx.channel());
         }
     }
 
+    private void installDomainHandler(final ChannelHandlerContext ctx, final AbstractDomain domain) {
+        final WriteCoalescing coalescing = WriteCoalescing.get(ctx.channel());
+        if (coalescing.enabled) {
+            // before the domain handler so that everything it sends is coalesced
+            ctx.pipeline().addBefore(HandlerConstants.DOMAIN_HANDLER, HandlerConstants.WRITE_COALESCING_HANDLER,
+                    new WriteCoalescingHandler(coalescing, logger));
+        }
+        ctx.pipeline().replace(HandlerConstants.DOMAIN_HANDLER, HandlerConstants.DOMAIN_HANDLER, dhb.build(domain));
+    }
+
+    private void enableCodec(final ChannelHandlerContext ctx, final byte codecVersion) {
+        if (!TransportedCodec.isSupported(codecVersion)) {
+            logger.fine("The other side does not support the binary codec, Java serialization will be used");
+            return;
+        }
+
+        final ChannelHandler encoder = ctx.pipeline().get(HandlerConstants.CODEC_ENCODER);
+        if (encoder instanceof TransportedEncoder) {
+            ((TransportedEncoder) encoder).enable(codecVersion);
+        }
+
+        // big messages can be received from now on
+        final ChannelHandler decoder = ctx.pipeline().get(HandlerConstants.CODEC_DECODER);
+        if (decoder instanceof TransportedFrameDecoder) {
+            ((TransportedFrameDecoder) decoder).enableChunks();
+        }
+    }
+
     /**
      * inspired from {@link SslHandler}
      */
@@ -32,4 +32,10 @@ public interface HandlerConstants {
     public static final String SSL_HANDLER = "ssl";
 
     public static final String DOMAIN_HANDLER = "domain";
+
+    public static final String CODEC_ENCODER = "codec-encoder";
+
+    public static final String CODEC_DECODER = "codec-decoder";
+
+    public static final String WRITE_COALESCING_HANDLER = "write-coalescing";
 }
@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.bc.gateway.commons.AbstractDomain;
+import org.ow2.petals.bc.gateway.commons.DomainMetrics;
+import org.ow2.petals.bc.gateway.commons.messages.Transported;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatcher;
+import io.netty.handler.codec.serialization.ObjectEncoder;
+
+/**
+ * Sends the same message to several channels of a {@link ChannelGroup}: instead of letting the pipeline of each
+ * channel encode it, it is encoded once per encoding used by these channels (the version of {@link TransportedCodec}
+ * and the chunk size, or Java serialization) and the frames are written as a {@link ByteBuf}, that the encoders let
+ * through.
+ * 
+ * Each channel gets a {@link ByteBuf#retainedDuplicate()} of it from the {@link ChannelGroup}, which releases it once
+ * written to all of them.
+ * 
+ * The {@link TransportedCodec} is used in its standalone mode as the frames can't depend on what was already sent on
+ * a given channel.
+ */
+public final class TransportedBroadcast {
+
+    private final ChannelGroup group;
+
+    /**
+     * One per encoding
+     */
+    private final List<Frames> frames = new ArrayList<>();
+
+    private static final class Frames {
+
+        private final ByteBuf frames;
+
+        /**
+         * The channels using the encoding of the frames
+         */
+        private final Set<Channel> channels;
+
+        private Frames(final ByteBuf frames, final Set<Channel> channels) {
+            this.frames = frames;
+            this.channels = channels;
+        }
+    }
+
+    private TransportedBroadcast(final ChannelGroup group) {
+        this.group = group;
+    }
+
+    /**
+     * Must be called in a way that the channels of the group do not receive other messages concurrently (as it would
+     * be the case with {@link Channel#writeAndFlush(Object)}, the order is kept for the messages sent from a given
+     * thread).
+     */
+    public static void writeAndFlush(final ChannelGroup group, final Transported msg, final ChannelMatcher matcher)
+            throws IOException {
+        encode(group, msg, matcher).writeAndFlush();
+    }
+
+    /**
+     * Encodes the message for the channels of the group matched now, without writing anything: either
+     * {@link #writeAndFlush()} or {@link #release()} must be called on the result.
+     * 
+     * @throws IOException
+     *             if the message couldn't be encoded for one of the channels, in which case nothing has to be released
+     */
+    public static TransportedBroadcast encode(final ChannelGroup group, final Transported msg,
+            final ChannelMatcher matcher) throws IOException {
+        final Map<Encoding, Set<Channel>> byEncoding = new HashMap<>();
+        for (final Channel c : group) {
+            assert c != null;
+            if (matcher.matches(c)) {
+                final Encoding encoding = Encoding.of(c, msg);
+                Set<Channel> channels = byEncoding.get(encoding);
+                if (channels == null) {
+                    channels = new HashSet<>();
+                    byEncoding.put(encoding, channels);
+                }
+                channels.add(c);
+            }
+        }
+
+        final TransportedBroadcast res = new TransportedBroadcast(group);
+        try {
+            for (final Entry<Encoding, Set<Channel>> e : byEncoding.entrySet()) {
+                final Set<Channel> channels = e.getValue();
+                // all the channels of the group use the same allocator and share the metrics of the domain
+                final Channel first = channels.iterator().next();
+                assert first != null;
+                res.frames.add(new Frames(
+                        e.getKey().encode(first.alloc(), msg, DomainMetrics.get(first), channels.size()), channels));
+            }
+        } catch (final IOException e) {
+            res.release();
+            throw e;
+        } catch (final RuntimeException e) {
+            res.release();
+            throw new IOException(e);
+        }
+        return res;
+    }
+
+    public void writeAndFlush() {
+        for (final Frames f : frames) {
+            // this takes care of releasing the frames
+            group.writeAndFlush(f.frames, new ChannelMatcher() {
+                @Override
+                public boolean matches(final @Nullable Channel channel) {
+                    return f.channels.contains(channel);
+                }
+            });
+        }
+        frames.clear();
+    }
+
+    public void release() {
+        for (final Frames f : frames) {
+            f.frames.release();
+        }
+        frames.clear();
+    }
+
+    private static final class Encoding {
+
+        private static final Encoding SERIALIZATION = new Encoding(TransportedCodec.NO_VERSION, 0);
+
+        private final byte version;
+
+        /**
+         * Only relevant from {@link TransportedCodec#CHUNKED_VERSION}
+         */
+        private final int chunkSize;
+
+        private Encoding(final byte version, final int chunkSize) {
+            this.version = version;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * The same choices as the pipeline of the channel (see {@link TransportedEncoder}).
+         */
+        public static Encoding of(final Channel c, final Transported msg) {
+            final Byte version = c.attr(AbstractDomain.CODEC_VERSION).get();
+            if (version == null || !TransportedCodec.isSupported(version.byteValue())
+                    || !TransportedCodec.isSupported(msg)) {
+                return SERIALIZATION;
+            } else if (version.byteValue() < TransportedCodec.CHUNKED_VERSION) {
+                return new Encoding(version.byteValue(), 0);
+            } else {
+                return new Encoding(version.byteValue(), TransportedFraming.get(c).chunkSize);
+            }
+        }
+
+        /**
+         * The metrics are updated as if the message was encoded for each of the channels, but the encoding time is
+         * only counted once.
+         */
+        public ByteBuf encode(final ByteBufAllocator alloc, final Transported msg,
+                final @Nullable DomainMetrics metrics, final int nbChannels) throws IOException {
+            if (version == TransportedCodec.NO_VERSION) {
+                return serialize(msg);
+            }
+
+            final CompositeByteBuf message = alloc.compositeBuffer(Integer.MAX_VALUE);
+            try {
+                final long start = System.nanoTime();
+                TransportedCodec.newStandalone().encode(msg, message, version);
+                if (metrics != null) {
+                    metrics.encoded(message.readableBytes(), System.nanoTime() - start);
+                    for (int i = 1; i < nbChannels; i++) {
+                        metrics.encoded(message.readableBytes(), 0);
+                    }
+                }
+
+                final List<Object> frames = new ArrayList<>();
+                TransportedEncoder.frame(alloc, message, version, chunkSize, frames);
+                final CompositeByteBuf res = alloc.compositeBuffer(Integer.MAX_VALUE);
+                for (final Object frame : frames) {
+                    res.addComponent(true, (ByteBuf) frame);
+                }
+                return res;
+            } finally {
+                message.release();
+            }
+        }
+
+        /**
+         * Exactly as the {@link ObjectEncoder} of the pipelines does it.
+         */
+        private static ByteBuf serialize(final Transported msg) throws IOException {
+            final EmbeddedChannel encoder = new EmbeddedChannel(new ObjectEncoder());
+            try {
+                encoder.writeOutbound(msg);
+                final ByteBuf res = encoder.readOutbound();
+                if (res == null) {
+                    throw new IOException("Nothing was serialized for " + msg);
+                }
+                return res;
+            } catch (final RuntimeException e) {
+                throw new IOException(e);
+            } finally {
+                encoder.finishAndReleaseAll();
+            }
+        }
+
+        @Override
+        public boolean equals(final @Nullable Object obj) {
+            if (!(obj instanceof Encoding)) {
+                return false;
+            }
+            final Encoding other = (Encoding) obj;
+            return version == other.version && chunkSize == other.chunkSize;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * version + chunkSize;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.bc.gateway.commons.DomainMetrics;
+import org.ow2.petals.bc.gateway.commons.messages.Transported;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.serialization.ClassResolver;
+import io.netty.handler.codec.serialization.ObjectEncoder;
+
+/**
+ * Encodes the {@link Transported} messages with {@link TransportedCodec} once {@link #enable(byte)} has been called
+ * by {@link AuthenticatorSSLHandler} (i.e., if the other side supports it).
+ * 
+ * Until then, or for messages not supported by the codec, the messages continue to the {@link ObjectEncoder} that
+ * must be before it in the pipeline.
+ * 
+ * Frames are prefixed by their length as {@link ObjectEncoder} does, see {@link TransportedFrameDecoder}.
+ * 
+ * Messages are encoded in a {@link CompositeByteBuf} (so that a big message is never in one contiguous buffer) and,
+ * if the other side supports it, those bigger than the chunk size are sent as a sequence of chunk frames sharing its
+ * components.
+ * 
+ * The size of the encoded messages and the time spent encoding them are recorded in the {@link DomainMetrics} of the
+ * channel.
+ */
+public class TransportedEncoder extends MessageToMessageEncoder<Transported> {
+
+    private static final int LENGTH_FIELD_SIZE = 4;
+
+    private final TransportedCodec codec;
+
+    private final int chunkSize;
+
+    /**
+     * Only accessed from the event loop of the channel.
+     */
+    private byte version = TransportedCodec.NO_VERSION;
+
+    public TransportedEncoder(final ClassResolver cr, final int chunkSize, final Logger logger) {
+        super(Transported.class);
+        this.codec = new TransportedCodec(cr, logger);
+        this.chunkSize = chunkSize;
+    }
+
+    public void enable(final byte version) {
+        assert TransportedCodec.isSupported(version);
+        this.version = version;
+    }
+
+    @Override
+    public boolean acceptOutboundMessage(final @Nullable Object msg) throws Exception {
+        return version != TransportedCodec.NO_VERSION && TransportedCodec.isSupported(msg);
+    }
+
+    @Override
+    protected void encode(final @Nullable ChannelHandlerContext ctx, final @Nullable Transported msg,
+            final @Nullable List<Object> out) throws Exception {
+        assert ctx != null;
+        assert msg != null;
+        assert out != null;
+
+        final CompositeByteBuf message = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+        try {
+            final long start = System.nanoTime();
+            codec.encode(msg, message, version);
+            final DomainMetrics metrics = DomainMetrics.get(ctx.channel());
+            if (metrics != null) {
+                metrics.encoded(message.readableBytes(), System.nanoTime() - start);
+            }
+
+            frame(ctx.alloc(), message, version, chunkSize, out);
+        } finally {
+            message.release();
+        }
+    }
+
+    /**
+     * Adds to out the frames for an encoded message (either one frame or a sequence of chunk frames) sharing its
+     * content: the message is not released.
+     */
+    static void frame(final ByteBufAllocator alloc, final ByteBuf message, final byte version, final int chunkSize,
+            final List<Object> out) {
+        if (version < TransportedCodec.CHUNKED_VERSION || message.readableBytes() <= chunkSize) {
+            final ByteBuf header = alloc.buffer(LENGTH_FIELD_SIZE);
+            header.writeInt(message.readableBytes());
+            out.add(alloc.compositeBuffer(2).addComponents(true, header, message.retain()));
+            return;
+        }
+
+        while (message.isReadable()) {
+            final int length = Math.min(chunkSize, message.readableBytes());
+            final boolean last = length == message.readableBytes();
+            final ByteBuf header = alloc.buffer(LENGTH_FIELD_SIZE + TransportedCodec.CHUNK_HEADER_SIZE);
+            header.writeInt(TransportedCodec.CHUNK_HEADER_SIZE + length);
+            TransportedCodec.writeChunkHeader(header, version, last);
+            out.add(alloc.compositeBuffer(2).addComponents(true, header, message.readRetainedSlice(length)));
+        }
+    }
+}
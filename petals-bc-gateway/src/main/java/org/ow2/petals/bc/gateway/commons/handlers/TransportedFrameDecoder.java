@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import java.io.IOException;
+
+import javax.xml.namespace.QName;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.bc.gateway.commons.DomainMetrics;
+import org.ow2.petals.bc.gateway.commons.messages.Transported;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.serialization.ClassResolver;
+import io.netty.handler.codec.serialization.ObjectDecoder;
+import io.netty.handler.codec.serialization.ObjectEncoder;
+
+/**
+ * Splits the received bytes in frames (prefixed by their length, as written by both {@link ObjectEncoder} and
+ * {@link TransportedEncoder}) and decodes those written by {@link TransportedEncoder}.
+ * 
+ * The other frames are passed as is (with their length) to the {@link ObjectDecoder} that must follow it in the
+ * pipeline: this way we don't need to know when the other side switches from one to the other.
+ * 
+ * Chunks are only accepted once the other side was authenticated (see {@link #enableChunks()}): until then, a message
+ * can't be bigger than {@link #MAX_FRAME_SIZE}. They are accumulated (without copy) until the last one is received and
+ * the message can be decoded. If the chunks of one message exceed the reassembly budget of the channel, they are
+ * dropped, a {@link TooLongFrameException} is raised and the channel is closed: the other side may have interned
+ * {@link QName}s in this message, and the next messages could not be decoded correctly without them.
+ * 
+ * The chunks are not decoded as they arrive: a message is delivered to the NMR as a complete exchange anyway, so the
+ * memory needed is proportional to the size of the message on both sides (but never in one contiguous buffer), and the
+ * reassembly budget is the size of the biggest message that can be received.
+ * 
+ * The size of the decoded messages and the time spent decoding them are recorded in the {@link DomainMetrics} of the
+ * channel.
+ */
+public class TransportedFrameDecoder extends LengthFieldBasedFrameDecoder {
+
+    /**
+     * Same as the default of {@link ObjectDecoder}
+     */
+    public static final int MAX_FRAME_SIZE = 1048576;
+
+    private static final int LENGTH_FIELD_SIZE = 4;
+
+    /**
+     * The biggest chunk that fits in a frame
+     */
+    public static final int MAX_CHUNK_SIZE = MAX_FRAME_SIZE - TransportedCodec.CHUNK_HEADER_SIZE;
+
+    private final TransportedCodec codec;
+
+    private final int maxReassemblySize;
+
+    /**
+     * Only accessed from the event loop of the channel.
+     */
+    private @Nullable CompositeByteBuf chunks;
+
+    /**
+     * Only accessed from the event loop of the channel.
+     */
+    private boolean chunksEnabled = false;
+
+    /**
+     * Once the channel is closed because of an invalid chunk, what was already received is dropped.
+     * 
+     * Only accessed from the event loop of the channel.
+     */
+    private boolean failed = false;
+
+    public TransportedFrameDecoder(final ClassResolver cr, final int maxReassemblySize) {
+        super(MAX_FRAME_SIZE, 0, LENGTH_FIELD_SIZE, 0, 0);
+        this.codec = new TransportedCodec(cr);
+        this.maxReassemblySize = maxReassemblySize;
+    }
+
+    /**
+     * Called by {@link AuthenticatorSSLHandler} once the other side is authenticated.
+     */
+    public void enableChunks() {
+        this.chunksEnabled = true;
+    }
+
+    @Override
+    protected @Nullable Object decode(final @Nullable ChannelHandlerContext ctx, final @Nullable ByteBuf in)
+            throws Exception {
+        assert ctx != null;
+        assert in != null;
+        if (failed) {
+            in.skipBytes(in.readableBytes());
+            return null;
+        }
+        final ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+        if (frame == null) {
+            return null;
+        }
+
+        if (frame.readableBytes() > LENGTH_FIELD_SIZE
+                && frame.getByte(frame.readerIndex() + LENGTH_FIELD_SIZE) == TransportedCodec.MAGIC) {
+            frame.skipBytes(LENGTH_FIELD_SIZE);
+            if (TransportedCodec.isChunk(frame)) {
+                return addChunk(ctx, frame);
+            }
+            try {
+                return decodeMessage(ctx, frame);
+            } finally {
+                frame.release();
+            }
+        }
+
+        // this one is for the ObjectDecoder
+        return frame;
+    }
+
+    /**
+     * @return the decoded message if it was the last chunk
+     */
+    private @Nullable Object addChunk(final ChannelHandlerContext ctx, final ByteBuf frame) throws Exception {
+        if (!chunksEnabled) {
+            frame.release();
+            failed = true;
+            ctx.close();
+            throw new CorruptedFrameException("Chunk received before the authentication of the other side");
+        }
+
+        final boolean last = TransportedCodec.isLastChunk(frame);
+        frame.skipBytes(TransportedCodec.CHUNK_HEADER_SIZE);
+
+        CompositeByteBuf chunks = this.chunks;
+        if (chunks == null) {
+            chunks = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+            this.chunks = chunks;
+        }
+
+        final long size = (long) chunks.readableBytes() + frame.readableBytes();
+        if (size > maxReassemblySize) {
+            frame.release();
+            releaseChunks();
+            failed = true;
+            // the QNames interned in the dropped message would be missing for the next ones
+            ctx.close();
+            throw new TooLongFrameException(
+                    "Chunked message exceeds the reassembly budget of the channel (" + maxReassemblySize + " bytes)");
+        }
+
+        // the composite now owns the frame
+        chunks.addComponent(true, frame);
+
+        if (!last) {
+            return null;
+        }
+
+        this.chunks = null;
+        try {
+            return decodeMessage(ctx, chunks);
+        } finally {
+            chunks.release();
+        }
+    }
+
+    private Transported decodeMessage(final ChannelHandlerContext ctx, final ByteBuf message) throws IOException {
+        final int bytes = message.readableBytes();
+        final long start = System.nanoTime();
+        final Transported decoded = codec.decode(message);
+        final DomainMetrics metrics = DomainMetrics.get(ctx.channel());
+        if (metrics != null) {
+            metrics.decoded(bytes, System.nanoTime() - start);
+        }
+        return decoded;
+    }
+
+    private void releaseChunks() {
+        final CompositeByteBuf chunks = this.chunks;
+        if (chunks != null) {
+            this.chunks = null;
+            chunks.release();
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(final @Nullable ChannelHandlerContext ctx) throws Exception {
+        releaseChunks();
+        super.handlerRemoved0(ctx);
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import org.ow2.petals.bc.gateway.utils.BcGatewayJbiConstants;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * How big messages are split in chunks and reassembled on a channel (see {@link TransportedEncoder} and
+ * {@link TransportedFrameDecoder}).
+ * 
+ * It is given by the component to the channels it creates with {@link #KEY}.
+ */
+public class TransportedFraming {
+
+    public static final AttributeKey<TransportedFraming> KEY = AttributeKey.valueOf(TransportedFraming.class,
+            "framing");
+
+    public static final TransportedFraming DEFAULT = new TransportedFraming(
+            BcGatewayJbiConstants.DEFAULT_TRANSPORT_CHUNK_SIZE,
+            BcGatewayJbiConstants.DEFAULT_TRANSPORT_MAX_REASSEMBLY_SIZE);
+
+    /**
+     * Messages whose frame is bigger than that are sent in chunks of this size.
+     */
+    public final int chunkSize;
+
+    /**
+     * The maximum size of the chunks of one message kept in memory at a given time on one channel: as a message is
+     * only decoded once all its chunks are received, it is also the size of the biggest message that can be received.
+     */
+    public final int maxReassemblySize;
+
+    public TransportedFraming(final int chunkSize, final int maxReassemblySize) {
+        this.chunkSize = chunkSize;
+        this.maxReassemblySize = maxReassemblySize;
+    }
+
+    public static TransportedFraming get(final Channel channel) {
+        final TransportedFraming framing = channel.attr(KEY).get();
+        return framing != null ? framing : DEFAULT;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import org.ow2.petals.bc.gateway.utils.BcGatewayJbiConstants;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * If and how the flushes are consolidated on a channel (see {@link WriteCoalescingHandler}).
+ * 
+ * It is given by the component to the channels it creates with {@link #KEY}.
+ */
+public class WriteCoalescing {
+
+    public static final AttributeKey<WriteCoalescing> KEY = AttributeKey.valueOf(WriteCoalescing.class,
+            "write-coalescing");
+
+    public static final WriteCoalescing DISABLED = new WriteCoalescing(false,
+            BcGatewayJbiConstants.DEFAULT_WRITE_COALESCING_MAX_FLUSHES,
+            BcGatewayJbiConstants.DEFAULT_WRITE_COALESCING_DELAY);
+
+    public final boolean enabled;
+
+    /**
+     * After this number of consolidated flushes, the channel is flushed right away.
+     */
+    public final int maxFlushes;
+
+    /**
+     * How long (in microseconds) the flushes are delayed: with 0, they are only consolidated until the end of the
+     * current event loop task.
+     */
+    public final int delay;
+
+    public WriteCoalescing(final boolean enabled, final int maxFlushes, final int delay) {
+        this.enabled = enabled;
+        this.maxFlushes = maxFlushes;
+        this.delay = delay;
+    }
+
+    public static WriteCoalescing get(final Channel channel) {
+        final WriteCoalescing coalescing = channel.attr(KEY).get();
+        return coalescing != null ? coalescing : DISABLED;
+    }
+}
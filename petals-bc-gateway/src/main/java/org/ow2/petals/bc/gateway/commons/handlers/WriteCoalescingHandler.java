@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.commons.log.Level;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.Future;
+
+/**
+ * Consolidates the flushes of the messages written on a channel so that many small messages are sent with only one
+ * syscall (and one SSL record).
+ * 
+ * Flushes are delayed until the end of the current read, or else until the end of the current event loop task (or
+ * after {@link WriteCoalescing#delay} microseconds if it is set), but no more than {@link WriteCoalescing#maxFlushes}
+ * flushes are consolidated. It keeps statistics about the number of messages sent with each real flush.
+ * 
+ * It is only added once the channel is authenticated so that the authentication is not impacted.
+ */
+public class WriteCoalescingHandler extends ChannelDuplexHandler {
+
+    private final WriteCoalescing coalescing;
+
+    private final Logger logger;
+
+    private final Stats stats = new Stats();
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            scheduledFlush = null;
+            final ChannelHandlerContext ctx = WriteCoalescingHandler.this.ctx;
+            // if a read is in progress, it will be flushed at the end of it
+            if (ctx != null && pendingFlushes > 0 && !readInProgress) {
+                flushNow(ctx);
+            }
+        }
+    };
+
+    private @Nullable ChannelHandlerContext ctx;
+
+    private @Nullable Future<?> scheduledFlush;
+
+    private boolean readInProgress = false;
+
+    private int pendingWrites = 0;
+
+    private int pendingFlushes = 0;
+
+    public WriteCoalescingHandler(final WriteCoalescing coalescing, final Logger logger) {
+        this.coalescing = coalescing;
+        this.logger = logger;
+    }
+
+    /**
+     * @return the statistics of the channel, or <code>null</code> if its flushes are not consolidated
+     */
+    public static @Nullable Stats getStats(final Channel channel) {
+        final WriteCoalescingHandler handler = channel.pipeline().get(WriteCoalescingHandler.class);
+        return handler != null ? handler.stats : null;
+    }
+
+    @Override
+    public void handlerAdded(final @Nullable ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(final @Nullable ChannelHandlerContext ctx) throws Exception {
+        assert ctx != null;
+        flushIfNeeded(ctx);
+        this.ctx = null;
+    }
+
+    @Override
+    public void write(final @Nullable ChannelHandlerContext ctx, final @Nullable Object msg,
+            final @Nullable ChannelPromise promise) throws Exception {
+        assert ctx != null;
+        pendingWrites++;
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(final @Nullable ChannelHandlerContext ctx) throws Exception {
+        assert ctx != null;
+        if (++pendingFlushes >= coalescing.maxFlushes) {
+            flushNow(ctx);
+        } else if (!readInProgress && scheduledFlush == null) {
+            if (coalescing.delay > 0) {
+                scheduledFlush = ctx.executor().schedule(flushTask, coalescing.delay, TimeUnit.MICROSECONDS);
+            } else {
+                scheduledFlush = ctx.executor().submit(flushTask);
+            }
+        }
+    }
+
+    @Override
+    public void channelRead(final @Nullable ChannelHandlerContext ctx, final @Nullable Object msg) throws Exception {
+        assert ctx != null;
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(final @Nullable ChannelHandlerContext ctx) throws Exception {
+        assert ctx != null;
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(final @Nullable ChannelHandlerContext ctx) throws Exception {
+        assert ctx != null;
+        if (!ctx.channel().isWritable()) {
+            // let's try to empty the outbound buffer as soon as possible
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(final @Nullable ChannelHandlerContext ctx) throws Exception {
+        assert ctx != null;
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Write coalescing statistics (" + ctx.channel().remoteAddress() + "): " + stats);
+        }
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(final @Nullable ChannelHandlerContext ctx, final @Nullable Throwable cause)
+            throws Exception {
+        assert ctx != null;
+        flushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(final @Nullable ChannelHandlerContext ctx, final @Nullable ChannelPromise promise)
+            throws Exception {
+        assert ctx != null;
+        flushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(final @Nullable ChannelHandlerContext ctx, final @Nullable ChannelPromise promise)
+            throws Exception {
+        assert ctx != null;
+        flushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    private void flushIfNeeded(final ChannelHandlerContext ctx) {
+        if (pendingFlushes > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(final ChannelHandlerContext ctx) {
+        final Future<?> scheduledFlush = this.scheduledFlush;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+        if (pendingWrites > 0) {
+            stats.record(pendingWrites);
+        }
+        pendingWrites = 0;
+        pendingFlushes = 0;
+        ctx.flush();
+    }
+
+    /**
+     * Only updated from the event loop of the channel, but can be read from anywhere.
+     */
+    public static class Stats {
+
+        /**
+         * Bucket i counts the flushes of between 2^i and 2^(i+1)-1 messages
+         */
+        private final AtomicLongArray histogram = new AtomicLongArray(Integer.SIZE);
+
+        private final AtomicLong flushes = new AtomicLong();
+
+        private final AtomicLong messages = new AtomicLong();
+
+        private volatile int maxBatchSize = 0;
+
+        private void record(final int batchSize) {
+            histogram.incrementAndGet(31 - Integer.numberOfLeadingZeros(batchSize));
+            flushes.incrementAndGet();
+            messages.addAndGet(batchSize);
+            if (batchSize > maxBatchSize) {
+                maxBatchSize = batchSize;
+            }
+        }
+
+        public long getFlushes() {
+            return flushes.get();
+        }
+
+        public long getMessages() {
+            return messages.get();
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        /**
+         * @return the number of flushes by batch size: bucket i counts the flushes of between 2^i and 2^(i+1)-1
+         *         messages
+         */
+        public long[] getBatchSizeHistogram() {
+            int last = histogram.length() - 1;
+            while (last > 0 && histogram.get(last) == 0) {
+                last--;
+            }
+            final long[] res = new long[last + 1];
+            for (int i = 0; i <= last; i++) {
+                res[i] = histogram.get(i);
+            }
+            return res;
+        }
+
+        @Override
+        public String toString() {
+            final long flushes = getFlushes();
+            final long messages = getMessages();
+            final StringBuilder sb = new StringBuilder();
+            sb.append(messages).append(" messages in ").append(flushes).append(" flushes (mean batch size ")
+                    .append(flushes > 0 ? String.format("%.2f", (double) messages / flushes) : "-")
+                    .append(", max batch size ").append(getMaxBatchSize()).append(", histogram");
+            final long[] histogram = getBatchSizeHistogram();
+            for (int i = 0; i < histogram.length; i++) {
+                sb.append(i == 0 ? " " : ", ").append(1 << i).append("+: ").append(histogram[i]);
+            }
+            return sb.append(')').toString();
+        }
+    }
+}
@@ -46,6 +46,11 @@ public class ServiceKey implements Serializable {
      */
     public final QName interfaceName;
 
+    /**
+     * Cached as the keys are looked up often (0 if not computed yet)
+     */
+    private transient int hash;
+
     public ServiceKey(final @Nullable String endpointName, final QName service, final QName interfaceName) {
         this.endpointName = endpointName;
         this.service = service;
@@ -54,13 +59,17 @@ public class ServiceKey implements Serializable {
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        final String _endpointName = this.endpointName;
-        result = prime * result + ((_endpointName == null) ? 0 : _endpointName.hashCode());
-        result = prime * result + ((interfaceName == null) ? 0 : interfaceName.hashCode());
-        final QName _service = this.service;
-        result = prime * result + ((_service == null) ? 0 : _service.hashCode());
+        int result = this.hash;
+        if (result == 0) {
+            final int prime = 31;
+            result = 1;
+            final String _endpointName = this.endpointName;
+            result = prime * result + ((_endpointName == null) ? 0 : _endpointName.hashCode());
+            result = prime * result + ((interfaceName == null) ? 0 : interfaceName.hashCode());
+            final QName _service = this.service;
+            result = prime * result + ((_service == null) ? 0 : _service.hashCode());
+            this.hash = result;
+        }
         return result;
     }
 
@@ -87,5 +96,14 @@ public class ServiceKey implements Serializable {
         return true;
     }
 
+    /**
+     * Used to identify the service in logs and metrics: <code>{ns}service[:endpoint] ({ns}interface)</code>
+     */
+    @Override
+    public String toString() {
+        final String _endpointName = this.endpointName;
+        return service + (_endpointName == null ? "" : ":" + _endpointName) + " (" + interfaceName + ")";
+    }
+
 
 }
\ No newline at end of file
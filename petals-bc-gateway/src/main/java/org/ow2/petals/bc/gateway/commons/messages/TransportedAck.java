@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.messages;
+
+import org.ow2.petals.bc.gateway.commons.messages.Transported.TransportedToConsumer;
+import org.ow2.petals.bc.gateway.commons.messages.Transported.TransportedToProvider;
+
+/**
+ * Sent back for each {@link TransportedMessage} received when the reliable mode is enabled on a connection: until it
+ * is received, the sender keeps the message to send it again if the connection is lost.
+ */
+public class TransportedAck implements TransportedToProvider, TransportedToConsumer {
+
+    private static final long serialVersionUID = 2706417623571866113L;
+
+    public final String exchangeId;
+
+    public final int step;
+
+    public TransportedAck(final String exchangeId, final int step) {
+        this.exchangeId = exchangeId;
+        this.step = step;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.messages;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Bytes received in a frame, kept in segments of bounded size so that big contents don't need one big contiguous
+ * array.
+ */
+final class TransportedBytes implements Serializable {
+
+    private static final long serialVersionUID = -3953524925016306155L;
+
+    static final int SEGMENT_SIZE = 65536;
+
+    private final byte[][] segments;
+
+    private TransportedBytes(final byte[][] segments) {
+        this.segments = segments;
+    }
+
+    static TransportedBytes wrap(final byte[] bytes) {
+        return new TransportedBytes(new byte[][] { bytes });
+    }
+
+    static TransportedBytes read(final ByteBuf in, final int length) {
+        final byte[][] segments = new byte[(length + SEGMENT_SIZE - 1) / SEGMENT_SIZE][];
+        for (int i = 0; i < segments.length; i++) {
+            final byte[] segment = new byte[Math.min(SEGMENT_SIZE, length - i * SEGMENT_SIZE)];
+            in.readBytes(segment);
+            segments[i] = segment;
+        }
+        return new TransportedBytes(segments);
+    }
+
+    InputStream newInputStream() {
+        final List<InputStream> streams = new ArrayList<>(segments.length);
+        for (final byte[] segment : segments) {
+            streams.add(new ByteArrayInputStream(segment));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    void writeTo(final OutputStream out) throws IOException {
+        for (final byte[] segment : segments) {
+            out.write(segment);
+        }
+    }
+}
@@ -0,0 +1,898 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.messaging.NormalizedMessage;
+import javax.security.auth.Subject;
+import javax.xml.namespace.QName;
+import javax.xml.transform.Source;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.commons.log.FlowAttributes;
+import org.ow2.petals.component.framework.api.message.Exchange;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.serialization.ClassResolver;
+import io.netty.handler.codec.serialization.ObjectEncoder;
+import io.netty.util.CharsetUtil;
+import jakarta.activation.DataHandler;
+
+/**
+ * Binary format for the {@link Transported} messages exchanged between domains once the authentication is done.
+ * 
+ * The structure of the messages (ids, steps, {@link ServiceKey}s, flow attributes, status, etc) is written by hand with
+ * varint lengths, and {@link QName}s are interned for the whole life of the connection. The XML contents of the
+ * messages, faults and propagated descriptions are streamed as UTF-8 directly in the frame and are received as bytes
+ * that are only parsed when needed (see {@link TransportedNormalizedMessage} and {@link TransportedDocument}). Only
+ * the parts of the exchanges whose implementation we don't know (errors, properties values and security subjects) are
+ * still written with Java serialization, all together in one stream at the end of the frame.
+ * 
+ * Each frame starts with {@link #MAGIC} and the version of the format: it can't be confused with what is written by
+ * {@link ObjectEncoder} (that starts with the version of the serialization stream), so both formats can be received on
+ * the same connection.
+ * 
+ * From {@link #CHUNKED_VERSION}, a message bigger than a given size can be sent as a sequence of chunk frames (see
+ * {@link #writeChunkHeader(ByteBuf, byte, boolean)}) whose contents, concatenated, form the frame of the message.
+ * 
+ * From {@link #DELTA_VERSION}, the {@link TransportedPropagations} carry their epoch and version, and the
+ * {@link TransportedPropagationsDelta} and {@link TransportedPropagationsResync} can be exchanged.
+ * 
+ * Because of the interning, there must be one instance per direction and per connection, and frames must be decoded
+ * in the order they were encoded.
+ */
+public class TransportedCodec {
+
+    public static final byte MAGIC = (byte) 0xBC;
+
+    /**
+     * The version written by this codec, it is announced during authentication.
+     */
+    public static final byte VERSION = 3;
+
+    /**
+     * The first version supporting chunks.
+     */
+    public static final byte CHUNKED_VERSION = 2;
+
+    /**
+     * The first version supporting versioned propagations and their deltas.
+     */
+    public static final byte DELTA_VERSION = 3;
+
+    /**
+     * Means that the other side only understands {@link ObjectEncoder}.
+     */
+    public static final byte NO_VERSION = 0;
+
+    private static final byte TYPE_MESSAGE = 1;
+
+    private static final byte TYPE_EXCEPTION = 2;
+
+    private static final byte TYPE_PROPAGATIONS = 3;
+
+    private static final byte TYPE_CHUNK = 4;
+
+    private static final byte TYPE_LAST_CHUNK = 5;
+
+    /**
+     * Only sent to peers that negotiated the reliable mode (which implies they know about it).
+     */
+    private static final byte TYPE_ACK = 6;
+
+    private static final byte TYPE_PROPAGATIONS_DELTA = 7;
+
+    private static final byte TYPE_PROPAGATIONS_RESYNC = 8;
+
+    /**
+     * {@link #MAGIC}, version and type
+     */
+    public static final int CHUNK_HEADER_SIZE = 3;
+
+    private static final byte STATUS_ACTIVE = 0;
+
+    private static final byte STATUS_DONE = 1;
+
+    private static final byte STATUS_ERROR = 2;
+
+    private static final byte BOOLEAN_NULL = 0;
+
+    private static final byte BOOLEAN_FALSE = 1;
+
+    private static final byte BOOLEAN_TRUE = 2;
+
+    /**
+     * Length written in place of a missing XML content
+     */
+    private static final int NO_CONTENT = -1;
+
+    private static final int QNAME_NULL = 0;
+
+    /**
+     * The {@link QName} follows and is not interned (the table is full)
+     */
+    private static final int QNAME_INLINE = 1;
+
+    /**
+     * The {@link QName} follows and takes the next id in the table
+     */
+    private static final int QNAME_INTERNED = 2;
+
+    /**
+     * Any value from this one is the id of an already interned {@link QName} (shifted by this offset)
+     */
+    private static final int QNAME_REF_OFFSET = 3;
+
+    /**
+     * Bound the memory used on both sides for interning
+     */
+    private static final int MAX_INTERNED_QNAMES = 4096;
+
+    /**
+     * <code>null</code> for a standalone codec, that only encodes
+     */
+    private final @Nullable ClassResolver classResolver;
+
+    /**
+     * If the {@link QName}s are interned (for the current channel): never the case for a standalone codec
+     */
+    private final boolean intern;
+
+    /**
+     * Used to log what is not transported, <code>null</code> if only used to decode or for a standalone codec (which
+     * doesn't encode exchanges)
+     */
+    private final @Nullable Logger logger;
+
+    private final Map<QName, Integer> writtenQNames = new HashMap<>();
+
+    /**
+     * The {@link QName}s interned during the frame being encoded, so that we can forget them if the encoding fails
+     * (the other side will never see them).
+     */
+    private final List<QName> pendingQNames = new ArrayList<>();
+
+    private final List<QName> readQNames = new ArrayList<>();
+
+    public TransportedCodec(final ClassResolver classResolver) {
+        this(classResolver, true, null);
+    }
+
+    public TransportedCodec(final ClassResolver classResolver, final Logger logger) {
+        this(classResolver, true, logger);
+    }
+
+    private TransportedCodec(final @Nullable ClassResolver classResolver, final boolean intern,
+            final @Nullable Logger logger) {
+        this.classResolver = classResolver;
+        this.intern = intern;
+        this.logger = logger;
+    }
+
+    /**
+     * A codec that does not depend on what was already sent on a channel (i.e., all the {@link QName}s are written
+     * inline): the messages it encodes can be written as is on any channel using the same version, for example to
+     * broadcast them.
+     * 
+     * It can't decode.
+     */
+    public static TransportedCodec newStandalone() {
+        return new TransportedCodec(null, false, null);
+    }
+
+    public static boolean isSupported(final @Nullable Object msg) {
+        return msg instanceof TransportedMessage || msg instanceof TransportedException
+                || msg instanceof TransportedPropagations || msg instanceof TransportedAck
+                || msg instanceof TransportedPropagationsDelta || msg instanceof TransportedPropagationsResync;
+    }
+
+    public static boolean isSupported(final byte version) {
+        return version > NO_VERSION && version <= VERSION;
+    }
+
+    /**
+     * @param version
+     *            the version negotiated with the other side, the format of the messages themselves is the same for all
+     *            of them, except for the {@link TransportedPropagations} (and the messages only known from a given
+     *            version can't be sent with an older one)
+     */
+    public void encode(final Transported msg, final ByteBuf out, final byte version) throws IOException {
+        assert isSupported(version);
+        pendingQNames.clear();
+        try {
+            out.writeByte(MAGIC);
+            out.writeByte(version);
+            if (msg instanceof TransportedMessage) {
+                out.writeByte(TYPE_MESSAGE);
+                writeMessage(out, (TransportedMessage) msg);
+            } else if (msg instanceof TransportedException) {
+                out.writeByte(TYPE_EXCEPTION);
+                writeException(out, (TransportedException) msg);
+            } else if (msg instanceof TransportedPropagations) {
+                out.writeByte(TYPE_PROPAGATIONS);
+                writePropagations(out, (TransportedPropagations) msg, version);
+            } else if (msg instanceof TransportedAck) {
+                out.writeByte(TYPE_ACK);
+                writeAck(out, (TransportedAck) msg);
+            } else if (msg instanceof TransportedPropagationsDelta) {
+                assert version >= DELTA_VERSION;
+                out.writeByte(TYPE_PROPAGATIONS_DELTA);
+                writePropagationsDelta(out, (TransportedPropagationsDelta) msg);
+            } else if (msg instanceof TransportedPropagationsResync) {
+                assert version >= DELTA_VERSION;
+                out.writeByte(TYPE_PROPAGATIONS_RESYNC);
+            } else {
+                throw new IllegalArgumentException("Impossible case");
+            }
+        } catch (final IOException | RuntimeException e) {
+            for (final QName name : pendingQNames) {
+                writtenQNames.remove(name);
+            }
+            throw e;
+        } finally {
+            pendingQNames.clear();
+        }
+    }
+
+    public Transported decode(final ByteBuf in) throws IOException {
+        if (in.readByte() != MAGIC) {
+            throw new CorruptedFrameException("Not a binary frame");
+        }
+        final byte version = in.readByte();
+        if (!isSupported(version)) {
+            throw new CorruptedFrameException("Unsupported binary frame version: " + version);
+        }
+        final byte type = in.readByte();
+        switch (type) {
+            case TYPE_MESSAGE:
+                return readMessage(in);
+            case TYPE_EXCEPTION:
+                return readException(in);
+            case TYPE_PROPAGATIONS:
+                return readPropagations(in, version);
+            case TYPE_ACK:
+                return readAck(in);
+            case TYPE_PROPAGATIONS_DELTA:
+                return readPropagationsDelta(in);
+            case TYPE_PROPAGATIONS_RESYNC:
+                return new TransportedPropagationsResync();
+            case TYPE_CHUNK:
+            case TYPE_LAST_CHUNK:
+                throw new CorruptedFrameException("Chunks must be reassembled before being decoded");
+            default:
+                throw new CorruptedFrameException("Unknown binary frame type: " + type);
+        }
+    }
+
+    /**
+     * The header of a frame containing a part of the frame of a message: the content follows it.
+     */
+    public static void writeChunkHeader(final ByteBuf out, final byte version, final boolean last) {
+        assert version >= CHUNKED_VERSION;
+        out.writeByte(MAGIC);
+        out.writeByte(version);
+        out.writeByte(last ? TYPE_LAST_CHUNK : TYPE_CHUNK);
+    }
+
+    /**
+     * @param frame
+     *            a frame starting with {@link #MAGIC} at its reader index
+     */
+    public static boolean isChunk(final ByteBuf frame) {
+        final byte type = getType(frame);
+        return type == TYPE_CHUNK || type == TYPE_LAST_CHUNK;
+    }
+
+    /**
+     * @param frame
+     *            a frame starting with {@link #MAGIC} at its reader index
+     */
+    public static boolean isLastChunk(final ByteBuf frame) {
+        return getType(frame) == TYPE_LAST_CHUNK;
+    }
+
+    private static byte getType(final ByteBuf frame) {
+        if (frame.readableBytes() < CHUNK_HEADER_SIZE) {
+            return 0;
+        }
+        return frame.getByte(frame.readerIndex() + 2);
+    }
+
+    private void writeMessage(final ByteBuf out, final TransportedMessage m) throws IOException {
+        writeString(out, m.exchangeId);
+        writeFlowAttributes(out, m.senderExtStep);
+        writeServiceKey(out, m.service);
+        writeVarInt(out, m.step);
+        out.writeBoolean(m.last);
+        writeBoolean(out, m.initialExternalFlowTracingActivation);
+        writeBoolean(out, m.externalFlowTracingActivation);
+        writeFlowAttributes(out, m.provideExtStep);
+
+        final TransportedMessageExchange exchange = m.exchange;
+        writeString(out, exchange.getExchangeId());
+        writeStatus(out, exchange.getStatus());
+        writeQName(out, exchange.getOperation());
+        writeString(out, exchange.getPattern().toString());
+
+        final List<Object> opaques = new ArrayList<>();
+        final Set<String> names = exchange.getPropertyNames();
+        writeVarInt(out, names.size());
+        for (final String name : names) {
+            writeString(out, name);
+            opaques.add(exchange.getProperty(name));
+        }
+        opaques.add(exchange.getError());
+
+        writeNormalizedMessage(out, exchange.getFault(), opaques);
+        writeNormalizedMessage(out, exchange.getMessage(Exchange.IN_MESSAGE_NAME), opaques);
+        writeNormalizedMessage(out, exchange.getMessage(Exchange.OUT_MESSAGE_NAME), opaques);
+
+        writeOpaques(out, opaques);
+    }
+
+    private TransportedMessage readMessage(final ByteBuf in) throws IOException {
+        final String exchangeId = readNonNullString(in);
+        final FlowAttributes senderExtStep = readFlowAttributes(in);
+        final ServiceKey service = readServiceKey(in);
+        final int step = readVarInt(in);
+        final boolean last = in.readBoolean();
+        final Boolean initialExternalFlowTracingActivation = readBoolean(in);
+        final Boolean externalFlowTracingActivation = readBoolean(in);
+        final FlowAttributes provideExtStep = readFlowAttributes(in);
+
+        final String meId = readNonNullString(in);
+        final ExchangeStatus status = readStatus(in);
+        final QName operation = readQName(in);
+        final URI pattern = URI.create(readNonNullString(in));
+
+        final int nbProperties = readVarInt(in);
+        final List<String> names = new ArrayList<>(nbProperties);
+        for (int i = 0; i < nbProperties; i++) {
+            names.add(readNonNullString(in));
+        }
+
+        final PendingMessage fault = readNormalizedMessage(in);
+        final PendingMessage inMessage = readNormalizedMessage(in);
+        final PendingMessage outMessage = readNormalizedMessage(in);
+
+        final Map<String, Serializable> properties = new HashMap<>();
+        final Exception error;
+        final ClassResolver classResolver = this.classResolver;
+        assert classResolver != null;
+        try (final ObjectInputStream ois = new ResolvingObjectInputStream(new ByteBufInputStream(in),
+                classResolver)) {
+            for (final String name : names) {
+                properties.put(name, (Serializable) ois.readObject());
+            }
+            error = (Exception) ois.readObject();
+            for (final PendingMessage pending : new PendingMessage[] { fault, inMessage, outMessage }) {
+                if (pending != null) {
+                    pending.complete(ois);
+                }
+            }
+        } catch (final ClassNotFoundException | ClassCastException e) {
+            throw new IOException(e);
+        }
+
+        final TransportedMessageExchange exchange = new TransportedMessageExchange(meId, status, operation, pattern,
+                properties, error, fault != null ? fault.message : null, inMessage != null ? inMessage.message : null,
+                outMessage != null ? outMessage.message : null);
+
+        final TransportedMessage m = new TransportedMessage(service, exchangeId, exchange, step, last,
+                initialExternalFlowTracingActivation, externalFlowTracingActivation, provideExtStep);
+        m.senderExtStep = senderExtStep;
+        return m;
+    }
+
+    private static void writeAck(final ByteBuf out, final TransportedAck ack) {
+        writeString(out, ack.exchangeId);
+        writeVarInt(out, ack.step);
+    }
+
+    private static TransportedAck readAck(final ByteBuf in) throws CorruptedFrameException {
+        final String exchangeId = readNonNullString(in);
+        final int step = readVarInt(in);
+        return new TransportedAck(exchangeId, step);
+    }
+
+    private void writeException(final ByteBuf out, final TransportedException e) throws IOException {
+        writeString(out, e.exchangeId);
+        writeFlowAttributes(out, e.senderExtStep);
+
+        final List<Object> opaques = new ArrayList<>();
+        opaques.add(e.cause);
+        writeOpaques(out, opaques);
+    }
+
+    private TransportedException readException(final ByteBuf in) throws IOException {
+        final String exchangeId = readNonNullString(in);
+        final FlowAttributes senderExtStep = readFlowAttributes(in);
+
+        final Throwable cause;
+        final ClassResolver classResolver = this.classResolver;
+        assert classResolver != null;
+        try (final ObjectInputStream ois = new ResolvingObjectInputStream(new ByteBufInputStream(in),
+                classResolver)) {
+            cause = (Throwable) ois.readObject();
+        } catch (final ClassNotFoundException | ClassCastException e) {
+            throw new IOException(e);
+        }
+        if (cause == null) {
+            throw new CorruptedFrameException("Missing cause in exception frame");
+        }
+
+        return new TransportedException(exchangeId, senderExtStep, cause);
+    }
+
+    private void writePropagations(final ByteBuf out, final TransportedPropagations p, final byte version)
+            throws IOException {
+        writeDescriptions(out, p.getPropagations());
+        if (version >= DELTA_VERSION) {
+            out.writeLong(p.getEpoch());
+            out.writeLong(p.getVersion());
+        }
+    }
+
+    private TransportedPropagations readPropagations(final ByteBuf in, final byte version) throws IOException {
+        final Map<ServiceKey, TransportedDocument> propagations = readDescriptions(in);
+        if (version >= DELTA_VERSION) {
+            final long epoch = in.readLong();
+            final long propagationsVersion = in.readLong();
+            return new TransportedPropagations(epoch, propagationsVersion, propagations);
+        } else {
+            return new TransportedPropagations(propagations);
+        }
+    }
+
+    private void writePropagationsDelta(final ByteBuf out, final TransportedPropagationsDelta delta)
+            throws IOException {
+        out.writeLong(delta.epoch);
+        out.writeLong(delta.baseVersion);
+        out.writeLong(delta.version);
+        writeDescriptions(out, delta.updated);
+        writeVarInt(out, delta.removed.size());
+        for (final ServiceKey service : delta.removed) {
+            assert service != null;
+            writeServiceKey(out, service);
+        }
+    }
+
+    private TransportedPropagationsDelta readPropagationsDelta(final ByteBuf in) throws IOException {
+        final long epoch = in.readLong();
+        final long baseVersion = in.readLong();
+        final long version = in.readLong();
+        final Map<ServiceKey, TransportedDocument> updated = readDescriptions(in);
+        final int size = readVarInt(in);
+        final Set<ServiceKey> removed = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            removed.add(readServiceKey(in));
+        }
+        return new TransportedPropagationsDelta(epoch, baseVersion, version, updated, removed);
+    }
+
+    private void writeDescriptions(final ByteBuf out, final Map<ServiceKey, TransportedDocument> propagations)
+            throws IOException {
+        writeVarInt(out, propagations.size());
+        for (final Entry<ServiceKey, TransportedDocument> e : propagations.entrySet()) {
+            final ServiceKey service = e.getKey();
+            assert service != null;
+            writeServiceKey(out, service);
+            // careful, the map can contain null values
+            final TransportedDocument document = e.getValue();
+            final int lengthIndex = startContent(out);
+            if (document != null) {
+                document.writeTo(new ByteBufOutputStream(out));
+                endContent(out, lengthIndex);
+            }
+        }
+    }
+
+    private Map<ServiceKey, TransportedDocument> readDescriptions(final ByteBuf in) throws IOException {
+        final int size = readVarInt(in);
+        final Map<ServiceKey, TransportedDocument> propagations = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            final ServiceKey service = readServiceKey(in);
+            final TransportedBytes content = readContent(in);
+            propagations.put(service, content != null ? new TransportedDocument(content) : null);
+        }
+        return propagations;
+    }
+
+    private void writeNormalizedMessage(final ByteBuf out, final @Nullable NormalizedMessage message,
+            final List<Object> opaques) throws IOException {
+        if (message == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+
+        final int lengthIndex = startContent(out);
+        if (message instanceof TransportedNormalizedMessage) {
+            // we are sending back something we received: no need to parse it!
+            if (((TransportedNormalizedMessage) message).writeContentTo(new ByteBufOutputStream(out))) {
+                endContent(out, lengthIndex);
+            }
+        } else {
+            final Source content = message.getContent();
+            if (content != null) {
+                TransportedContents.write(content, new ByteBufOutputStream(out));
+                endContent(out, lengthIndex);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final Set<String> propertyNames = message.getPropertyNames();
+        final List<String> names = new ArrayList<>(propertyNames.size());
+        for (final String name : propertyNames) {
+            final Object value = message.getProperty(name);
+            if (value instanceof Serializable) {
+                names.add(name);
+                opaques.add(value);
+            } else {
+                final Logger logger = this.logger;
+                if (logger != null && logger.isLoggable(Level.FINE)) {
+                    logger.fine("Message property '" + name + "' is not transported as its value is not Serializable: "
+                            + value);
+                }
+            }
+        }
+        writeVarInt(out, names.size());
+        for (final String name : names) {
+            writeString(out, name);
+        }
+
+        @SuppressWarnings("unchecked")
+        final Set<String> attachmentNames = message.getAttachmentNames();
+        writeVarInt(out, attachmentNames.size());
+        for (final String name : attachmentNames) {
+            final DataHandler attachment = message.getAttachment(name);
+            writeString(out, name);
+            writeString(out, attachment.getContentType());
+            final int attachmentIndex = startContent(out);
+            attachment.writeTo(new ByteBufOutputStream(out));
+            endContent(out, attachmentIndex);
+        }
+
+        opaques.add(message.getSecuritySubject());
+    }
+
+    private static @Nullable PendingMessage readNormalizedMessage(final ByteBuf in) throws CorruptedFrameException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        final TransportedNormalizedMessage message = new TransportedNormalizedMessage(readContent(in));
+
+        final int nbProperties = readVarInt(in);
+        final List<String> names = new ArrayList<>(nbProperties);
+        for (int i = 0; i < nbProperties; i++) {
+            names.add(readNonNullString(in));
+        }
+
+        final int nbAttachments = readVarInt(in);
+        for (int i = 0; i < nbAttachments; i++) {
+            final String name = readNonNullString(in);
+            final String contentType = readNonNullString(in);
+            final TransportedBytes data = readContent(in);
+            if (data == null) {
+                throw new CorruptedFrameException("Missing attachment data");
+            }
+            message.putAttachment(name, contentType, data);
+        }
+
+        return new PendingMessage(message, names);
+    }
+
+    /**
+     * Reserves the length of a content that will be streamed directly in the frame: if nothing is written,
+     * {@link #NO_CONTENT} is kept.
+     */
+    private static int startContent(final ByteBuf out) {
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(NO_CONTENT);
+        return lengthIndex;
+    }
+
+    private static void endContent(final ByteBuf out, final int lengthIndex) {
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+    }
+
+    /**
+     * The content is copied out of the frame because the received messages live longer than it, but in segments so that
+     * big contents don't need one big contiguous array.
+     */
+    private static @Nullable TransportedBytes readContent(final ByteBuf in) throws CorruptedFrameException {
+        final int length = in.readInt();
+        if (length == NO_CONTENT) {
+            return null;
+        }
+        if (length < 0 || length > in.readableBytes()) {
+            throw new CorruptedFrameException("Invalid content length: " + length);
+        }
+        return TransportedBytes.read(in, length);
+    }
+
+    private void writeServiceKey(final ByteBuf out, final ServiceKey service) {
+        writeString(out, service.endpointName);
+        writeQName(out, service.service);
+        writeQName(out, service.interfaceName);
+    }
+
+    private ServiceKey readServiceKey(final ByteBuf in) throws CorruptedFrameException {
+        final String endpointName = readString(in);
+        final QName service = readQName(in);
+        final QName interfaceName = readQName(in);
+        if (service == null || interfaceName == null) {
+            throw new CorruptedFrameException("Incomplete service key");
+        }
+        return new ServiceKey(endpointName, service, interfaceName);
+    }
+
+    private void writeQName(final ByteBuf out, final @Nullable QName name) {
+        if (name == null) {
+            writeVarInt(out, QNAME_NULL);
+            return;
+        }
+
+        final Integer id = writtenQNames.get(name);
+        if (id != null) {
+            writeVarInt(out, QNAME_REF_OFFSET + id.intValue());
+            return;
+        }
+
+        if (intern && writtenQNames.size() < MAX_INTERNED_QNAMES) {
+            writtenQNames.put(name, writtenQNames.size());
+            pendingQNames.add(name);
+            writeVarInt(out, QNAME_INTERNED);
+        } else {
+            writeVarInt(out, QNAME_INLINE);
+        }
+        writeString(out, name.getNamespaceURI());
+        writeString(out, name.getLocalPart());
+        writeString(out, name.getPrefix());
+    }
+
+    private @Nullable QName readQName(final ByteBuf in) throws CorruptedFrameException {
+        final int tag = readVarInt(in);
+        if (tag == QNAME_NULL) {
+            return null;
+        } else if (tag >= QNAME_REF_OFFSET) {
+            final int id = tag - QNAME_REF_OFFSET;
+            if (id >= readQNames.size()) {
+                throw new CorruptedFrameException("Unknown interned QName: " + id);
+            }
+            return readQNames.get(id);
+        }
+
+        final QName name = new QName(readNonNullString(in), readNonNullString(in), readNonNullString(in));
+        if (tag == QNAME_INTERNED) {
+            readQNames.add(name);
+        }
+        return name;
+    }
+
+    private static void writeFlowAttributes(final ByteBuf out, final @Nullable FlowAttributes fa) {
+        if (fa == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            writeString(out, fa.getFlowInstanceId());
+            writeString(out, fa.getFlowStepId());
+        }
+    }
+
+    private static @Nullable FlowAttributes readFlowAttributes(final ByteBuf in) throws CorruptedFrameException {
+        if (in.readBoolean()) {
+            return new FlowAttributes(readString(in), readString(in));
+        } else {
+            return null;
+        }
+    }
+
+    private static void writeStatus(final ByteBuf out, final ExchangeStatus status) {
+        if (ExchangeStatus.ACTIVE.equals(status)) {
+            out.writeByte(STATUS_ACTIVE);
+        } else if (ExchangeStatus.DONE.equals(status)) {
+            out.writeByte(STATUS_DONE);
+        } else if (ExchangeStatus.ERROR.equals(status)) {
+            out.writeByte(STATUS_ERROR);
+        } else {
+            throw new IllegalArgumentException("unknown status");
+        }
+    }
+
+    @SuppressWarnings("null")
+    private static ExchangeStatus readStatus(final ByteBuf in) throws CorruptedFrameException {
+        final byte status = in.readByte();
+        switch (status) {
+            case STATUS_ACTIVE:
+                return ExchangeStatus.ACTIVE;
+            case STATUS_DONE:
+                return ExchangeStatus.DONE;
+            case STATUS_ERROR:
+                return ExchangeStatus.ERROR;
+            default:
+                throw new CorruptedFrameException("Unknown status: " + status);
+        }
+    }
+
+    private static void writeBoolean(final ByteBuf out, final @Nullable Boolean b) {
+        if (b == null) {
+            out.writeByte(BOOLEAN_NULL);
+        } else {
+            out.writeByte(b.booleanValue() ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+        }
+    }
+
+    private static @Nullable Boolean readBoolean(final ByteBuf in) throws CorruptedFrameException {
+        final byte b = in.readByte();
+        switch (b) {
+            case BOOLEAN_NULL:
+                return null;
+            case BOOLEAN_FALSE:
+                return Boolean.FALSE;
+            case BOOLEAN_TRUE:
+                return Boolean.TRUE;
+            default:
+                throw new CorruptedFrameException("Invalid boolean: " + b);
+        }
+    }
+
+    /**
+     * The length is shifted by one so that 0 means <code>null</code>.
+     */
+    private static void writeString(final ByteBuf out, final @Nullable String s) {
+        if (s == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, ByteBufUtil.utf8Bytes(s) + 1);
+            out.writeCharSequence(s, CharsetUtil.UTF_8);
+        }
+    }
+
+    private static @Nullable String readString(final ByteBuf in) throws CorruptedFrameException {
+        final int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > in.readableBytes()) {
+            throw new CorruptedFrameException("String longer than the frame: " + (length - 1));
+        }
+        return in.readCharSequence(length - 1, CharsetUtil.UTF_8).toString();
+    }
+
+    private static String readNonNullString(final ByteBuf in) throws CorruptedFrameException {
+        final String s = readString(in);
+        if (s == null) {
+            throw new CorruptedFrameException("Unexpected null string");
+        }
+        return s;
+    }
+
+    /**
+     * Everything we don't know the implementation of goes in one Java serialization stream that ends the frame.
+     */
+    private static void writeOpaques(final ByteBuf out, final List<Object> opaques) throws IOException {
+        try (final ObjectOutputStream oos = new ObjectOutputStream(new ByteBufOutputStream(out))) {
+            for (final Object o : opaques) {
+                oos.writeObject(o);
+            }
+        }
+    }
+
+    public static void writeVarInt(final ByteBuf out, final int value) {
+        assert value >= 0;
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    public static int readVarInt(final ByteBuf in) throws CorruptedFrameException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (result < 0) {
+                    break;
+                }
+                return result;
+            }
+        }
+        throw new CorruptedFrameException("Malformed varint");
+    }
+
+    /**
+     * A received message for which the values of the properties and the security subject are still to be read from the
+     * Java serialization stream at the end of the frame.
+     */
+    private static class PendingMessage {
+
+        private final TransportedNormalizedMessage message;
+
+        private final List<String> propertyNames;
+
+        public PendingMessage(final TransportedNormalizedMessage message, final List<String> propertyNames) {
+            this.message = message;
+            this.propertyNames = propertyNames;
+        }
+
+        public void complete(final ObjectInputStream ois) throws IOException, ClassNotFoundException {
+            for (final String name : propertyNames) {
+                final Serializable value = (Serializable) ois.readObject();
+                if (value == null) {
+                    throw new CorruptedFrameException("Missing value for message property " + name);
+                }
+                message.putProperty(name, value);
+            }
+            message.setTransportedSecuritySubject((Subject) ois.readObject());
+        }
+    }
+
+    /**
+     * Same as what {@link ObjectEncoder} does on the other side: classes coming from the container must be resolved
+     * with its {@link ClassLoader}.
+     */
+    private static class ResolvingObjectInputStream extends ObjectInputStream {
+
+        private final ClassResolver classResolver;
+
+        public ResolvingObjectInputStream(final InputStream in, final ClassResolver classResolver)
+                throws IOException {
+            super(in);
+            this.classResolver = classResolver;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final @Nullable ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            assert desc != null;
+            try {
+                final Class<?> clazz = classResolver.resolve(desc.getName());
+                assert clazz != null;
+                return clazz;
+            } catch (final ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Writes XML contents as UTF-8 bytes directly to a stream (in practice the {@link io.netty.buffer.ByteBuf} of the
+ * frame) and parses them back only when a DOM is really needed.
+ * 
+ * Transformers and parsers are not thread-safe but are reusable, so we keep one per thread: in practice these are the
+ * threads of the event loops.
+ */
+final class TransportedContents {
+
+    private static final ThreadLocal<Transformer> TRANSFORMERS = new ThreadLocal<Transformer>() {
+        @Override
+        protected Transformer initialValue() {
+            try {
+                final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+                transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+                transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+                return transformer;
+            } catch (final TransformerConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<DocumentBuilder> BUILDERS = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            try {
+                final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                return factory.newDocumentBuilder();
+            } catch (final ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private TransportedContents() {
+        // utility class
+    }
+
+    public static void write(final Source source, final OutputStream out) throws IOException {
+        try {
+            TRANSFORMERS.get().transform(source, new StreamResult(out));
+        } catch (final TransformerException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public static Document parse(final InputStream content) throws IOException {
+        final DocumentBuilder builder = BUILDERS.get();
+        try {
+            final Document document = builder.parse(content);
+            assert document != null;
+            return document;
+        } catch (final SAXException e) {
+            throw new IOException(e);
+        } finally {
+            builder.reset();
+        }
+    }
+}
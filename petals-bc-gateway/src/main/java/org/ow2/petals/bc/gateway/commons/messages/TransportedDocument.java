@@ -17,36 +17,153 @@
  */
 package org.ow2.petals.bc.gateway.commons.messages;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMSource;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
+import com.ebmwebsourcing.easycommons.lang.UncheckedException;
 import com.ebmwebsourcing.easycommons.xml.XMLHelper;
 
 /**
- * TODO use proper DOM serialization?!
- *
+ * Either built from a {@link Document} on the sending side, or from the UTF-8 bytes received by
+ * {@link TransportedCodec}, in which case the {@link Document} is only parsed if someone asks for it.
+ * 
+ * With Java serialization, the {@link Document} is still transported as a {@link String}.
  */
 public class TransportedDocument implements Serializable {
 
     private static final long serialVersionUID = 405158251976165734L;
 
-    private transient Document document;
+    private transient @Nullable Document document;
+
+    private transient @Nullable TransportedBytes content;
+
+    private transient @Nullable byte[] digest;
 
     public TransportedDocument(final Document document) {
         this.document = document;
     }
 
-    public Document getDocument() {
+    TransportedDocument(final TransportedBytes content) {
+        this.content = content;
+    }
+
+    /**
+     * Serializes the document right away (and computes its {@link #getDigest()} at the same time): it will then be
+     * written as is each time it is sent.
+     */
+    public static TransportedDocument serialize(final Document document) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final MessageDigest md = newMessageDigest();
+        try (final DigestOutputStream out = new DigestOutputStream(bytes, md)) {
+            TransportedContents.write(new DOMSource(document), out);
+        }
+        final TransportedDocument res = new TransportedDocument(TransportedBytes.wrap(bytes.toByteArray()));
+        res.digest = md.digest();
+        return res;
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // every Java platform has it
+            throw new UncheckedException(e);
+        }
+    }
+
+    /**
+     * @throws UncheckedException
+     *             if the received content can't be parsed
+     */
+    public synchronized Document getDocument() {
+        Document document = this.document;
+        if (document == null) {
+            final TransportedBytes content = this.content;
+            assert content != null;
+            try {
+                document = TransportedContents.parse(content.newInputStream());
+            } catch (final IOException e) {
+                throw new UncheckedException(e);
+            }
+            this.document = document;
+            // no need to keep both
+            this.content = null;
+        }
         return document;
     }
 
+    /**
+     * A SHA-256 digest of the UTF-8 bytes of the document, computed once: it is used to know if a propagated description
+     * changed without sending it again.
+     * 
+     * @throws UncheckedException
+     *             if the document can't be written
+     */
+    public byte[] getDigest() {
+        synchronized (this) {
+            final byte[] digest = this.digest;
+            if (digest != null) {
+                return digest;
+            }
+        }
+        final MessageDigest md = newMessageDigest();
+        try (final DigestOutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), md)) {
+            writeTo(out);
+        } catch (final IOException e) {
+            throw new UncheckedException(e);
+        }
+        final byte[] digest = md.digest();
+        assert digest != null;
+        synchronized (this) {
+            this.digest = digest;
+        }
+        return digest;
+    }
+
+    /**
+     * @return <code>true</code> if both are <code>null</code> or have the same {@link #getDigest()}
+     */
+    public static boolean sameContent(final @Nullable TransportedDocument a, final @Nullable TransportedDocument b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a == b || Arrays.equals(a.getDigest(), b.getDigest());
+    }
+
+    /**
+     * Writes the document as UTF-8 bytes without going through a {@link String}: if it was never parsed, the received
+     * bytes are written as is.
+     */
+    void writeTo(final OutputStream out) throws IOException {
+        final TransportedBytes content;
+        final Document document;
+        synchronized (this) {
+            content = this.content;
+            document = this.document;
+        }
+        if (content != null) {
+            content.writeTo(out);
+        } else {
+            assert document != null;
+            TransportedContents.write(new DOMSource(document), out);
+        }
+    }
+
     @SuppressWarnings("null")
     private void readObject(final ObjectInputStream s) throws IOException {
         try {
@@ -58,8 +175,8 @@ public class TransportedDocument implements Serializable {
 
     private void writeObject(final ObjectOutputStream s) throws IOException {
         try {
-            s.writeObject(XMLHelper.createStringFromDOMNode(this.document));
-        } catch (final TransformerException e) {
+            s.writeObject(XMLHelper.createStringFromDOMNode(getDocument()));
+        } catch (final TransformerException | UncheckedException e) {
             throw new IOException(e);
         }
     }
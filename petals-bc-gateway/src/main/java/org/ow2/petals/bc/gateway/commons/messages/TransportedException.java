@@ -17,6 +17,9 @@
  */
 package org.ow2.petals.bc.gateway.commons.messages;
 
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.commons.log.FlowAttributes;
+
 /**
  * {@link TransportedException} are only used as an answer to a {@link TransportedMessage} that is the last one of an
  * exchange.
@@ -40,4 +43,14 @@ public class TransportedException extends TransportedForExchange {
         this.senderExtStep = m.senderExtStep;
         this.cause = cause;
     }
+
+    /**
+     * Used by {@link TransportedCodec} to rebuild a received exception.
+     */
+    TransportedException(final String exchangeId, final @Nullable FlowAttributes senderExtStep,
+            final Throwable cause) {
+        super(exchangeId);
+        this.senderExtStep = senderExtStep;
+        this.cause = cause;
+    }
 }
@@ -93,6 +93,23 @@ public class TransportedMessage extends TransportedForExchange {
         this.initialExternalFlowTracingActivation = initialExternalFlowTracingActivation;
     }
 
+    /**
+     * Used by {@link TransportedCodec} to rebuild a received message.
+     */
+    TransportedMessage(final ServiceKey service, final String exchangeId, final TransportedMessageExchange exchange,
+            final int step, final boolean last, final Boolean initialExternalFlowTracingActivation,
+            final @Nullable Boolean externalFlowTracingActivation, final @Nullable FlowAttributes provideExtStep) {
+        super(exchangeId);
+        assert step > 0;
+        this.service = service;
+        this.step = step;
+        this.last = last;
+        this.exchange = exchange;
+        this.initialExternalFlowTracingActivation = initialExternalFlowTracingActivation;
+        this.externalFlowTracingActivation = externalFlowTracingActivation;
+        this.provideExtStep = provideExtStep;
+    }
+
     protected TransportedMessage(final ServiceKey service, final String exchangeId, final MessageExchange exchange,
             final int step, final boolean last) {
         this(service, exchangeId, exchange, step, last,
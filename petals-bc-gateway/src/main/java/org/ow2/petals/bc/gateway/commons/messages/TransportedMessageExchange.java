@@ -110,6 +110,23 @@ public class TransportedMessageExchange implements MessageExchange, Serializable
         }
     }
 
+    /**
+     * Used by {@link TransportedCodec} to rebuild a received exchange.
+     */
+    TransportedMessageExchange(final String exchangeId, final ExchangeStatus status, final @Nullable QName operation,
+            final URI pattern, final Map<String, Serializable> properties, final @Nullable Exception error,
+            final @Nullable Fault fault, final @Nullable NormalizedMessage in, final @Nullable NormalizedMessage out) {
+        this.exchangeId = exchangeId;
+        this.status = toStatus(status);
+        this.operation = operation;
+        this.pattern = pattern;
+        this.properties.putAll(properties);
+        this.error = error;
+        this.fault = fault;
+        this.in = in;
+        this.out = out;
+    }
+
     private static Status toStatus(final ExchangeStatus status) {
         if (ExchangeStatus.ACTIVE.equals(status)) {
             return Status.ACTIVE;
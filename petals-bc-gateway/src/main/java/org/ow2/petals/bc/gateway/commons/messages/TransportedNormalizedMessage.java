@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.jbi.messaging.Fault;
+import javax.jbi.messaging.MessagingException;
+import javax.jbi.messaging.NormalizedMessage;
+import javax.security.auth.Subject;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+
+/**
+ * A {@link NormalizedMessage} (or {@link Fault}) as received by {@link TransportedCodec}: the content is kept as the
+ * UTF-8 bytes that were transported and is only parsed by whoever reads the {@link Source} returned by
+ * {@link #getContent()}.
+ * 
+ * It is read-only (its setters throw an {@link UnsupportedOperationException}) and must be copied to a message
+ * created by the NMR with {@link #copyTo(NormalizedMessage)} before being used in a real exchange.
+ */
+public class TransportedNormalizedMessage implements Fault, Serializable {
+
+    private static final long serialVersionUID = -1826357209164125388L;
+
+    private static final String READ_ONLY = "A transported message is read-only, "
+            + "it must be copied to a message created by the NMR first";
+
+    @Nullable
+    private final TransportedBytes content;
+
+    private final Map<String, Serializable> properties = new HashMap<>();
+
+    private final Map<String, Attachment> attachments = new HashMap<>();
+
+    @Nullable
+    private Subject securitySubject;
+
+    TransportedNormalizedMessage(final @Nullable TransportedBytes content) {
+        this.content = content;
+    }
+
+    void putProperty(final String name, final Serializable value) {
+        this.properties.put(name, value);
+    }
+
+    void putAttachment(final String name, final String contentType, final TransportedBytes data) {
+        this.attachments.put(name, new Attachment(contentType, data));
+    }
+
+    void setTransportedSecuritySubject(final @Nullable Subject subject) {
+        this.securitySubject = subject;
+    }
+
+    /**
+     * Writes the content as it was received, without parsing it.
+     * 
+     * @return <code>false</code> if there is no content
+     */
+    boolean writeContentTo(final OutputStream out) throws IOException {
+        final TransportedBytes content = this.content;
+        if (content == null) {
+            return false;
+        }
+        content.writeTo(out);
+        return true;
+    }
+
+    /**
+     * Copies everything to a message created by the NMR: the content is still not parsed.
+     */
+    public void copyTo(final NormalizedMessage to) throws MessagingException {
+        to.setContent(getContent());
+        for (final Entry<String, Serializable> e : this.properties.entrySet()) {
+            to.setProperty(e.getKey(), e.getValue());
+        }
+        for (final String name : this.attachments.keySet()) {
+            to.addAttachment(name, getAttachment(name));
+        }
+        to.setSecuritySubject(this.securitySubject);
+    }
+
+    /**
+     * A new {@link Source} is returned on each call so that the content can be read more than once.
+     */
+    @Override
+    @Nullable
+    public Source getContent() {
+        final TransportedBytes content = this.content;
+        if (content == null) {
+            return null;
+        }
+        return new StreamSource(content.newInputStream());
+    }
+
+    @Override
+    @Nullable
+    public Object getProperty(@Nullable String name) {
+        return this.properties.get(name);
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    public Set<String> getPropertyNames() {
+        return this.properties.keySet();
+    }
+
+    @Override
+    @Nullable
+    public DataHandler getAttachment(@Nullable String id) {
+        final Attachment attachment = this.attachments.get(id);
+        if (attachment == null) {
+            return null;
+        }
+        return new DataHandler(new AttachmentDataSource(id, attachment));
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    public Set<String> getAttachmentNames() {
+        return this.attachments.keySet();
+    }
+
+    @Override
+    @Nullable
+    public Subject getSecuritySubject() {
+        return this.securitySubject;
+    }
+
+    @Override
+    public void setContent(@Nullable Source content) throws MessagingException {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+    @Override
+    public void setProperty(@Nullable String name, @Nullable Object value) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+    @Override
+    public void addAttachment(@Nullable String id, @Nullable DataHandler content) throws MessagingException {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+    @Override
+    public void removeAttachment(@Nullable String id) throws MessagingException {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+    @Override
+    public void setSecuritySubject(@Nullable Subject subject) {
+        throw new UnsupportedOperationException(READ_ONLY);
+    }
+
+    private static class Attachment implements Serializable {
+
+        private static final long serialVersionUID = 6227431707458541093L;
+
+        private final String contentType;
+
+        private final TransportedBytes data;
+
+        public Attachment(final String contentType, final TransportedBytes data) {
+            this.contentType = contentType;
+            this.data = data;
+        }
+    }
+
+    private static class AttachmentDataSource implements DataSource {
+
+        @Nullable
+        private final String name;
+
+        private final Attachment attachment;
+
+        public AttachmentDataSource(final @Nullable String name, final Attachment attachment) {
+            this.name = name;
+            this.attachment = attachment;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return attachment.data.newInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            throw new IOException("Read-only attachment");
+        }
+
+        @Override
+        public String getContentType() {
+            return attachment.contentType;
+        }
+
+        @Override
+        @Nullable
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -22,8 +22,17 @@ import java.util.Map;
 
 import org.ow2.petals.bc.gateway.commons.messages.Transported.TransportedToConsumer;
 
+/**
+ * The complete list of the services propagated by a consumer domain.
+ * 
+ * When it comes from a peer that supports {@link TransportedPropagationsDelta}, it is a snapshot identified by an
+ * epoch (chosen by each consumer domain instance) and a version (incremented on each change): the deltas that follow
+ * it on the connection are relative to it. Otherwise, both are {@link #UNVERSIONED}.
+ */
 public class TransportedPropagations implements TransportedToConsumer {
 
+    public static final long UNVERSIONED = 0;
+
     @SuppressWarnings("null")
     public static final TransportedPropagations EMPTY = new TransportedPropagations(
             Collections.<ServiceKey, TransportedDocument> emptyMap());
@@ -32,10 +41,33 @@ public class TransportedPropagations implements TransportedToConsumer {
 
     private final Map<ServiceKey, TransportedDocument> propagations;
 
+    private final long epoch;
+
+    private final long version;
+
     public TransportedPropagations(final Map<ServiceKey, TransportedDocument> propagations) {
+        this(UNVERSIONED, UNVERSIONED, propagations);
+    }
+
+    public TransportedPropagations(final long epoch, final long version,
+            final Map<ServiceKey, TransportedDocument> propagations) {
+        this.epoch = epoch;
+        this.version = version;
         this.propagations = propagations;
     }
 
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isVersioned() {
+        return epoch != UNVERSIONED;
+    }
+
     public Map<ServiceKey, TransportedDocument> getPropagations() {
         return propagations;
     }
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.messages;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.ow2.petals.bc.gateway.commons.messages.Transported.TransportedToConsumer;
+
+/**
+ * The changes of the services propagated by a consumer domain between two versions of its
+ * {@link TransportedPropagations}: the services that were added or whose description changed (with their new
+ * description, that can be <code>null</code>) and those that were removed. The descriptions of the services that didn't
+ * change are not sent again.
+ * 
+ * It is only sent to peers that negotiated at least {@link TransportedCodec#DELTA_VERSION}: if it doesn't apply to the
+ * version they know, they answer with a {@link TransportedPropagationsResync}.
+ */
+public class TransportedPropagationsDelta implements TransportedToConsumer {
+
+    private static final long serialVersionUID = -4316720870358212573L;
+
+    public final long epoch;
+
+    public final long baseVersion;
+
+    public final long version;
+
+    public final Map<ServiceKey, TransportedDocument> updated;
+
+    public final Set<ServiceKey> removed;
+
+    public TransportedPropagationsDelta(final long epoch, final long baseVersion, final long version,
+            final Map<ServiceKey, TransportedDocument> updated, final Set<ServiceKey> removed) {
+        this.epoch = epoch;
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.updated = updated;
+        this.removed = removed;
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.messages;
+
+import org.ow2.petals.bc.gateway.commons.messages.Transported.TransportedToProvider;
+
+/**
+ * Sent by a provider domain that received a {@link TransportedPropagationsDelta} it can't apply (it missed a previous
+ * version): the consumer domain answers with its complete {@link TransportedPropagations}.
+ */
+public class TransportedPropagationsResync implements TransportedToProvider {
+
+    private static final long serialVersionUID = 7961502367243910487L;
+
+}
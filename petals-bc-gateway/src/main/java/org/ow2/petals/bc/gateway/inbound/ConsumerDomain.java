@@ -17,15 +17,21 @@
  */
 package org.ow2.petals.bc.gateway.inbound;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
@@ -39,10 +45,14 @@ import org.ow2.petals.bc.gateway.BcGatewayJBISender;
 import org.ow2.petals.bc.gateway.BcGatewaySUManager;
 import org.ow2.petals.bc.gateway.JBISender;
 import org.ow2.petals.bc.gateway.commons.AbstractDomain;
+import org.ow2.petals.bc.gateway.commons.ExchangesExecutor;
+import org.ow2.petals.bc.gateway.commons.handlers.HandlerConstants;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedBroadcast;
 import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedDocument;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedMessage;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagations;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagationsDelta;
 import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiConsumerDomain;
 import org.ow2.petals.bc.gateway.utils.BcGatewayConsumeExtFlowStepBeginLogData;
 import org.ow2.petals.commons.log.FlowAttributes;
@@ -58,6 +68,13 @@ import org.w3c.dom.Document;
 import com.ebmwebsourcing.easycommons.lang.StringHelper;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatcher;
+import io.netty.channel.group.ChannelMatchers;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.Timer;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
 import io.netty.util.concurrent.GlobalEventExecutor;
@@ -71,11 +88,27 @@ import io.netty.util.concurrent.ScheduledFuture;
  * The main idea is that a given consumer partner can contact us (a provider partner) with multiple connections (for
  * example in case of HA) and each of these needs to know what are the consumes propagated to them.
  * 
+ * Each new channel receives the complete {@link TransportedPropagations}, then, if it supports it, only the
+ * {@link TransportedPropagationsDelta} between its versions (the other ones receive the complete propagations again).
+ * 
  * @author vnoel
  *
  */
 public class ConsumerDomain extends AbstractDomain {
 
+    /**
+     * The endpoints changes notified during this delay (in ms) are propagated all at once.
+     */
+    private static final long ENDPOINTS_CHANGES_DELAY = 100;
+
+    private static final ChannelMatcher DELTA_SUPPORTED = new ChannelMatcher() {
+        @Override
+        public boolean matches(final @Nullable Channel channel) {
+            assert channel != null;
+            return supportsPropagationsDelta(channel);
+        }
+    };
+
     /**
      * The {@link Consumes} propagated to this consumer domain.
      */
@@ -86,20 +119,44 @@ public class ConsumerDomain extends AbstractDomain {
     private final TransportListener tl;
 
     /**
-     * Lock for synchronising changes to {@link #channels}, {@link #open}, {@link #propagations} and {@link #jcd}.
+     * Lock for synchronising changes to {@link #open}, {@link #propagations} and {@link #jcd}, and the sending of
+     * {@link #propagations} to the {@link #channels}: it is only held for short periods as it is used by the event
+     * loops when a channel is registered.
      */
-    private final Lock mainLock = new ReentrantLock(true);
+    private final Lock mainLock = new ReentrantLock();
+
+    /**
+     * Lock for computing the propagations (it is never taken by the event loops): the endpoints and their descriptions
+     * are retrieved from the container with it, and then the result is published with {@link #mainLock}.
+     * 
+     * It also controls the access to {@link #descriptions}.
+     */
+    private final Lock propagationsLock = new ReentrantLock();
 
     /**
      * The channels from this consumer domain (there can be more than one in case of HA or stuffs like that for example)
+     * 
+     * The closed channels are removed from it automatically.
      */
-    private final Set<Channel> channels = new HashSet<>();
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
     private JbiConsumerDomain jcd;
 
     private volatile boolean open = false;
 
-    private TransportedPropagations propagations = TransportedPropagations.EMPTY;
+    /**
+     * Identifies this instance in the versions of {@link #propagations}, so that the other side knows they restarted
+     * from scratch (the consumer domain was redeployed for example).
+     */
+    private final long epoch = newEpoch();
+
+    /**
+     * The last propagations sent, they are never modified: the new channels get them as they are.
+     */
+    private volatile TransportedPropagations propagations = new TransportedPropagations(epoch, 0,
+            Collections.<ServiceKey, TransportedDocument> emptyMap());
+
+    private final DescriptionCache descriptions = new DescriptionCache();
 
     /**
      * @see #polling
@@ -108,14 +165,20 @@ public class ConsumerDomain extends AbstractDomain {
 
     /**
      * Access is controlled by {@link #pollingLock} (except for the first poll that is controlled by {@link #mainLock}
-     * in {@link #open()}).
+     * in {@link #open()}, after the initial propagations were sent).
      */
     private @Nullable ScheduledFuture<?> polling = null;
 
+    /**
+     * If a refresh following {@link #endpointsChanged()} is already scheduled.
+     */
+    private final AtomicBoolean endpointsChangesPending = new AtomicBoolean(false);
+
     public ConsumerDomain(final ServiceUnitDataHandler handler, final TransportListener tl,
             final BcGatewaySUManager sum, final JbiConsumerDomain jcd, final Collection<Consumes> consumes,
-            final BcGatewayJBISender sender, final Logger logger) throws PEtALSCDKException {
-        super(sender, handler, logger);
+            final BcGatewayJBISender sender, final Timer timer, final ExchangesExecutor executor, final Logger logger)
+            throws PEtALSCDKException {
+        super(sender, handler, timer, executor, logger);
         this.tl = tl;
         this.sum = sum;
         this.jcd = jcd;
@@ -132,13 +195,16 @@ public class ConsumerDomain extends AbstractDomain {
     }
 
     public void reload(final JbiConsumerDomain newJCD) throws PEtALSCDKException {
+        // the certificate and key files are read again by the next connections
+        getSslContext().invalidate();
         mainLock.lock();
         try {
             if (!jcd.getAuthName().equals(newJCD.getAuthName())
                     || !StringHelper.equal(jcd.getCertificate(), newJCD.getCertificate())
                     || !StringHelper.equal(jcd.getRemoteCertificate(), newJCD.getRemoteCertificate())
                     || !StringHelper.equal(jcd.getKey(), newJCD.getKey())
-                    || !StringHelper.equal(jcd.getPassphrase(), newJCD.getPassphrase())) {
+                    || !StringHelper.equal(jcd.getPassphrase(), newJCD.getPassphrase())
+                    || jcd.isReliable() != newJCD.isReliable()) {
                 if (!jcd.getAuthName().equals(newJCD.getAuthName())) {
                     tl.register(newJCD.getAuthName(), this);
                     tl.deregistrer(jcd.getAuthName());
@@ -147,6 +213,17 @@ public class ConsumerDomain extends AbstractDomain {
                 // this will disconnect clients and they should reconnect by themselves and use the new jcd and
                 // authname!
                 disconnect();
+            } else if (jcd.getWriteBufferLowWaterMark() != newJCD.getWriteBufferLowWaterMark()
+                    || jcd.getWriteBufferHighWaterMark() != newJCD.getWriteBufferHighWaterMark()
+                    || jcd.getExchangesInProgressCapacity() != newJCD.getExchangesInProgressCapacity()
+                    || jcd.getExchangeExpiration() != newJCD.getExchangeExpiration()
+                    || jcd.getReplayBufferSize() != newJCD.getReplayBufferSize()) {
+                // no need to disconnect for these
+                jcd = newJCD;
+                final WriteBufferWaterMark waterMark = newWriteBufferWaterMark();
+                for (final Channel c : channels) {
+                    c.config().setWriteBufferWaterMark(waterMark);
+                }
             }
         } finally {
             mainLock.unlock();
@@ -164,11 +241,8 @@ public class ConsumerDomain extends AbstractDomain {
         mainLock.lock();
         try {
             tl.deregistrer(jcd.getAuthName());
-            for (final Channel c : channels) {
-                // this will trigger deregisterChannel btw
-                // Note: locking is ok, simply all the close will be sent before the deregistration is executed
-                c.close();
-            }
+            // this will trigger deregisterChannel btw
+            channels.close();
         } finally {
             mainLock.unlock();
         }
@@ -178,9 +252,14 @@ public class ConsumerDomain extends AbstractDomain {
         mainLock.lock();
         try {
             open = true;
+        } finally {
+            mainLock.unlock();
+        }
 
-            sendPropagations(true);
+        sendPropagations(true);
 
+        mainLock.lock();
+        try {
             final long propagationPollingMaxDelay = jcd.getPropagationPollingMaxDelay();
             if (propagationPollingMaxDelay > 0) {
                 final double propagationPollingAccel = jcd.getPropagationPollingAcceleration();
@@ -264,42 +343,115 @@ public class ConsumerDomain extends AbstractDomain {
         mainLock.lock();
         try {
             open = false;
-            pollingLock.lock();
+        } finally {
+            mainLock.unlock();
+        }
+
+        pollingLock.lock();
+        try {
+            if (polling != null) {
+                // interruption will stop any current sending
+                polling.cancel(true);
+                polling = null;
+            }
+        } finally {
+            pollingLock.unlock();
+        }
+
+        // once the propagations being computed (if any) are done
+        propagationsLock.lock();
+        try {
+            mainLock.lock();
             try {
-                if (polling != null) {
-                    // interruption will stop any current sending
-                    polling.cancel(true);
-                    polling = null;
-                }
+                sendPropagations(new TransportedPropagations(epoch, propagations.getVersion() + 1,
+                        Collections.<ServiceKey, TransportedDocument> emptyMap()), null);
             } finally {
-                pollingLock.unlock();
+                mainLock.unlock();
             }
-            sendPropagations(TransportedPropagations.EMPTY);
+            descriptions.clear();
         } finally {
-            mainLock.unlock();
+            propagationsLock.unlock();
         }
     }
 
+    private WriteBufferWaterMark newWriteBufferWaterMark() {
+        return new WriteBufferWaterMark(jcd.getWriteBufferLowWaterMark(), jcd.getWriteBufferHighWaterMark());
+    }
+
+    /**
+     * It is called by the event loop of the channel: the channel gets the last propagations sent right away (and then
+     * the next ones), and the propagations are refreshed in the background.
+     */
     public void registerChannel(final Channel c) {
+        final boolean refresh;
         mainLock.lock();
         try {
-            channels.add(c);
+            c.config().setWriteBufferWaterMark(newWriteBufferWaterMark());
 
+            refresh = open;
             if (open) {
-                if (!sendPropagations(false)) {
-                    // let's simply notify the new channel with the already known propagations
-                    c.writeAndFlush(propagations);
-                }
+                // the new one doesn't know anything yet
+                c.writeAndFlush(propagations);
             }
+
+            channels.add(c);
         } finally {
             mainLock.unlock();
         }
+
+        if (refresh) {
+            // in case something changed since the last polling
+            endpointsChanged();
+        }
     }
 
     public void deregisterChannel(final Channel c) {
+        channels.remove(c);
+    }
+
+    /**
+     * Notifies that endpoints were activated or deactivated in the container: the propagations are refreshed shortly
+     * after, once for all the changes notified in between, without waiting for the next polling.
+     * 
+     * The container does not notify the components of the endpoints (de)activated by the others, so this is only
+     * called for the endpoints of this component, and the polling is still needed for the others.
+     */
+    public void endpointsChanged() {
+        if (!open || !endpointsChangesPending.compareAndSet(false, true)) {
+            return;
+        }
+
+        GlobalEventExecutor.INSTANCE.schedule(new Runnable() {
+            @Override
+            public void run() {
+                // the changes notified from now on will need another refresh
+                endpointsChangesPending.set(false);
+                if (sendPropagations(false)) {
+                    logger.info("Changes in endpoints notified: propagations refreshed!");
+                }
+            }
+        }, ENDPOINTS_CHANGES_DELAY, TimeUnit.MILLISECONDS).addListener(new FutureListener<Object>() {
+            @Override
+            public void operationComplete(final @Nullable Future<Object> future) throws Exception {
+                assert future != null;
+                if (!future.isSuccess() && !future.isCancelled()) {
+                    logger.log(Level.WARNING, "Error during propagation refresh", future.cause());
+                }
+            }
+        });
+    }
+
+    /**
+     * The other side of this {@link Channel} missed some of the {@link TransportedPropagationsDelta}.
+     */
+    public void resendPropagations(final Channel c) {
         mainLock.lock();
         try {
-            channels.remove(c);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Resending the complete propagations (version " + propagations.getVersion() + ") to "
+                        + c.remoteAddress());
+            }
+            c.writeAndFlush(propagations);
         } finally {
             mainLock.unlock();
         }
@@ -317,18 +469,20 @@ public class ConsumerDomain extends AbstractDomain {
      * <code>false</code> and the interrupt flag is kept as set to be handled by the caller.
      * 
      * Sends the propagation to all channels if the domain is open, and either if force is <code>true</code> or if there
-     * is some changes.
+     * is some changes: in the later case, the channels supporting it only receive the changes, and a description is
+     * considered changed only if its content is different.
      * 
      * @return <code>true</code> if the propagations were sent.
      */
     private boolean sendPropagations(final boolean force) {
-        mainLock.lock();
+        propagationsLock.lock();
         try {
             if (!open) {
                 return false;
             }
-            boolean changes = false;
+            final Map<ServiceKey, TransportedDocument> previous = propagations.getPropagations();
             final Map<ServiceKey, TransportedDocument> propagated = new HashMap<>();
+            final Map<ServiceKey, TransportedDocument> updated = new HashMap<>();
             for (final Consumes c : consumes) {
                 assert c != null;
                 final String endpointName = c.getEndpointName();
@@ -356,17 +510,12 @@ public class ConsumerDomain extends AbstractDomain {
 
                     final ServiceKey service = new ServiceKey(endpointName, serviceName, interfaceName);
 
-                    if (!force) {
-                        // careful, the map can contains null for some keys!
-                        // so containsKey is not the same as get != null!
-                        if (!propagations.getPropagations().containsKey(service)) {
-                            // it means an endpoint was added/changed
-                            changes = true;
-                        } else if (description != null && propagations.getPropagations().get(service) == null) {
-                            // if they have the same value, but the description changed from null to non-null,
-                            // then it means something changed too!
-                            changes = true;
-                        }
+                    // careful, the map can contains null for some keys!
+                    // so containsKey is not the same as get != null!
+                    if (!previous.containsKey(service)
+                            || !TransportedDocument.sameContent(previous.get(service), description)) {
+                        // it means an endpoint was added or its description changed
+                        updated.put(service, description);
                     }
 
                     propagated.put(service, description);
@@ -377,24 +526,39 @@ public class ConsumerDomain extends AbstractDomain {
                 }
             }
 
-            if (!force) {
-                for (ServiceKey prevKey : propagations.getPropagations().keySet()) {
-                    if (!propagated.containsKey(prevKey)) {
-                        // it means endpoints were removed
-                        changes = true;
-                        break;
-                    }
+            // the whole polling is done, the endpoints that were not seen do not exist anymore
+            descriptions.evictUnused();
+
+            final Set<ServiceKey> removed = new HashSet<>();
+            for (final ServiceKey prevKey : previous.keySet()) {
+                if (!propagated.containsKey(prevKey)) {
+                    // it means endpoints were removed
+                    removed.add(prevKey);
                 }
             }
 
-            final boolean sendPropagations = force || changes;
-            if (sendPropagations) {
-                sendPropagations(new TransportedPropagations(propagated));
+            final boolean changes = !updated.isEmpty() || !removed.isEmpty();
+            if (!force && !changes) {
+                return false;
             }
 
-            return sendPropagations;
+            final long version = propagations.getVersion();
+            final TransportedPropagations toPropagate = new TransportedPropagations(epoch, version + 1, propagated);
+
+            mainLock.lock();
+            try {
+                if (!open) {
+                    // closed in the meantime
+                    return false;
+                }
+                // when forced, everything is sent again
+                return sendPropagations(toPropagate,
+                        force ? null : new TransportedPropagationsDelta(epoch, version, version + 1, updated, removed));
+            } finally {
+                mainLock.unlock();
+            }
         } finally {
-            mainLock.unlock();
+            propagationsLock.unlock();
         }
     }
 
@@ -430,12 +594,49 @@ public class ConsumerDomain extends AbstractDomain {
         return true;
     }
 
-    private void sendPropagations(final TransportedPropagations toPropagate) {
+    /**
+     * Must be called with {@link #mainLock} held.
+     * 
+     * The propagations are encoded once for all the channels (see {@link TransportedBroadcast}), and only published
+     * and written if they could be encoded for all of them: otherwise the previous ones are kept so that the next
+     * refresh sends them again.
+     * 
+     * @return <code>true</code> if the propagations were sent.
+     */
+    private boolean sendPropagations(final TransportedPropagations toPropagate,
+            final @Nullable TransportedPropagationsDelta delta) {
+        final List<TransportedBroadcast> broadcasts = new ArrayList<>();
+        try {
+            if (delta != null) {
+                broadcasts.add(TransportedBroadcast.encode(channels, delta, DELTA_SUPPORTED));
+                // the ones not supporting deltas need the complete propagations
+                broadcasts.add(
+                        TransportedBroadcast.encode(channels, toPropagate, ChannelMatchers.invert(DELTA_SUPPORTED)));
+            } else {
+                broadcasts.add(TransportedBroadcast.encode(channels, toPropagate, ChannelMatchers.all()));
+            }
+        } catch (final IOException e) {
+            for (final TransportedBroadcast broadcast : broadcasts) {
+                broadcast.release();
+            }
+            logger.log(Level.WARNING, "Failed to encode the propagations (version " + toPropagate.getVersion()
+                    + "), they will be sent again on the next refresh", e);
+            return false;
+        }
+
         propagations = toPropagate;
-        for (final Channel c : channels) {
-            assert c != null;
-            c.writeAndFlush(toPropagate);
+        for (final TransportedBroadcast broadcast : broadcasts) {
+            broadcast.writeAndFlush();
         }
+        return true;
+    }
+
+    private static long newEpoch() {
+        long epoch;
+        do {
+            epoch = ThreadLocalRandom.current().nextLong();
+        } while (epoch == TransportedPropagations.UNVERSIONED);
+        return epoch;
     }
 
     private @Nullable TransportedDocument getFirstDescription(final Collection<ServiceEndpoint> endpoints) {
@@ -443,10 +644,12 @@ public class ConsumerDomain extends AbstractDomain {
             try {
                 final Document desc = sum.getComponent().getContext().getEndpointDescriptor(endpoint);
                 if (desc != null) {
-                    return new TransportedDocument(desc);
+                    return descriptions.get(endpoint, desc);
                 }
             } catch (final JBIException e) {
                 logger.log(Level.WARNING, "Failed to retrieve endpoint descriptor of " + endpoint, e);
+            } catch (final IOException e) {
+                logger.log(Level.WARNING, "Failed to serialize endpoint descriptor of " + endpoint, e);
             }
         }
 
@@ -481,6 +684,45 @@ public class ConsumerDomain extends AbstractDomain {
                 operationName, currentFA.getFlowInstanceId(), currentFA.getFlowStepId());
     }
 
+    @Override
+    protected int getExchangesInProgressCapacity() {
+        return jcd.getExchangesInProgressCapacity();
+    }
+
+    @Override
+    protected long getDefaultExchangeExpiration() {
+        return jcd.getExchangeExpiration();
+    }
+
+    @Override
+    protected int getReplayBufferSize() {
+        return jcd.getReplayBufferSize();
+    }
+
+    /**
+     * All the channels of this domain come from the same consumer partner (it is identified by the auth name), so the
+     * answers of an exchange can be sent back on any of them.
+     */
+    @Override
+    protected @Nullable ChannelHandlerContext getLiveContext() {
+        for (final Channel c : channels) {
+            if (c.isActive()) {
+                final ChannelHandlerContext ctx = c.pipeline().context(HandlerConstants.DOMAIN_HANDLER);
+                if (ctx != null) {
+                    return ctx;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected long getExchangeTimeout(final TransportedMessage m, final JBISender jbiSender) {
+        assert jbiSender instanceof BcGatewayJBISender;
+        final Consumes consumes = this.retrieveConsumes(m);
+        return consumes != null ? ((BcGatewayJBISender) jbiSender).getTimeout(consumes) : 0;
+    }
+
     @Override
     protected void logAfterReceivingFromChannel(final TransportedMessage m) {
         // acting as a provider partner, i.e. we are going to consume a service
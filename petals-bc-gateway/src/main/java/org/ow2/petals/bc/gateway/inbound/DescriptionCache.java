@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.inbound;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jbi.servicedesc.ServiceEndpoint;
+
+import org.ow2.petals.bc.gateway.commons.messages.TransportedDocument;
+import org.ow2.petals.component.framework.util.ServiceEndpointKey;
+import org.w3c.dom.Document;
+
+/**
+ * The descriptions of the endpoints propagated by a {@link ConsumerDomain}, already serialized: each polling only
+ * compares what the container returns with what was already propagated, and the same {@link TransportedDocument} (and
+ * thus the same bytes) is kept as long as its content doesn't change.
+ * 
+ * The container usually returns the same {@link Document} for an endpoint, in which case it is not even serialized
+ * again to compute its digest.
+ * 
+ * It is not thread-safe: it is only used with the propagations lock of the {@link ConsumerDomain} held.
+ */
+public class DescriptionCache {
+
+    private static class CachedDescription {
+
+        private Document source;
+
+        private final TransportedDocument description;
+
+        private CachedDescription(final Document source, final TransportedDocument description) {
+            this.source = source;
+            this.description = description;
+        }
+    }
+
+    private final Map<ServiceEndpointKey, CachedDescription> descriptions = new HashMap<>();
+
+    /**
+     * The endpoints asked for since the last {@link #evictUnused()}.
+     */
+    private final Set<ServiceEndpointKey> used = new HashSet<>();
+
+    public TransportedDocument get(final ServiceEndpoint endpoint, final Document source) throws IOException {
+        final ServiceEndpointKey key = new ServiceEndpointKey(endpoint.getServiceName(), endpoint.getEndpointName());
+        used.add(key);
+
+        final CachedDescription cached = descriptions.get(key);
+        if (cached != null && cached.source == source) {
+            return cached.description;
+        }
+
+        final TransportedDocument description = TransportedDocument.serialize(source);
+        if (cached != null && TransportedDocument.sameContent(cached.description, description)) {
+            cached.source = source;
+            return cached.description;
+        }
+
+        descriptions.put(key, new CachedDescription(source, description));
+        return description;
+    }
+
+    /**
+     * Forgets the descriptions of the endpoints that were not asked for since the previous call.
+     */
+    public void evictUnused() {
+        descriptions.keySet().retainAll(used);
+        used.clear();
+    }
+
+    public void clear() {
+        descriptions.clear();
+        used.clear();
+    }
+}
@@ -23,13 +23,19 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.bc.gateway.commons.ExchangesExecutor;
 import org.ow2.petals.bc.gateway.commons.handlers.AuthenticatorSSLHandler;
 import org.ow2.petals.bc.gateway.commons.handlers.AuthenticatorSSLHandler.ConsumerAuthenticator;
 import org.ow2.petals.bc.gateway.commons.handlers.AuthenticatorSSLHandler.DomainHandlerBuilder;
 import org.ow2.petals.bc.gateway.commons.handlers.HandlerConstants;
 import org.ow2.petals.bc.gateway.commons.handlers.LastLoggingHandler;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedEncoder;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedFrameDecoder;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedFraming;
 import org.ow2.petals.bc.gateway.commons.messages.Transported.TransportedToProvider;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedAck;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedForExchange;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagationsResync;
 import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiTransportListener;
 import org.ow2.petals.bc.gateway.outbound.TransportClient;
 import org.ow2.petals.component.framework.api.exception.PEtALSCDKException;
@@ -106,7 +112,13 @@ public class TransportListener implements ConsumerAuthenticator {
                         final ChannelPipeline p = ch.pipeline();
                         p.addLast(HandlerConstants.LOG_DEBUG_HANDLER, debugs);
                         p.addLast(objectEncoder);
+                        final TransportedFraming framing = TransportedFraming.get(ch);
+                        p.addLast(HandlerConstants.CODEC_DECODER,
+                                new TransportedFrameDecoder(cr, framing.maxReassemblySize));
                         p.addLast(new ObjectDecoder(cr));
+                        // it will only be used once enabled during authentication
+                        p.addLast(HandlerConstants.CODEC_ENCODER,
+                                new TransportedEncoder(cr, framing.chunkSize, logger));
                         p.addLast(HandlerConstants.DOMAIN_HANDLER,
                                 new AuthenticatorSSLHandler(TransportListener.this, logger,
                                         new DomainHandlerBuilder<ConsumerDomain>() {
@@ -212,6 +224,7 @@ public class TransportListener implements ConsumerAuthenticator {
         public void handlerAdded(final @Nullable ChannelHandlerContext ctx) throws Exception {
             assert ctx != null;
             cd.registerChannel(ctx.channel());
+            cd.resendToChannel(ctx);
         }
 
         @Override
@@ -220,6 +233,18 @@ public class TransportListener implements ConsumerAuthenticator {
             cd.deregisterChannel(ctx.channel());
         }
 
+        /**
+         * While we can't send answers fast enough to the consumer partner, we stop accepting new messages from it
+         * (unless it was already stopped because we can't deliver them fast enough to the NMR)
+         */
+        @Override
+        public void channelWritabilityChanged(final @Nullable ChannelHandlerContext ctx) throws Exception {
+            assert ctx != null;
+            ctx.channel().config()
+                    .setAutoRead(ctx.channel().isWritable() && ExchangesExecutor.isReadable(ctx.channel()));
+            ctx.fireChannelWritabilityChanged();
+        }
+
         @Override
         protected void channelRead0(final @Nullable ChannelHandlerContext ctx,
                 final @Nullable TransportedToProvider msg) throws Exception {
@@ -228,6 +253,10 @@ public class TransportListener implements ConsumerAuthenticator {
 
             if (msg instanceof TransportedForExchange) {
                 cd.receiveFromChannel(ctx, (TransportedForExchange) msg);
+            } else if (msg instanceof TransportedAck) {
+                cd.receiveAckFromChannel((TransportedAck) msg);
+            } else if (msg instanceof TransportedPropagationsResync) {
+                cd.resendPropagations(ctx.channel());
             } else {
                 throw new IllegalArgumentException("Impossible case");
             }
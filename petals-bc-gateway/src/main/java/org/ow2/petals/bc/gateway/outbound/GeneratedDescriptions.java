@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.outbound;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedDocument;
+import org.ow2.petals.bc.gateway.utils.BcGatewayServiceEndpointHelper;
+import org.ow2.petals.commons.log.Level;
+import org.ow2.petals.component.framework.api.exception.PEtALSCDKException;
+import org.ow2.petals.component.framework.util.ServiceEndpointKey;
+import org.w3c.dom.Document;
+
+import com.ebmwebsourcing.easycommons.lang.UncheckedException;
+
+/**
+ * The descriptions generated by a {@link ProviderDomain} for the endpoints it activates, indexed by propagated service
+ * and identified by the endpoint and the digest of the received description they were generated from: they are not
+ * parsed and rewritten again as long as the same description is received for the same endpoint.
+ * 
+ * The endpoint generated for a service that doesn't match a provides is kept too, so that it can be reused (with its
+ * description) when the service is activated again.
+ * 
+ * It is thread-safe: the descriptions are generated in parallel. Each caller gets its own copy of the description, as
+ * it is then owned by the endpoint it is registered with.
+ */
+public class GeneratedDescriptions {
+
+    private static class GeneratedDescription {
+
+        private final @Nullable byte[] sourceDigest;
+
+        private final ServiceEndpointKey key;
+
+        private final QName interfaceName;
+
+        /**
+         * Never given as is, only copies of it
+         */
+        private final Document description;
+
+        private GeneratedDescription(final @Nullable byte[] sourceDigest, final ServiceEndpointKey key,
+                final QName interfaceName, final Document description) {
+            this.sourceDigest = sourceDigest;
+            this.key = key;
+            this.interfaceName = interfaceName;
+            this.description = description;
+        }
+
+        private boolean isFor(final @Nullable byte[] sourceDigest, final ServiceEndpointKey key,
+                final QName interfaceName) {
+            return Arrays.equals(this.sourceDigest, sourceDigest) && this.key.equals(key)
+                    && this.interfaceName.equals(interfaceName);
+        }
+
+        private Document copy() {
+            // reading a DOM is not thread-safe
+            synchronized (description) {
+                return (Document) description.cloneNode(true);
+            }
+        }
+    }
+
+    private final ConcurrentMap<ServiceKey, GeneratedDescription> descriptions = new ConcurrentHashMap<>();
+
+    private final Logger logger;
+
+    public GeneratedDescriptions(final Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * @param source
+     *            the description received for the service, can be <code>null</code>
+     */
+    public Document get(final @Nullable TransportedDocument source, final ServiceKey service,
+            final ServiceEndpointKey key, final QName interfaceName) throws PEtALSCDKException {
+        // the digest of a received description is computed from its bytes, before parsing it
+        final byte[] sourceDigest = source != null ? source.getDigest() : null;
+
+        final GeneratedDescription cached = descriptions.get(service);
+        if (cached != null && cached.isFor(sourceDigest, key, interfaceName)) {
+            return cached.copy();
+        }
+
+        final GeneratedDescription generated = new GeneratedDescription(sourceDigest, key, interfaceName,
+                BcGatewayServiceEndpointHelper.generateDescription(parse(service, source), service, key,
+                        interfaceName, logger));
+        descriptions.put(service, generated);
+        return generated.copy();
+    }
+
+    /**
+     * @return the endpoint the last description of this service was generated for, if any
+     */
+    public @Nullable ServiceEndpointKey getKey(final ServiceKey service) {
+        final GeneratedDescription cached = descriptions.get(service);
+        return cached != null ? cached.key : null;
+    }
+
+    public void evict(final ServiceKey service) {
+        descriptions.remove(service);
+    }
+
+    private @Nullable Document parse(final ServiceKey service, final @Nullable TransportedDocument document) {
+        if (document == null) {
+            return null;
+        }
+        try {
+            return document.getDocument();
+        } catch (final UncheckedException e) {
+            logger.log(Level.WARNING, "Couldn't parse the description propagated for service '" + service
+                    + "', it will be considered as missing", e);
+            return null;
+        }
+    }
+}
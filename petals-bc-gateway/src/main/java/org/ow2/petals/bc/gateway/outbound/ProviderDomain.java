@@ -19,16 +19,28 @@ package org.ow2.petals.bc.gateway.outbound;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
+import javax.jbi.messaging.MessagingException;
 import javax.xml.namespace.QName;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -36,19 +48,19 @@ import org.ow2.petals.bc.gateway.BcGatewayComponent;
 import org.ow2.petals.bc.gateway.BcGatewayJBISender;
 import org.ow2.petals.bc.gateway.JBISender;
 import org.ow2.petals.bc.gateway.commons.AbstractDomain;
+import org.ow2.petals.bc.gateway.commons.ExchangesExecutor;
 import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedDocument;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedMessage;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagations;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagationsDelta;
 import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiProviderDomain;
 import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiProvidesConfig;
 import org.ow2.petals.bc.gateway.utils.BcGatewayJbiHelper.Pair;
 import org.ow2.petals.bc.gateway.utils.BcGatewayProvideExtFlowStepBeginLogData;
-import org.ow2.petals.bc.gateway.utils.BcGatewayServiceEndpointHelper;
 import org.ow2.petals.commons.log.FlowAttributes;
 import org.ow2.petals.commons.log.Level;
 import org.ow2.petals.commons.log.PetalsExecutionContext;
-import org.ow2.petals.component.framework.AbstractComponent;
 import org.ow2.petals.component.framework.api.exception.PEtALSCDKException;
 import org.ow2.petals.component.framework.api.message.Exchange;
 import org.ow2.petals.component.framework.jbidescriptor.generated.Provides;
@@ -65,6 +77,9 @@ import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.serialization.ClassResolver;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 
 /**
  * There is one instance of this class per opened connection to a provider partner.
@@ -96,9 +111,10 @@ public class ProviderDomain extends AbstractDomain {
     private final TransportClient client;
 
     /**
-     * lock for manipulating the {@link #services}, {@link #jpd} and {@link #init},
+     * lock for manipulating the {@link #services}, {@link #jpd}, {@link #init} and {@link #updates}: it is only held
+     * for short periods, the endpoints are never (de)activated with it.
      */
-    private final Lock mainLock = new ReentrantLock(true);
+    private final Lock mainLock = new ReentrantLock();
 
     /**
      * Updated by {@link #updatePropagatedServices(TransportedPropagations)}.
@@ -111,7 +127,39 @@ public class ProviderDomain extends AbstractDomain {
      */
     private final Map<ServiceKey, ServiceData> services = new HashMap<>();
 
-    private final AbstractComponent component;
+    /**
+     * The epoch and version of the {@link TransportedPropagations} that {@link #services} corresponds to (they are
+     * {@link TransportedPropagations#UNVERSIONED} if the other side doesn't version them).
+     */
+    private long propagationsEpoch = TransportedPropagations.UNVERSIONED;
+
+    private long propagationsVersion = TransportedPropagations.UNVERSIONED;
+
+    private final BcGatewayComponent component;
+
+    /**
+     * The descriptions of the endpoints activated without a WSDL of their own.
+     */
+    private final GeneratedDescriptions descriptions;
+
+    /**
+     * The endpoints are (de)activated and their descriptions generated in parallel by the component (see
+     * {@link BcGatewayComponent#executeDescriptionTask(Runnable)}).
+     */
+    private final Executor endpointsExecutor = new Executor() {
+        @Override
+        public void execute(final @Nullable Runnable command) {
+            assert command != null;
+            component.executeDescriptionTask(command);
+        }
+    };
+
+    /**
+     * The updates of the activated endpoints not yet done (by {@link #register()}, {@link #deregister()} and the
+     * propagations updates): they are chained so that they are done one after the other, in the order they were asked,
+     * without holding the {@link #mainLock}.
+     */
+    private CompletableFuture<Void> updates = CompletableFuture.completedFuture(null);
 
     /**
      * Not final because it can be updated by {@link #reload(JbiProviderDomain)}.
@@ -120,25 +168,90 @@ public class ProviderDomain extends AbstractDomain {
 
     private boolean init = false;
 
+    /**
+     * New exchanges waiting for one of the connections to not be congested anymore (see
+     * {@link JbiProviderDomain#getCongestionQueueSize()}).
+     */
+    private final Queue<CongestedExchange> congested = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The size of {@link #congested}, reserved before adding to it.
+     */
+    private final AtomicInteger congestedCount = new AtomicInteger();
+
+    private static class CongestedExchange {
+
+        private final ServiceKey service;
+
+        private final Exchange exchange;
+
+        private final FlowAttributes flowAttributes;
+
+        /**
+         * Set after being added to {@link ProviderDomain#congested}
+         */
+        private volatile @Nullable Timeout deadline;
+
+        public CongestedExchange(final ServiceKey service, final Exchange exchange,
+                final FlowAttributes flowAttributes) {
+            this.service = service;
+            this.exchange = exchange;
+            this.flowAttributes = flowAttributes;
+        }
+    }
+
     private static class ServiceData {
 
-        private @Nullable Document description;
+        /**
+         * Not parsed unless a description has to be generated from it.
+         */
+        private @Nullable TransportedDocument description;
 
         private @Nullable ServiceEndpointKey key;
 
-        public ServiceData(final @Nullable Document description) {
+        public ServiceData(final @Nullable TransportedDocument description) {
+            this.description = description;
+        }
+    }
+
+    /**
+     * A propagated service to (re-)register: it is computed with the {@link #mainLock} held, done without it and then
+     * committed with it.
+     */
+    private static class Registration {
+
+        private final ServiceKey service;
+
+        private final ServiceData data;
+
+        private final @Nullable TransportedDocument description;
+
+        private final boolean reregister;
+
+        private final ServiceEndpointKey key;
+
+        private @Nullable PEtALSCDKException error;
+
+        public Registration(final ServiceKey service, final ServiceData data,
+                final @Nullable TransportedDocument description, final boolean reregister,
+                final ServiceEndpointKey key) {
+            this.service = service;
+            this.data = data;
             this.description = description;
+            this.reregister = reregister;
+            this.key = key;
         }
     }
 
     public ProviderDomain(final BcGatewayComponent component, final ServiceUnitDataHandler handler,
             final JbiProviderDomain jpd, final Collection<Pair<Provides, JbiProvidesConfig>> provides,
-            final JBISender sender, final Bootstrap partialBootstrap, final Logger logger, final ClassResolver cr)
-            throws PEtALSCDKException {
-        super(sender, handler, logger);
+            final JBISender sender, final Bootstrap partialBootstrap, final Timer timer,
+            final ExchangesExecutor executor, final Logger logger, final ClassResolver cr) throws PEtALSCDKException {
+        super(sender, handler, timer, executor, logger);
 
         this.matcher = component;
         this.component = component;
+        this.descriptions = new GeneratedDescriptions(logger);
         this.jpd = jpd;
         this.service2provides = new Service2ProvidesMatcher(provides);
         this.client = new TransportClient(handler, partialBootstrap, logger, cr, this);
@@ -150,6 +263,8 @@ public class ProviderDomain extends AbstractDomain {
     }
 
     public void reload(final JbiProviderDomain newJPD) {
+        // the certificate and key files are read again by the next connections
+        getSslContext().invalidate();
         mainLock.lock();
         try {
             if (!jpd.getRemoteAuthName().equals(newJPD.getRemoteAuthName())
@@ -158,9 +273,21 @@ public class ProviderDomain extends AbstractDomain {
                     || !StringHelper.equal(jpd.getCertificate(), newJPD.getCertificate())
                     || !StringHelper.equal(jpd.getRemoteCertificate(), newJPD.getRemoteCertificate())
                     || !StringHelper.equal(jpd.getKey(), newJPD.getKey())
-                    || !jpd.getPassphrase().equals(newJPD.getPassphrase())) {
+                    || !jpd.getPassphrase().equals(newJPD.getPassphrase())
+                    || jpd.getConnections() != newJPD.getConnections()
+                    || jpd.getConnectionSelection() != newJPD.getConnectionSelection()
+                    || jpd.isReliable() != newJPD.isReliable()) {
                 jpd = newJPD;
                 connect(true);
+            } else if (jpd.getWriteBufferLowWaterMark() != newJPD.getWriteBufferLowWaterMark()
+                    || jpd.getWriteBufferHighWaterMark() != newJPD.getWriteBufferHighWaterMark()
+                    || jpd.getCongestionQueueSize() != newJPD.getCongestionQueueSize()
+                    || jpd.getExchangesInProgressCapacity() != newJPD.getExchangesInProgressCapacity()
+                    || jpd.getExchangeExpiration() != newJPD.getExchangeExpiration()
+                    || jpd.getReplayBufferSize() != newJPD.getReplayBufferSize()) {
+                // no need to reconnect for these
+                jpd = newJPD;
+                client.updateWriteBufferWaterMark();
             }
         } finally {
             mainLock.unlock();
@@ -170,8 +297,20 @@ public class ProviderDomain extends AbstractDomain {
     /**
      * Register propagated consumes for the JBI listener, can be called after or before the component has started (i.e.,
      * {@link #connect(boolean)} has been called).
+     * 
+     * It waits for the propagations updates received before.
      */
     public void register() throws PEtALSCDKException {
+        await(enqueue(new Function<Void, CompletionStage<Void>>() {
+            @Override
+            public CompletionStage<Void> apply(final @Nullable Void v) {
+                return doRegister();
+            }
+        }));
+    }
+
+    private CompletableFuture<Void> doRegister() {
+        final List<Registration> registrations = new ArrayList<>();
         mainLock.lock();
         try {
             for (final Entry<ServiceKey, ServiceData> e : services.entrySet()) {
@@ -179,55 +318,138 @@ public class ProviderDomain extends AbstractDomain {
                 final ServiceData data = e.getValue();
                 assert sk != null;
                 assert data != null;
-                registerProviderService(sk, data);
+                registrations.add(new Registration(sk, data, data.description, false, newServiceEndpointKey(sk)));
             }
+        } finally {
+            mainLock.unlock();
+        }
 
-            init = true;
+        return activate(registrations, Collections.<ServiceData> emptyList()).thenRun(new Runnable() {
+            @Override
+            public void run() {
+                PEtALSCDKException error = null;
+                for (final Registration r : registrations) {
+                    final PEtALSCDKException e = r.error;
+                    if (e != null) {
+                        if (error == null) {
+                            error = e;
+                        } else {
+                            error.addSuppressed(e);
+                        }
+                    }
+                }
 
-        } catch (final PEtALSCDKException e) {
-            logger.severe("Error during ProviderDomain init, undoing everything");
+                if (error != null) {
+                    logger.severe("Error during ProviderDomain init, undoing everything");
+                    for (final Registration r : registrations) {
+                        deregisterOrStoreOrLog(r.data, null);
+                    }
+                    throw new CompletionException(error);
+                }
 
-            for (final ServiceData data : services.values()) {
-                assert data != null;
-                deregisterOrStoreOrLog(data, null);
+                mainLock.lock();
+                try {
+                    init = true;
+                } finally {
+                    mainLock.unlock();
+                }
             }
-
-            throw e;
-        } finally {
-            mainLock.unlock();
-        }
+        });
     }
 
     /**
      * Deregister the propagated consumes for the JBI Listener
+     * 
+     * It waits for the propagations updates received before.
      */
     public void deregister() throws PEtALSCDKException {
+        await(enqueue(new Function<Void, CompletionStage<Void>>() {
+            @Override
+            public CompletionStage<Void> apply(final @Nullable Void v) {
+                return doDeregister();
+            }
+        }));
+    }
 
-        final List<Exception> exceptions = new ArrayList<>();
-
+    private CompletableFuture<Void> doDeregister() {
+        final List<ServiceData> deregistrations;
         mainLock.lock();
         try {
             init = false;
-
-            for (final ServiceData data : services.values()) {
-                assert data != null;
-                deregisterOrStoreOrLog(data, exceptions);
-            }
+            deregistrations = new ArrayList<>(services.values());
         } finally {
             mainLock.unlock();
         }
 
-        if (!exceptions.isEmpty()) {
-            final PEtALSCDKException ex = new PEtALSCDKException("Errors during ProviderDomain shutdown");
-            for (final Exception e : exceptions) {
-                ex.addSuppressed(e);
-            }
-            throw ex;
+        final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+        final List<Runnable> tasks = new ArrayList<>();
+        for (final ServiceData data : deregistrations) {
+            assert data != null;
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    deregisterOrStoreOrLog(data, exceptions);
+                }
+            });
         }
+
+        return runInParallel(tasks).thenRun(new Runnable() {
+            @Override
+            public void run() {
+                if (!exceptions.isEmpty()) {
+                    final PEtALSCDKException ex = new PEtALSCDKException("Errors during ProviderDomain shutdown");
+                    for (final Exception e : exceptions) {
+                        ex.addSuppressed(e);
+                    }
+                    throw new CompletionException(ex);
+                }
+            }
+        });
     }
 
     public void updatePropagatedServices(final TransportedPropagations propagatedServices) {
-        updatePropagatedServices(propagatedServices.getPropagations());
+        mainLock.lock();
+        try {
+            if (propagatedServices.isVersioned() && propagatedServices.getEpoch() == propagationsEpoch
+                    && propagatedServices.getVersion() < propagationsVersion) {
+                // all the channels receive the propagations: a more recent version was received on another one
+                return;
+            }
+            propagationsEpoch = propagatedServices.getEpoch();
+            propagationsVersion = propagatedServices.getVersion();
+            updatePropagatedServices(propagatedServices.getPropagations(), null);
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the delta doesn't apply to the version we know: the complete propagations must be
+     *         asked again
+     */
+    public boolean updatePropagatedServices(final TransportedPropagationsDelta delta) {
+        mainLock.lock();
+        try {
+            if (delta.epoch != propagationsEpoch) {
+                return false;
+            }
+            if (delta.version <= propagationsVersion) {
+                // all the channels receive the deltas: it was already received on another one
+                return true;
+            }
+            if (delta.baseVersion != propagationsVersion) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.fine("Missed propagations between versions " + propagationsVersion + " and "
+                            + delta.baseVersion);
+                }
+                return false;
+            }
+            propagationsVersion = delta.version;
+            updatePropagatedServices(delta.updated, delta.removed);
+            return true;
+        } finally {
+            mainLock.unlock();
+        }
     }
 
     /**
@@ -240,120 +462,250 @@ public class ProviderDomain extends AbstractDomain {
      * It can be executed after or before {@link #register()} has been called.
      * 
      * In case of reconnection, it can be called again or if there is an update from the other side.
+     * 
+     * The update is done asynchronously, after the previous ones: the changes are computed, then the endpoints are
+     * (de)activated in parallel (and their descriptions generated) and finally the changes are committed to
+     * {@link #services}.
+     * 
+     * @param removed
+     *            <code>null</code> if propagated contains all the propagated services, else propagated only contains
+     *            those that were added or whose description changed.
      */
-    private void updatePropagatedServices(final Map<ServiceKey, TransportedDocument> propagated) {
+    private void updatePropagatedServices(final Map<ServiceKey, TransportedDocument> propagated,
+            final @Nullable Set<ServiceKey> removed) {
+        enqueue(new Function<Void, CompletionStage<Void>>() {
+            @Override
+            public CompletionStage<Void> apply(final @Nullable Void v) {
+                return applyPropagatedServices(propagated, removed);
+            }
+        }).exceptionally(new Function<Throwable, Void>() {
+            @Override
+            public @Nullable Void apply(final @Nullable Throwable e) {
+                logger.log(Level.WARNING, "Couldn't update the propagated services", e);
+                return null;
+            }
+        });
+    }
+
+    private CompletableFuture<Void> applyPropagatedServices(final Map<ServiceKey, TransportedDocument> propagated,
+            final @Nullable Set<ServiceKey> removed) {
+        final List<Registration> registrations = new ArrayList<>();
+        final Map<ServiceKey, ServiceData> deregistrations = new HashMap<>();
+        final boolean activate;
+
         mainLock.lock();
         try {
             final Set<ServiceKey> oldKeys = new HashSet<>(services.keySet());
 
-            // TODO handle exceptions and log them?
             for (final Entry<ServiceKey, TransportedDocument> entry : propagated.entrySet()) {
                 final ServiceKey service = entry.getKey();
                 assert service != null;
-                final Document document = entry.getValue() != null ? entry.getValue().getDocument() : null;
 
                 // let's skip those we are not concerned with
                 if (!jpd.isPropagateAll() && service2provides.getProvides(service) == null) {
                     continue;
                 }
 
-                final boolean register;
-                final ServiceData data;
+                final TransportedDocument document = entry.getValue();
 
                 if (oldKeys.remove(service)) {
                     // we already knew this service from a previous event
-                    data = services.get(service);
+                    final ServiceData data = services.get(service);
                     assert data != null;
-                    if (document != null && data.description == null) {
+                    // with a delta, it is only received again if its description changed
+                    if (document != null && (removed != null || data.description == null)) {
                         final Provides p = service2provides.getProvides(service);
                         if (p != null && p.getWsdl() != null) {
                             // in this case we deregister and re-register it with the right document
-                            data.description = document;
-                            deregisterOrStoreOrLog(data, null);
-                            register = true;
-                        } else {
-                            // in this case, we anyway use the provides description
-                            register = false;
+                            registrations.add(
+                                    new Registration(service, data, document, true, newServiceEndpointKey(service)));
                         }
-                    } else {
-                        // in this case we don't touch it
-                        register = false;
+                        // else, we anyway use the provides description
                     }
+                    // else we don't touch it
                 } else {
                     // the service is new!
-                    data = new ServiceData(document);
-                    register = true;
+                    registrations.add(new Registration(service, new ServiceData(document), document, false,
+                            newServiceEndpointKey(service)));
                 }
+            }
 
-                if (register) {
-                    try {
-                        if (init) {
-                            registerProviderService(service, data);
-                        }
+            // these services from a previous connection do not exist anymore!
+            for (final ServiceKey sk : removed != null ? removed : oldKeys) {
+                final ServiceData data = services.get(sk);
+                // with a delta, we may have skipped it
+                if (data != null) {
+                    deregistrations.put(sk, data);
+                }
+            }
 
-                        // we add it after we are sure no error happened with the registration
-                        services.put(service, data);
-                    } catch (final PEtALSCDKException e) {
-                        logger.log(Level.WARNING,
-                                "Couldn't register propagated service '" + service + "' (" + data.key + ")",
-                                e);
-                    }
+            // it can only be changed by register() and deregister(), which are done after this update
+            activate = init;
+        } finally {
+            mainLock.unlock();
+        }
+
+        final CompletableFuture<Void> done;
+        if (activate) {
+            done = activate(registrations, deregistrations.values());
+        } else {
+            for (final Registration r : registrations) {
+                r.data.description = r.description;
+            }
+            done = CompletableFuture.completedFuture(null);
+        }
+
+        return done.thenRun(new Runnable() {
+            @Override
+            public void run() {
+                commitPropagatedServices(registrations, deregistrations.keySet());
+            }
+        });
+    }
+
+    private void commitPropagatedServices(final List<Registration> registrations,
+            final Set<ServiceKey> deregistrations) {
+        mainLock.lock();
+        try {
+            for (final Registration r : registrations) {
+                final PEtALSCDKException e = r.error;
+                if (e == null) {
+                    // we add it after we are sure no error happened with the registration
+                    services.put(r.service, r.data);
+                } else {
+                    logger.log(Level.WARNING,
+                            "Couldn't register propagated service '" + r.service + "' (" + r.key + ")", e);
                 }
             }
 
-            // these services from a previous connection do not exist anymore!
-            for (final ServiceKey sk : oldKeys) {
-                final ServiceData data = services.remove(sk);
-                assert data != null;
-                deregisterOrStoreOrLog(data, null);
+            for (final ServiceKey sk : deregistrations) {
+                services.remove(sk);
+                // it won't be activated again
+                descriptions.evict(sk);
             }
         } finally {
             mainLock.unlock();
         }
     }
 
-    private void registerProviderService(final ServiceKey sk, final ServiceData data) throws PEtALSCDKException {
+    /**
+     * (De)activates the endpoints in parallel: the errors of the registrations are kept in them.
+     */
+    private CompletableFuture<Void> activate(final List<Registration> registrations,
+            final Collection<ServiceData> deregistrations) {
+        final List<Runnable> tasks = new ArrayList<>();
+        for (final Registration r : registrations) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    final ServiceData data = r.data;
+                    if (r.reregister) {
+                        data.description = r.description;
+                        deregisterOrStoreOrLog(data, null);
+                    }
+                    try {
+                        registerProviderService(r.service, data, r.key);
+                    } catch (final PEtALSCDKException e) {
+                        r.error = e;
+                    }
+                }
+            });
+        }
+        for (final ServiceData data : deregistrations) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    deregisterOrStoreOrLog(data, null);
+                }
+            });
+        }
+        return runInParallel(tasks);
+    }
 
-        final ProviderService provider = new ProviderService() {
-            @Override
-            public void sendToChannel(final Exchange exchange) {
-                ProviderDomain.this.sendToChannel(sk, exchange);
-            }
-        };
+    private CompletableFuture<Void> runInParallel(final List<Runnable> tasks) {
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = CompletableFuture.runAsync(tasks.get(i), endpointsExecutor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
 
-        final Provides p = service2provides.getProvides(sk);
+    /**
+     * @return the given update, done after the previous ones
+     */
+    private CompletableFuture<Void> enqueue(final Function<Void, CompletionStage<Void>> update) {
+        mainLock.lock();
+        try {
+            final CompletableFuture<Void> res = updates.thenComposeAsync(update, endpointsExecutor);
+            // the next updates are done even if this one failed
+            updates = res.handle(new BiFunction<Void, Throwable, Void>() {
+                @Override
+                public @Nullable Void apply(final @Nullable Void v, final @Nullable Throwable e) {
+                    return null;
+                }
+            });
+            return res;
+        } finally {
+            mainLock.unlock();
+        }
+    }
 
-        final ServiceEndpointKey key;
-        final QName interfaceName;
-        final boolean generateDescription;
-        if (p != null) {
-            key = new ServiceEndpointKey(p);
-            interfaceName = p.getInterfaceName();
-            if (p.getWsdl() == null) {
-                generateDescription = true;
-            } else {
-                // we will use the description managed by the ServiceUnitManager, the component will retrieve it
-                generateDescription = false;
+    private static void await(final CompletableFuture<Void> update) throws PEtALSCDKException {
+        try {
+            update.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof PEtALSCDKException) {
+                throw (PEtALSCDKException) cause;
             }
-        } else {
-            key = generateSEK(sk);
-            generateDescription = true;
-            interfaceName = sk.interfaceName;
+            throw new PEtALSCDKException(cause);
         }
-        assert interfaceName != null;
+    }
+
+    private void registerProviderService(final ServiceKey sk, final ServiceData data, final ServiceEndpointKey key)
+            throws PEtALSCDKException {
+
+        final ProviderService provider = new ProviderService() {
+            @Override
+            public boolean sendToChannel(final Exchange exchange) {
+                return ProviderDomain.this.sendToChannel(sk, exchange);
+            }
+        };
 
         data.key = key;
 
-        if (generateDescription) {
+        if (needsGeneratedDescription(sk)) {
             // note: data.description can be null!
-            final Document description = BcGatewayServiceEndpointHelper.generateDescription(data.description, sk, key,
-                    interfaceName, logger);
+            final Document description = descriptions.get(data.description, sk, key, getInterfaceName(sk));
             matcher.register(key, provider, description);
         } else {
+            // we will use the description managed by the ServiceUnitManager, the component will retrieve it
             matcher.register(key, provider);
         }
     }
 
+    private ServiceEndpointKey newServiceEndpointKey(final ServiceKey sk) {
+        final Provides p = service2provides.getProvides(sk);
+        if (p != null) {
+            return new ServiceEndpointKey(p);
+        }
+        // the same one as the last time it was activated, so that its generated description can be reused
+        final ServiceEndpointKey previous = descriptions.getKey(sk);
+        return previous != null ? previous : generateSEK(sk);
+    }
+
+    private boolean needsGeneratedDescription(final ServiceKey sk) {
+        final Provides p = service2provides.getProvides(sk);
+        return p == null || p.getWsdl() == null;
+    }
+
+    private QName getInterfaceName(final ServiceKey sk) {
+        final Provides p = service2provides.getProvides(sk);
+        final QName interfaceName = p != null ? p.getInterfaceName() : sk.interfaceName;
+        assert interfaceName != null;
+        return interfaceName;
+    }
+
     private void deregisterOrStoreOrLog(final ServiceData data, final @Nullable Collection<Exception> exceptions) {
         final ServiceEndpointKey key = data.key;
         if (key != null) {
@@ -374,7 +726,6 @@ public class ProviderDomain extends AbstractDomain {
         }
     }
 
-
     private static ServiceEndpointKey generateSEK(final ServiceKey sk) {
         // Note: we should not propagate endpoint name, it is local to each domain
         final String endpointName = EndpointUtil.generateEndpointName();
@@ -385,16 +736,129 @@ public class ProviderDomain extends AbstractDomain {
     /**
      * This is used to send to the channel for (1st step) exchanges arriving on JBI
      * 
-     * 3rd is taken care of by {@link AbstractDomain}.
+     * 3rd is taken care of by {@link AbstractDomain} on the channel the exchange was sent on.
+     * 
+     * If all the connections are congested, the exchange is kept in {@link #congested} (if there is room for it) until
+     * one of them is writable again, or else it is rejected.
+     * 
+     * @return <code>false</code> if the exchange was rejected
      */
-    private void sendToChannel(final ServiceKey service, final Exchange exchange) {
-        // let's use the context of the client
+    private boolean sendToChannel(final ServiceKey service, final Exchange exchange) {
+        // let's use the context of one of the channels of the client
         final ChannelHandlerContext ctx = client.getDomainContext();
         // it can't be null because it would mean that the component is stopped and in that case we
         // wouldn't be receiving messages!
         assert ctx != null;
 
-        sendFromNMRToChannel(ctx, service, null, exchange);
+        if (isCongested(ctx)) {
+            if (congestedCount.incrementAndGet() > jpd.getCongestionQueueSize()) {
+                congestedCount.decrementAndGet();
+                final String msg = String.format(
+                        "The provider domain '%s' is congested, the exchange can't be sent to it for now", getId());
+                logger.fine(msg);
+                exchange.setError(new MessagingException(msg));
+                return false;
+            }
+            final FlowAttributes fa = PetalsExecutionContext.getFlowAttributes();
+            // it was set by the CDK
+            assert fa != null;
+            final CongestedExchange ce = new CongestedExchange(service, exchange, fa);
+            congested.add(ce);
+            // the consumer won't wait for an answer longer than that
+            final long timeout = getTimeout(service, sender);
+            final long deadline = timeout > 0 ? timeout : getDefaultExchangeExpiration();
+            if (deadline > 0) {
+                // if it was already sent, congestionExpired() will simply do nothing
+                ce.deadline = timer.newTimeout(new TimerTask() {
+                    @Override
+                    public void run(final @Nullable Timeout t) {
+                        executor.execute(exchange.getExchangeId(), new Runnable() {
+                            @Override
+                            public void run() {
+                                congestionExpired(ce);
+                            }
+                        });
+                    }
+                }, deadline, TimeUnit.MILLISECONDS);
+            }
+            // in case a connection became writable in the meantime
+            sendCongestedExchanges();
+        } else {
+            sendFromNMRToChannel(ctx, service, null, exchange);
+        }
+        return true;
+    }
+
+    /**
+     * A closed channel is not considered congested: sending on it will fail and be handled as such.
+     */
+    private static boolean isCongested(final ChannelHandlerContext ctx) {
+        return ctx.channel().isActive() && !ctx.channel().isWritable();
+    }
+
+    /**
+     * Send the exchanges kept while all the connections were congested, as long as there is a connection that is not.
+     * 
+     * It is called when a connection becomes writable again or is closed: if there is no connection at all anymore,
+     * they are sent back with an error.
+     */
+    void sendCongestedExchanges() {
+        if (congested.isEmpty()) {
+            return;
+        }
+        final FlowAttributes current = PetalsExecutionContext.getFlowAttributes();
+        try {
+            while (true) {
+                final ChannelHandlerContext ctx = client.getDomainContext();
+                if (ctx != null && isCongested(ctx)) {
+                    return;
+                }
+                final CongestedExchange ce = congested.poll();
+                if (ce == null) {
+                    return;
+                }
+                congestedCount.decrementAndGet();
+                final Timeout deadline = ce.deadline;
+                if (deadline != null) {
+                    deadline.cancel();
+                }
+                // the flow attributes of the provide step the exchange was received in
+                PetalsExecutionContext.putFlowAttributes(ce.flowAttributes);
+                if (ctx == null) {
+                    // we are disconnected
+                    sendErrorToNMR(ce.exchange, new MessagingException(String.format(
+                            "The provider domain '%s' was disconnected before the exchange could be sent", getId())));
+                } else {
+                    sendFromNMRToChannel(ctx, ce.service, null, ce.exchange);
+                }
+            }
+        } finally {
+            if (current != null) {
+                PetalsExecutionContext.putFlowAttributes(current);
+            } else {
+                PetalsExecutionContext.clear();
+            }
+        }
+    }
+
+    /**
+     * The exchange was kept in {@link #congested} for too long: it is sent back with an error.
+     */
+    private void congestionExpired(final CongestedExchange ce) {
+        // it may have been sent in the meantime
+        if (congested.remove(ce)) {
+            congestedCount.decrementAndGet();
+            PetalsExecutionContext.putFlowAttributes(ce.flowAttributes);
+            try {
+                final String msg = String.format(
+                        "The provider domain '%s' stayed congested for too long, the exchange couldn't be sent to it",
+                        getId());
+                logger.warning(msg);
+                sendErrorToNMR(ce.exchange, new MessagingException(msg));
+            } finally {
+                PetalsExecutionContext.clear();
+            }
+        }
     }
 
     /**
@@ -412,6 +876,8 @@ public class ProviderDomain extends AbstractDomain {
      */
     public void disconnect() {
         client.disconnect();
+        // there is no connection anymore to send them on
+        sendCongestedExchanges();
     }
     
     public JbiProviderDomain getJPD() {
@@ -452,6 +918,38 @@ public class ProviderDomain extends AbstractDomain {
                 operationName, provideStep.getFlowInstanceId(), provideStep.getFlowStepId());
     }
 
+    @Override
+    protected int getExchangesInProgressCapacity() {
+        return jpd.getExchangesInProgressCapacity();
+    }
+
+    @Override
+    protected long getDefaultExchangeExpiration() {
+        return jpd.getExchangeExpiration();
+    }
+
+    @Override
+    protected int getReplayBufferSize() {
+        return jpd.getReplayBufferSize();
+    }
+
+    @Override
+    protected @Nullable ChannelHandlerContext getLiveContext() {
+        final ChannelHandlerContext ctx = client.getDomainContext();
+        return ctx != null && ctx.channel().isActive() ? ctx : null;
+    }
+
+    @Override
+    protected long getExchangeTimeout(final TransportedMessage m, final JBISender jbiSender) {
+        return getTimeout(m.service, jbiSender);
+    }
+
+    private long getTimeout(final ServiceKey service, final JBISender jbiSender) {
+        assert jbiSender instanceof BcGatewayJBISender;
+        final Provides provides = this.service2provides.getProvides(service);
+        return provides != null ? ((BcGatewayJBISender) jbiSender).getTimeout(provides) : 0;
+    }
+
     @Override
     protected void logAfterReceivingFromChannel(final TransportedMessage m) {
         // can't happen in provider domain
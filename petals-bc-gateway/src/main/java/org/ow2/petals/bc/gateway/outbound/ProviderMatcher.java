@@ -17,6 +17,8 @@
  */
 package org.ow2.petals.bc.gateway.outbound;
 
+import javax.jbi.servicedesc.ServiceEndpoint;
+
 import org.eclipse.jdt.annotation.Nullable;
 import org.ow2.petals.component.framework.api.exception.PEtALSCDKException;
 import org.ow2.petals.component.framework.util.ServiceEndpointKey;
@@ -25,7 +27,7 @@ import org.w3c.dom.Document;
 public interface ProviderMatcher {
 
     @Nullable
-    ProviderService matches(ServiceEndpointKey key);
+    ProviderService matches(ServiceEndpoint endpoint);
 
     void register(ServiceEndpointKey key, ProviderService ps, Document description) throws PEtALSCDKException;
 
@@ -21,6 +21,10 @@ import org.ow2.petals.component.framework.api.message.Exchange;
 
 public interface ProviderService {
 
-    void sendToChannel(Exchange exchange);
+    /**
+     * @return <code>false</code> if the exchange was rejected because the provider domain is congested: its error is
+     *         set and it must be sent back
+     */
+    boolean sendToChannel(Exchange exchange);
 
 }
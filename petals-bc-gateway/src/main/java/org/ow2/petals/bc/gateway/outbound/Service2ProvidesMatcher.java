@@ -32,89 +32,72 @@ import org.ow2.petals.component.framework.jbidescriptor.generated.Provides;
 
 /**
  * 
- * The specificity of this class is to take care of <code>null</code> endpointName.
+ * Finds the {@link Provides} matching the services propagated by a provider domain.
  * 
- * TODO add tests related to that!
+ * The configurations of the {@link Provides} are compiled at construction into a flat index of {@link ServiceKey}s.
+ * A configuration without endpoint name matches any endpoint of its service (including a service propagated without
+ * endpoint name), and a configuration without service name matches any service of its interface: the most specific
+ * configuration is used (the validation ensures there is only one).
  * 
  * @author vnoel
  */
 public class Service2ProvidesMatcher {
 
     /**
-     * See {@link #validate(Map)} for the conditions it holds.
+     * The configurations with a service name: without an endpoint name, they are indexed by a {@link ServiceKey}
+     * without endpoint name.
      */
-    private final Map<QName, Map<QName, Map<String, Provides>>> provides = new HashMap<>();
+    private final Map<ServiceKey, Provides> byServices = new HashMap<>();
+
+    /**
+     * The configurations without service name, indexed by interface name.
+     */
+    private final Map<QName, Provides> byInterfaces = new HashMap<>();
+
+    /**
+     * If some of the {@link #byServices} have no endpoint name: it avoids a second lookup otherwise.
+     */
+    private boolean anyEndpoint = false;
 
     public Service2ProvidesMatcher(final Collection<Pair<Provides, JbiProvidesConfig>> provides)
             throws PEtALSCDKException {
         for (final Pair<Provides, JbiProvidesConfig> pair : provides) {
             addToProvides(pair.getA(), pair.getB());
         }
-
-        // ensure there is no bug in the implementation
-        assert validate(this.provides);
     }
 
     private void addToProvides(final Provides p, final JbiProvidesConfig config) throws PEtALSCDKException {
         // can't be null
         final QName interfaceName = config.getProviderInterfaceName();
-        Map<QName, Map<String, Provides>> byServices = provides.get(interfaceName);
-        if (byServices == null) {
-            byServices = new HashMap<>();
-            provides.put(interfaceName, byServices);
-        }
-
-        // can't be null
+        // can be null
         final QName serviceName = config.getProviderServiceName();
-        Map<String, Provides> byEndpoints = byServices.get(serviceName);
-        if (byEndpoints == null) {
-            byEndpoints = new HashMap<>();
-            byServices.put(serviceName, byEndpoints);
-        }
-
         // can be null
         final String endpointName = config.getProviderEndpointName();
-        // null key is accepted in HashMap, it means any endpoint name here!
-        final Provides removed = byEndpoints.put(endpointName, p);
-        // this should have been verified at deploy
-        assert removed == null;
-    }
-
-    private static boolean validate(final Map<QName, Map<QName, Map<String, Provides>>> provides) {
-
-        // there can't be any interface
-        if (provides.containsKey(null)) {
-            return false;
-        }
 
-        for (final Map<QName, Map<String, Provides>> byServices : provides.values()) {
-            // there can't be any service
-            if (byServices.containsKey(null)) {
-                return false;
-            }
-            for (final Map<String, Provides> byEndpoints : byServices.values()) {
-                // if there is the null key, then it should be the only one!
-                // normally it should have been checked at deploy
-                if (byEndpoints.containsKey(null)) {
-                    return byEndpoints.size() == 1;
-                }
+        final Provides removed;
+        if (serviceName == null) {
+            removed = byInterfaces.put(interfaceName, p);
+        } else {
+            removed = byServices.put(new ServiceKey(endpointName, serviceName, interfaceName), p);
+            if (endpointName == null) {
+                anyEndpoint = true;
             }
         }
-
-        return true;
+        // this should have been verified at deploy
+        assert removed == null;
     }
 
     /**
      * Note: we know that there aren't any overlapping {@link ServiceKey} sent by the provider partner!
      */
     public @Nullable Provides getProvides(final ServiceKey key) {
-        final Map<QName, Map<String, Provides>> byServices = this.provides.get(key.interfaceName);
-        if (byServices != null) {
-            final Map<String, Provides> byEndpoints = byServices.get(key.service);
-            if (byEndpoints != null) {
-                return byEndpoints.get(key.endpointName);
-            }
+        Provides p = byServices.get(key);
+        if (p == null && anyEndpoint && key.endpointName != null) {
+            p = byServices.get(new ServiceKey(null, key.service, key.interfaceName));
+        }
+        if (p == null && !byInterfaces.isEmpty()) {
+            p = byInterfaces.get(key.interfaceName);
         }
-        return null;
+        return p;
     }
 }
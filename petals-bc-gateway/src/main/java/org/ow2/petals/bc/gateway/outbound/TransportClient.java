@@ -19,20 +19,31 @@ package org.ow2.petals.bc.gateway.outbound;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.bc.gateway.commons.AbstractDomain;
+import org.ow2.petals.bc.gateway.commons.ExchangesExecutor;
 import org.ow2.petals.bc.gateway.commons.handlers.AuthenticatorSSLHandler;
 import org.ow2.petals.bc.gateway.commons.handlers.AuthenticatorSSLHandler.AuthRefuseException;
 import org.ow2.petals.bc.gateway.commons.handlers.AuthenticatorSSLHandler.DomainHandlerBuilder;
 import org.ow2.petals.bc.gateway.commons.handlers.HandlerConstants;
 import org.ow2.petals.bc.gateway.commons.handlers.LastLoggingHandler;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedEncoder;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedFrameDecoder;
+import org.ow2.petals.bc.gateway.commons.handlers.TransportedFraming;
 import org.ow2.petals.bc.gateway.commons.messages.Transported.TransportedToConsumer;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedAck;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedForExchange;
 import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagations;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagationsDelta;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagationsResync;
 import org.ow2.petals.bc.gateway.inbound.TransportListener;
+import org.ow2.petals.bc.gateway.jbidescriptor.generated.ConnectionSelection;
+import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiProviderDomain;
 import org.ow2.petals.commons.log.Level;
 import org.ow2.petals.component.framework.su.ServiceUnitDataHandler;
 
@@ -45,6 +56,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.handler.codec.serialization.ClassResolver;
 import io.netty.handler.codec.serialization.ObjectDecoder;
 import io.netty.handler.codec.serialization.ObjectEncoder;
@@ -56,7 +68,11 @@ import io.netty.util.concurrent.FutureListener;
 /**
  * This is responsible of connecting to {@link TransportListener}.
  * 
- * It handles retry of connect on connection failure as well as unexpected connection close.
+ * It maintains a pool of connections (as many as configured in the provider domain), each of them handling retry of
+ * connect on connection failure as well as unexpected connection close independently of the others.
+ * 
+ * New exchanges are sent on one of the connected channels (see {@link #getDomainContext()}), the next steps of an
+ * exchange always use the channel it was sent on.
  * 
  * It setup SSL if needed.
  * 
@@ -71,15 +87,20 @@ public class TransportClient {
 
     private final Bootstrap bootstrap;
 
+    /**
+     * lock for manipulating the {@link #connections} and their state
+     */
     private final Lock mainLock = new ReentrantLock();
 
-    private int retries = 0;
-
-    private @Nullable Channel channel;
-
-    private @Nullable Future<Void> connectOrNext;
+    /**
+     * Only modified with {@link #mainLock} held, but read without it by {@link #getDomainContext()}.
+     */
+    private volatile Connection[] connections = new Connection[0];
 
-    private @Nullable Future<Channel> authenticationFuture;
+    /**
+     * Used to start the search for a channel at a different place for each new exchange.
+     */
+    private final AtomicInteger nextConnection = new AtomicInteger();
 
     public TransportClient(final ServiceUnitDataHandler handler, final Bootstrap partialBootstrap, final Logger logger,
             final ClassResolver cr, final ProviderDomain pd) {
@@ -95,20 +116,24 @@ public class TransportClient {
             protected void initChannel(final @Nullable Channel ch) throws Exception {
                 assert ch != null;
                 // This mirror the protocol used in TransporterListener
+                ch.config().setWriteBufferWaterMark(newWriteBufferWaterMark());
                 final ChannelPipeline p = ch.pipeline();
                 p.addFirst(HandlerConstants.LOG_DEBUG_HANDLER, debugs);
                 p.addLast(objectEncoder);
+                final TransportedFraming framing = TransportedFraming.get(ch);
+                p.addLast(HandlerConstants.CODEC_DECODER,
+                        new TransportedFrameDecoder(cr, framing.maxReassemblySize));
                 p.addLast(new ObjectDecoder(cr));
-                final AuthenticatorSSLHandler authHandler = new AuthenticatorSSLHandler(pd, logger,
+                // it will only be used once enabled during authentication
+                p.addLast(HandlerConstants.CODEC_ENCODER, new TransportedEncoder(cr, framing.chunkSize, logger));
+                p.addLast(HandlerConstants.DOMAIN_HANDLER, new AuthenticatorSSLHandler(pd, logger,
                         new DomainHandlerBuilder<ProviderDomain>() {
                             @Override
                             public ChannelHandler build(final ProviderDomain domain) {
                                 assert domain == pd;
                                 return new DomainHandler();
                             }
-                        });
-                authenticationFuture = authHandler.authenticationFuture();
-                p.addLast(HandlerConstants.DOMAIN_HANDLER, authHandler);
+                        }));
                 p.addLast(HandlerConstants.LOG_ERRORS_HANDLER, errors);
             }
         });
@@ -120,174 +145,334 @@ public class TransportClient {
      * Connect to the provider partner
      * 
      * @param force
-     *            if <code>true</code>, then if we are already connected, we will first be disconnected
+     *            if <code>true</code>, then if we are already connected, we will first be disconnected, else only the
+     *            connections that are not connected are reconnected
      */
     public void connect(boolean force) {
         mainLock.lock();
         try {
-            if (!force && channel != null && channel.isActive()) {
-                return;
+            final int size = pd.getJPD().getConnections();
+            if (force || connections.length != size) {
+                // if we were not connected, it won't do anything specific
+                // if we were between retries, it will cancel them
+                // if we were connected, it will disconnect
+                disconnect();
+
+                final Connection[] _connections = new Connection[size];
+                for (int i = 0; i < size; i++) {
+                    _connections[i] = new Connection(i);
+                }
+                connections = _connections;
             }
 
-            // if we were not connected, it won't do anything specific
-            // if we were between retries, it will cancel them
-            // if we were connected, it will disconnect
-            disconnect();
-
-            // reset the number of retries
-            retries = 0;
+            for (final Connection connection : connections) {
+                connection.connect();
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
 
-            // connect and setup reconnect if needed
-            doConnect();
+    /**
+     * Disconnect from the provider partner
+     */
+    public void disconnect() {
+        mainLock.lock();
+        try {
+            for (final Connection connection : connections) {
+                connection.disconnect();
+            }
         } finally {
             mainLock.unlock();
         }
     }
 
-    private void doConnect() {
-        final String ip = pd.getJPD().getRemoteIp();
-        // it should have been checked already at deploy
-        final int port = Integer.parseInt(pd.getJPD().getRemotePort());
+    private WriteBufferWaterMark newWriteBufferWaterMark() {
+        final JbiProviderDomain jpd = pd.getJPD();
+        return new WriteBufferWaterMark(jpd.getWriteBufferLowWaterMark(), jpd.getWriteBufferHighWaterMark());
+    }
 
-        logger.info("Connecting to " + pd.getJPD().getId() + " (" + ip + ":" + port + ")"
-                + (retries > 0 ? ", retry " + retries + " of " + pd.getJPD().getRetryMax() : ""));
+    /**
+     * Apply the write buffer water marks of the provider domain to the opened channels
+     */
+    public void updateWriteBufferWaterMark() {
+        final WriteBufferWaterMark waterMark = newWriteBufferWaterMark();
+        for (final Connection connection : connections) {
+            final Channel _channel = connection.channel;
+            if (_channel != null) {
+                _channel.config().setWriteBufferWaterMark(waterMark);
+            }
+        }
+    }
 
-        // it will be set by the channel initializer during connect!
-        authenticationFuture = null;
-        connectOrNext = bootstrap.remoteAddress(ip, port).connect().addListener(new ChannelFutureListener() {
-            @Override
-            public void operationComplete(final @Nullable ChannelFuture future) throws Exception {
-                assert future != null;
-                final Channel ch = future.channel();
-                assert ch != null;
-                if (!future.isSuccess()) {
-                    // here the connect itself failed, the cause will most certainly be non-null
-                    setupReconnectIfNeeded(ch, future.cause(), false);
-                } else {
-                    // here the connect succeeded, but maybe the authentication will fail
-                    assert authenticationFuture != null;
-                    authenticationFuture.addListener(new FutureListener<Channel>() {
-                        @Override
-                        public void operationComplete(final @Nullable Future<Channel> future) throws Exception {
-                            assert future != null;
-                            if (future.isSuccess()) {
-                                // we set it only once we are sure everything went well
-                                channel = ch;
-                                // now we can setup reconnect for close
-                                ch.closeFuture().addListener(new ChannelFutureListener() {
-                                    @Override
-                                    public void operationComplete(final @Nullable ChannelFuture future)
-                                            throws Exception {
-                                        assert future != null;
-                                        // here the channel was closed, the cause will most certainly be null
-                                        setupReconnectIfNeeded(ch, future.cause(), true);
-                                    }
-                                });
-                            } else {
-                                // in that case, authentication failed, the cause will most certainly be non-null
-                                setupReconnectIfNeeded(ch, future.cause(), false);
-                            }
-                        }
-                    });
+    /**
+     * @return <code>true</code> if at least one of the channels is connected and authenticated
+     */
+    public boolean isConnected() {
+        for (final Connection connection : connections) {
+            final Channel _channel = connection.channel;
+            if (_channel != null && _channel.isActive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Choose the channel to be used for a new exchange, according to the connection selection of the provider domain.
+     * Congested (i.e., not writable) channels are only returned if there is no other connected one, and disconnected
+     * channels if there is no connected one at all (the send will fail and be handled as such).
+     */
+    public @Nullable ChannelHandlerContext getDomainContext() {
+        final Connection[] _connections = connections;
+        final int size = _connections.length;
+        if (size == 0) {
+            return null;
+        }
+
+        final boolean leastLoaded = pd.getJPD().getConnectionSelection() != ConnectionSelection.ROUND_ROBIN;
+        final int start = (nextConnection.getAndIncrement() & Integer.MAX_VALUE) % size;
+
+        Channel selected = null;
+        Channel congested = null;
+        Channel fallback = null;
+        int selectedLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            final Channel _channel = _connections[(start + i) % size].channel;
+            if (_channel == null) {
+                continue;
+            }
+            if (!_channel.isActive()) {
+                if (fallback == null) {
+                    fallback = _channel;
                 }
+                continue;
             }
-        });
+            if (!_channel.isWritable()) {
+                if (congested == null) {
+                    congested = _channel;
+                }
+                continue;
+            }
+            if (!leastLoaded) {
+                selected = _channel;
+                break;
+            }
+            final int load = AbstractDomain.getExchangesInProgress(_channel);
+            if (load < selectedLoad) {
+                selected = _channel;
+                selectedLoad = load;
+            }
+        }
+
+        if (selected == null) {
+            selected = congested != null ? congested : fallback;
+        }
+
+        if (selected != null) {
+            return selected.pipeline().context(DomainHandler.class);
+        } else {
+            return null;
+        }
     }
 
-    private void setupReconnectIfNeeded(final Channel ch, final @Nullable Throwable cause, final boolean closed) {
-        mainLock.lock();
-        try {
-            // let's close it in case it is not already the case
-            ch.close();
+    /**
+     * One of the connections of the pool: its state is only manipulated with {@link TransportClient#mainLock} held.
+     */
+    private class Connection {
+
+        private final int index;
+
+        private int retries = 0;
 
-            if (connectOrNext == null) {
-                // we are explicitly disconnected
+        /**
+         * Only set once authenticated
+         */
+        private volatile @Nullable Channel channel;
+
+        private @Nullable Future<Void> connectOrNext;
+
+        public Connection(final int index) {
+            this.index = index;
+        }
+
+        private String getName() {
+            final int size = connections.length;
+            return pd.getJPD().getId() + (size > 1 ? " (connection " + (index + 1) + " of " + size + ")" : "");
+        }
+
+        public void connect() {
+            final Channel _channel = channel;
+            if (_channel != null && _channel.isActive()) {
                 return;
             }
 
-            final int retryMax = pd.getJPD().getRetryMax();
+            disconnect();
 
-            // negative means infinite, 0 means no retry
-            final boolean shouldRetry = retryMax != 0 && (retryMax < 0 || (retryMax - retries) > 0);
+            // reset the number of retries
+            retries = 0;
 
-            final StringBuilder msg;
-            final Throwable error;
-            if ((shouldRetry && logger.isLoggable(Level.WARNING))
-                    || (!shouldRetry && logger.isLoggable(Level.SEVERE))) {
-                msg = new StringBuilder("Connection to provider domain ");
-                msg.append(pd.getId());
-                if (closed) {
-                    msg.append(" (").append(ch.remoteAddress()).append(") was closed unexpectedly.");
-                } else {
-                    msg.append(" failed.");
+            // connect and setup reconnect if needed
+            doConnect();
+        }
+
+        private void doConnect() {
+            final String ip = pd.getJPD().getRemoteIp();
+            // it should have been checked already at deploy
+            final int port = Integer.parseInt(pd.getJPD().getRemotePort());
+
+            logger.info("Connecting to " + getName() + " (" + ip + ":" + port + ")"
+                    + (retries > 0 ? ", retry " + retries + " of " + pd.getJPD().getRetryMax() : ""));
+
+            connectOrNext = bootstrap.remoteAddress(ip, port).connect().addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(final @Nullable ChannelFuture future) throws Exception {
+                    assert future != null;
+                    final Channel ch = future.channel();
+                    assert ch != null;
+                    if (!future.isSuccess()) {
+                        // here the connect itself failed, the cause will most certainly be non-null
+                        setupReconnectIfNeeded(ch, future.cause(), false);
+                    } else {
+                        // here the connect succeeded, but maybe the authentication will fail
+                        final AuthenticatorSSLHandler authHandler = ch.pipeline().get(AuthenticatorSSLHandler.class);
+                        if (authHandler == null) {
+                            // it can only have been removed because the channel was already closed
+                            setupReconnectIfNeeded(ch, null, true);
+                            return;
+                        }
+                        authHandler.authenticationFuture().addListener(new FutureListener<Channel>() {
+                            @Override
+                            public void operationComplete(final @Nullable Future<Channel> future)
+                                    throws Exception {
+                                assert future != null;
+                                if (future.isSuccess()) {
+                                    onAuthenticated(ch);
+                                } else {
+                                    // in that case, authentication failed, the cause will most certainly be non-null
+                                    setupReconnectIfNeeded(ch, future.cause(), false);
+                                }
+                            }
+                        });
+                    }
                 }
-                // TODO is there other causes where we don't want to bother with the whole stacktrace?
-                if (cause instanceof AuthRefuseException) {
-                    msg.append(" Reason was: " + cause.getMessage() + ".");
-                    error = null;
-                } else {
-                    error = cause;
+            });
+        }
+
+        private void onAuthenticated(final Channel ch) {
+            mainLock.lock();
+            try {
+                if (connectOrNext == null) {
+                    // we were explicitly disconnected in the meantime
+                    ch.close();
+                    return;
                 }
-            } else {
-                msg = null;
-                error = cause;
+                // we set it only once we are sure everything went well
+                channel = ch;
+            } finally {
+                mainLock.unlock();
             }
 
-            if (shouldRetry) {
-                retries++;
+            // now we can setup reconnect for close
+            ch.closeFuture().addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(final @Nullable ChannelFuture future) throws Exception {
+                    assert future != null;
+                    // here the channel was closed, the cause will most certainly be null
+                    setupReconnectIfNeeded(ch, future.cause(), true);
+                }
+            });
+        }
+
+        private void setupReconnectIfNeeded(final Channel ch, final @Nullable Throwable cause,
+                final boolean closed) {
+            mainLock.lock();
+            try {
+                // let's close it in case it is not already the case
+                ch.close();
+
+                if (connectOrNext == null) {
+                    // we are explicitly disconnected
+                    return;
+                }
 
-                // this can't be negative, it was verified at deploy
-                final long retryDelay = pd.getJPD().getRetryDelay();
+                final int retryMax = pd.getJPD().getRetryMax();
 
-                if (logger.isLoggable(Level.WARNING)) {
-                    assert msg != null;
-                    msg.append(" Reconnecting in ").append(retryDelay).append("ms");
-                    msg.append(" (retry ").append(retries);
-                    if (retryMax > 0) {
-                        msg.append(" of ").append(retryMax).append(")");
+                // negative means infinite, 0 means no retry
+                final boolean shouldRetry = retryMax != 0 && (retryMax < 0 || (retryMax - retries) > 0);
+
+                final StringBuilder msg;
+                final Throwable error;
+                if ((shouldRetry && logger.isLoggable(Level.WARNING))
+                        || (!shouldRetry && logger.isLoggable(Level.SEVERE))) {
+                    msg = new StringBuilder("Connection to provider domain ");
+                    msg.append(getName());
+                    if (closed) {
+                        msg.append(" (").append(ch.remoteAddress()).append(") was closed unexpectedly.");
                     } else {
-                        msg.append(")");
+                        msg.append(" failed.");
                     }
-                    logger.log(Level.WARNING, msg.toString(), error);
+                    // TODO is there other causes where we don't want to bother with the whole stacktrace?
+                    if (cause instanceof AuthRefuseException) {
+                        msg.append(" Reason was: " + cause.getMessage() + ".");
+                        error = null;
+                    } else {
+                        error = cause;
+                    }
+                } else {
+                    msg = null;
+                    error = cause;
                 }
 
-                connectOrNext = ch.eventLoop().schedule(new Callable<Void>() {
-                    @Override
-                    public @Nullable Void call() throws Exception {
-                        mainLock.lock();
-                        try {
-                            if (connectOrNext == null) {
-                                // we are explicitly disconnected
+                if (shouldRetry) {
+                    retries++;
+
+                    // this can't be negative, it was verified at deploy
+                    final long retryDelay = pd.getJPD().getRetryDelay();
+
+                    if (logger.isLoggable(Level.WARNING)) {
+                        assert msg != null;
+                        msg.append(" Reconnecting in ").append(retryDelay).append("ms");
+                        msg.append(" (retry ").append(retries);
+                        if (retryMax > 0) {
+                            msg.append(" of ").append(retryMax).append(")");
+                        } else {
+                            msg.append(")");
+                        }
+                        logger.log(Level.WARNING, msg.toString(), error);
+                    }
+
+                    connectOrNext = ch.eventLoop().schedule(new Callable<Void>() {
+                        @Override
+                        public @Nullable Void call() throws Exception {
+                            mainLock.lock();
+                            try {
+                                if (connectOrNext == null) {
+                                    // we are explicitly disconnected
+                                    return null;
+                                }
+                                doConnect();
                                 return null;
+                            } finally {
+                                mainLock.unlock();
                             }
-                            doConnect();
-                            return null;
-                        } finally {
-                            mainLock.unlock();
                         }
-                    }
-                }, retryDelay, TimeUnit.MILLISECONDS);
+                    }, retryDelay, TimeUnit.MILLISECONDS);
 
-            } else {
-                if (logger.isLoggable(Level.SEVERE)) {
-                    assert msg != null;
-                    logger.log(Level.SEVERE, msg.toString(), error);
+                } else {
+                    if (logger.isLoggable(Level.SEVERE)) {
+                        assert msg != null;
+                        logger.log(Level.SEVERE, msg.toString(), error);
+                    }
                 }
+            } finally {
+                mainLock.unlock();
             }
-        } finally {
-            mainLock.unlock();
         }
-    }
 
-    /**
-     * Disconnect from the provider partner
-     */
-    public void disconnect() {
-        mainLock.lock();
-        try {
+        public void disconnect() {
             final Channel _channel = channel;
             channel = null;
-            authenticationFuture = null;
 
             final Future<Void> _connectOrNext = connectOrNext;
             if (_connectOrNext != null) {
@@ -296,24 +481,24 @@ public class TransportClient {
             }
 
             if (_channel != null && _channel.isOpen()) {
-                // Note: this should trigger a call to ProviderDomain.close() as defined in DomainHandler!
+                // Note: this should trigger a call to ProviderDomain.close() as defined in DomainHandler if it was the
+                // last connected channel!
                 _channel.close();
             }
-        } finally {
-            mainLock.unlock();
         }
     }
 
-    public @Nullable ChannelHandlerContext getDomainContext() {
-        final Channel _channel = channel;
-        if (_channel != null) {
-            return _channel.pipeline().context(DomainHandler.class);
-        } else {
-            return null;
+    private class DomainHandler extends SimpleChannelInboundHandler<TransportedToConsumer> {
+
+        /**
+         * At that point the channel is authenticated: what was not acknowledged on a previous one can be resent
+         */
+        @Override
+        public void handlerAdded(final @Nullable ChannelHandlerContext ctx) throws Exception {
+            assert ctx != null;
+            pd.resendToChannel(ctx);
         }
-    }
 
-    private class DomainHandler extends SimpleChannelInboundHandler<TransportedToConsumer> {
         @Override
         protected void channelRead0(final @Nullable ChannelHandlerContext ctx,
                 final @Nullable TransportedToConsumer msg) throws Exception {
@@ -322,16 +507,40 @@ public class TransportClient {
 
             if (msg instanceof TransportedForExchange) {
                 pd.receiveFromChannel(ctx, (TransportedForExchange) msg);
+            } else if (msg instanceof TransportedAck) {
+                pd.receiveAckFromChannel((TransportedAck) msg);
             } else if (msg instanceof TransportedPropagations) {
+                // all the channels receive the propagations, but they are the same
                 pd.updatePropagatedServices((TransportedPropagations) msg);
+            } else if (msg instanceof TransportedPropagationsDelta) {
+                if (!pd.updatePropagatedServices((TransportedPropagationsDelta) msg)) {
+                    // we missed a version: let's get everything again
+                    ctx.writeAndFlush(new TransportedPropagationsResync());
+                }
             } else {
                 throw new IllegalArgumentException("Impossible case");
             }
         }
 
+        @Override
+        public void channelWritabilityChanged(final @Nullable ChannelHandlerContext ctx) throws Exception {
+            assert ctx != null;
+            if (ctx.channel().isWritable()) {
+                pd.sendCongestedExchanges();
+                // it may have been left stopped when the exchanges were delivered to the NMR while it wasn't writable
+                ctx.channel().config().setAutoRead(ExchangesExecutor.isReadable(ctx.channel()));
+            }
+            ctx.fireChannelWritabilityChanged();
+        }
+
         @Override
         public void channelInactive(final @Nullable ChannelHandlerContext ctx) throws Exception {
-            pd.close();
+            // the exchanges kept for congestion are sent on another connection (or fail if there is none)
+            pd.sendCongestedExchanges();
+            // the propagated services are only removed when there is no connection left to reach them
+            if (!isConnected()) {
+                pd.close();
+            }
         }
     }
 }
@@ -53,4 +53,50 @@ public interface BcGatewayJbiConstants {
 
     public static final int DEFAULT_PROVIDER_DOMAINS_MAX_POOL_SIZE = 6;
 
+    public static final QName EL_DESCRIPTIONS_MAX_POOL_SIZE = new QName(GATEWAY_NS_URI, "descriptions-max-pool-size");
+
+    public static final int DEFAULT_DESCRIPTIONS_MAX_POOL_SIZE = 2;
+
+    public static final QName EL_EXCHANGES_MAX_POOL_SIZE = new QName(GATEWAY_NS_URI, "exchanges-max-pool-size");
+
+    public static final int DEFAULT_EXCHANGES_MAX_POOL_SIZE = 0;
+
+    public static final QName EL_EXCHANGES_VIRTUAL_THREADS = new QName(GATEWAY_NS_URI, "exchanges-virtual-threads");
+
+    public static final boolean DEFAULT_EXCHANGES_VIRTUAL_THREADS = false;
+
+    public static final QName EL_EXCHANGES_MAX_PENDING = new QName(GATEWAY_NS_URI, "exchanges-max-pending");
+
+    public static final int DEFAULT_EXCHANGES_MAX_PENDING = 1024;
+
+    public static final QName EL_TRANSPORT_CHUNK_SIZE = new QName(GATEWAY_NS_URI, "transport-chunk-size");
+
+    public static final int DEFAULT_TRANSPORT_CHUNK_SIZE = 65536;
+
+    public static final QName EL_TRANSPORT_MAX_REASSEMBLY_SIZE = new QName(GATEWAY_NS_URI,
+            "transport-max-reassembly-size");
+
+    public static final int DEFAULT_TRANSPORT_MAX_REASSEMBLY_SIZE = 67108864;
+
+    public static final QName EL_NETTY_TRANSPORT = new QName(GATEWAY_NS_URI, "netty-transport");
+
+    public static final String DEFAULT_NETTY_TRANSPORT = "nio";
+
+    public static final QName EL_SSL_PROVIDER = new QName(GATEWAY_NS_URI, "ssl-provider");
+
+    public static final String DEFAULT_SSL_PROVIDER = "jdk";
+
+    public static final QName EL_WRITE_COALESCING = new QName(GATEWAY_NS_URI, "write-coalescing");
+
+    public static final boolean DEFAULT_WRITE_COALESCING = false;
+
+    public static final QName EL_WRITE_COALESCING_MAX_FLUSHES = new QName(GATEWAY_NS_URI,
+            "write-coalescing-max-flushes");
+
+    public static final int DEFAULT_WRITE_COALESCING_MAX_FLUSHES = 256;
+
+    public static final QName EL_WRITE_COALESCING_DELAY = new QName(GATEWAY_NS_URI, "write-coalescing-delay");
+
+    public static final int DEFAULT_WRITE_COALESCING_DELAY = 0;
+
 }
@@ -250,6 +250,67 @@ public class BcGatewayJbiHelper implements BcGatewayJbiConstants {
         return res;
     }
 
+    /**
+     * @return the trimmed value of the component parameter, or <code>null</code> if it is absent or empty
+     */
+    private static @Nullable String getParameter(final @Nullable Component component, final QName name) {
+        assert component != null;
+        for (final Element e : component.getAny()) {
+            if (name.getNamespaceURI().equals(e.getNamespaceURI()) && name.getLocalPart().equals(e.getLocalName())) {
+                final String value = e.getTextContent();
+                if (value != null && !value.trim().isEmpty()) {
+                    return value.trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    public static BcGatewayNettyTransport getNettyTransport(final @Nullable Component component)
+            throws PEtALSCDKException {
+        final String value = getParameter(component, EL_NETTY_TRANSPORT);
+        return BcGatewayNettyTransport.fromValue(value != null ? value : DEFAULT_NETTY_TRANSPORT);
+    }
+
+    public static BcGatewaySslProvider getSslProvider(final @Nullable Component component)
+            throws PEtALSCDKException {
+        final String value = getParameter(component, EL_SSL_PROVIDER);
+        return BcGatewaySslProvider.fromValue(value != null ? value : DEFAULT_SSL_PROVIDER);
+    }
+
+    public static boolean getParameterAsBoolean(final @Nullable Component component, final QName name,
+            final boolean defaultValue) throws PEtALSCDKException {
+        final String value = getParameter(component, name);
+        if (value == null) {
+            return defaultValue;
+        } else if ("true".equalsIgnoreCase(value)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(value)) {
+            return false;
+        } else {
+            throw new PEtALSCDKException(
+                    String.format("Invalid value '%s' for parameter '%s': must be a boolean", value, name));
+        }
+    }
+
+    public static int getParameterAsNonNegativeInteger(final @Nullable Component component, final QName name,
+            final int defaultValue) throws PEtALSCDKException {
+        final String value = getParameter(component, name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            final int res = Integer.parseInt(value);
+            if (res >= 0) {
+                return res;
+            }
+        } catch (final NumberFormatException e) {
+            // handled below
+        }
+        throw new PEtALSCDKException(String.format(
+                "Invalid value '%s' for parameter '%s': must be a non-negative integer", value, name));
+    }
+
     private static Collection<JbiConsumerDomain> getConsumerDomains(final ServiceUnitDataHandler handler,
             final @Nullable Services services, final Placeholders placeholders, final Logger logger)
             throws PEtALSCDKException {
@@ -303,6 +364,12 @@ public class BcGatewayJbiHelper implements BcGatewayJbiConstants {
                         + ") for consumer domain (" + jcd.getId() + ")");
             }
         }
+
+        validateWriteBufferWaterMarks(jcd.getWriteBufferLowWaterMark(), jcd.getWriteBufferHighWaterMark(),
+                "consumer domain (" + jcd.getId() + ")");
+        validateExchangesInProgressCapacity(jcd.getExchangesInProgressCapacity(),
+                "consumer domain (" + jcd.getId() + ")");
+        validateReplayBufferSize(jcd.getReplayBufferSize(), "consumer domain (" + jcd.getId() + ")");
     }
 
     private static void replace(final JbiConsumerDomain jcd, final Properties placeholders, final Logger logger) {
@@ -447,6 +514,48 @@ public class BcGatewayJbiHelper implements BcGatewayJbiConstants {
                         + retryMax + ") is set to a non-zero value");
             }
         }
+
+        final int connections = jpd.getConnections();
+        if (connections < 1) {
+            throw new PEtALSCDKException("connections (" + connections + ") for provider domain (" + jpd.getId()
+                    + ") must be strictly positive");
+        }
+
+        validateWriteBufferWaterMarks(jpd.getWriteBufferLowWaterMark(), jpd.getWriteBufferHighWaterMark(),
+                "provider domain (" + jpd.getId() + ")");
+        validateExchangesInProgressCapacity(jpd.getExchangesInProgressCapacity(),
+                "provider domain (" + jpd.getId() + ")");
+        validateReplayBufferSize(jpd.getReplayBufferSize(), "provider domain (" + jpd.getId() + ")");
+
+        final int congestionQueueSize = jpd.getCongestionQueueSize();
+        if (congestionQueueSize < 0) {
+            throw new PEtALSCDKException("congestion-queue-size (" + congestionQueueSize + ") for provider domain ("
+                    + jpd.getId() + ") must be positive");
+        }
+    }
+
+    private static void validateExchangesInProgressCapacity(final int capacity, final String domain)
+            throws PEtALSCDKException {
+        if (capacity < 1) {
+            throw new PEtALSCDKException(
+                    "exchanges-in-progress-capacity (" + capacity + ") for " + domain + " must be strictly positive");
+        }
+    }
+
+    private static void validateReplayBufferSize(final int size, final String domain) throws PEtALSCDKException {
+        if (size < 1) {
+            throw new PEtALSCDKException(
+                    "replay-buffer-size (" + size + ") for " + domain + " must be strictly positive");
+        }
+    }
+
+    private static void validateWriteBufferWaterMarks(final int low, final int high, final String domain)
+            throws PEtALSCDKException {
+        if (low < 0 || high < low) {
+            throw new PEtALSCDKException("write-buffer-low-water-mark (" + low + ") and write-buffer-high-water-mark ("
+                    + high + ") for " + domain
+                    + " must be positive and the low one must not be bigger than the high one");
+        }
     }
 
     private static void replace(final JbiProviderDomain jpd, final Properties placeholders, final Logger logger) {
@@ -589,7 +698,8 @@ public class BcGatewayJbiHelper implements BcGatewayJbiConstants {
     }
 
     /**
-     * This only validates that the configurations are not duplicated or subsuming each others
+     * This only validates that the configurations of a same interface are not duplicated or subsuming each others
+     * (see {@link org.ow2.petals.bc.gateway.outbound.Service2ProvidesMatcher}).
      * 
      * TODO check that CDK already checks that provides are valid (i.e. there is no duplicates)
      */
@@ -602,15 +712,20 @@ public class BcGatewayJbiHelper implements BcGatewayJbiConstants {
                 final JbiProvidesConfig gc = gp.getB();
                 // sc is the specific config
                 // gc is the generic config
-                if (sc != gc) {
+                if (sc != gc && sc.getProviderInterfaceName().equals(gc.getProviderInterfaceName())) {
                     // careful, they can null, hence the use of Objects
-                    if (Objects.equals(sc.getProviderEndpointName(), gc.getProviderEndpointName())) {
+                    final boolean sameService = Objects.equals(sc.getProviderServiceName(),
+                            gc.getProviderServiceName());
+                    if (sameService
+                            && Objects.equals(sc.getProviderEndpointName(), gc.getProviderEndpointName())) {
                         throw new PEtALSCDKException("Provides configuration ambiguity for provider domain "
                                 + jpd.getId() + ": " + toString(gp.getA()) + " and " + toString(sp.getA())
                                 + " are identical");
                     }
 
-                    if (gc.getProviderEndpointName() == null && sc.getProviderEndpointName() != null) {
+                    if ((gc.getProviderServiceName() == null && sc.getProviderServiceName() != null)
+                            || (sameService && gc.getProviderEndpointName() == null
+                                    && sc.getProviderEndpointName() != null)) {
                         throw new PEtALSCDKException("Provides configuration ambiguity for provider domain "
                                 + jpd.getId() + ": " + toString(gp.getA()) + " already covers the more specific "
                                 + toString(sp.getA()));
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.component.framework.api.exception.PEtALSCDKException;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+
+/**
+ * The netty transports usable by the component for its listeners and clients.
+ * 
+ * The native ones are only available on Linux and if their native library can be loaded: if the chosen one is not,
+ * the next one (in the order io_uring, epoll, nio) that is available is used instead.
+ */
+public enum BcGatewayNettyTransport {
+
+    NIO("nio") {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public @Nullable Throwable unavailabilityCause() {
+            return null;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(final int nThreads, final ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(nThreads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return NioSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends ServerSocketChannel> getServerSocketChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+    },
+    EPOLL("epoll") {
+        @Override
+        public boolean isAvailable() {
+            try {
+                return Epoll.isAvailable();
+            } catch (final LinkageError e) {
+                return false;
+            }
+        }
+
+        @Override
+        public @Nullable Throwable unavailabilityCause() {
+            try {
+                return Epoll.unavailabilityCause();
+            } catch (final LinkageError e) {
+                return e;
+            }
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(final int nThreads, final ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(nThreads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends ServerSocketChannel> getServerSocketChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+    },
+    IO_URING("io_uring") {
+        @Override
+        public boolean isAvailable() {
+            try {
+                return IOUring.isAvailable();
+            } catch (final LinkageError e) {
+                return false;
+            }
+        }
+
+        @Override
+        public @Nullable Throwable unavailabilityCause() {
+            try {
+                return IOUring.unavailabilityCause();
+            } catch (final LinkageError e) {
+                return e;
+            }
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(final int nThreads, final ThreadFactory threadFactory) {
+            return new IOUringEventLoopGroup(nThreads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return IOUringSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends ServerSocketChannel> getServerSocketChannelClass() {
+            return IOUringServerSocketChannel.class;
+        }
+    };
+
+    private final String value;
+
+    private BcGatewayNettyTransport(final String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public abstract boolean isAvailable();
+
+    public abstract @Nullable Throwable unavailabilityCause();
+
+    public abstract EventLoopGroup newEventLoopGroup(final int nThreads, final ThreadFactory threadFactory);
+
+    public abstract Class<? extends SocketChannel> getSocketChannelClass();
+
+    public abstract Class<? extends ServerSocketChannel> getServerSocketChannelClass();
+
+    public static BcGatewayNettyTransport fromValue(final String value) throws PEtALSCDKException {
+        for (final BcGatewayNettyTransport transport : values()) {
+            if (transport.value.equalsIgnoreCase(value.trim())) {
+                return transport;
+            }
+        }
+        throw new PEtALSCDKException(String.format("Unknown netty transport '%s'", value));
+    }
+
+    /**
+     * @return the given transport if it is available, or else the first one available after it
+     */
+    public static BcGatewayNettyTransport select(final BcGatewayNettyTransport wanted, final Logger logger) {
+        final BcGatewayNettyTransport[] transports = values();
+        for (int i = wanted.ordinal(); i > 0; i--) {
+            final BcGatewayNettyTransport transport = transports[i];
+            if (transport.isAvailable()) {
+                return transport;
+            }
+            logger.warning(String.format("Netty transport '%s' is not available (%s), falling back to '%s'",
+                    transport.value, transport.unavailabilityCause(), transports[i - 1].value));
+        }
+        return NIO;
+    }
+}
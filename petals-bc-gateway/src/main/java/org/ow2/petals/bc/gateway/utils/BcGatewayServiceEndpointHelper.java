@@ -24,12 +24,16 @@ import javax.xml.namespace.QName;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.ow2.easywsdl.extensions.wsdl4complexwsdl.WSDL4ComplexWsdlFactory;
+import org.ow2.easywsdl.extensions.wsdl4complexwsdl.api.WSDL4ComplexWsdlReader;
+import org.ow2.easywsdl.wsdl.WSDLFactory;
 import org.ow2.easywsdl.wsdl.api.Binding;
 import org.ow2.easywsdl.wsdl.api.Description;
 import org.ow2.easywsdl.wsdl.api.Endpoint;
 import org.ow2.easywsdl.wsdl.api.InterfaceType;
 import org.ow2.easywsdl.wsdl.api.Service;
 import org.ow2.easywsdl.wsdl.api.WSDLException;
+import org.ow2.easywsdl.wsdl.api.WSDLWriter;
+import org.ow2.petals.bc.gateway.BcGatewayComponent;
 import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
 import org.ow2.petals.commons.log.Level;
 import org.ow2.petals.component.framework.api.exception.PEtALSCDKException;
@@ -37,26 +41,72 @@ import org.ow2.petals.component.framework.util.ServiceEndpointKey;
 import org.ow2.petals.component.framework.util.WSDLUtilImpl;
 import org.w3c.dom.Document;
 
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.FastThreadLocalThread;
+
 /**
+ * 
+ * Readers and writers are not thread-safe but are reusable, so we keep one per thread, but only for the threads created
+ * by the component (in practice those rewriting the descriptions, see
+ * {@link BcGatewayComponent#executeDescriptionTask(Runnable)}): they are {@link FastThreadLocalThread}s that remove
+ * them when they terminate. The other threads (e.g., those of the container) get new ones each time, so that they
+ * never keep a reference to the classes of the component once it is undeployed.
  * 
  * @author vnoel
  *
  */
 public class BcGatewayServiceEndpointHelper {
 
+    private static final FastThreadLocal<WSDL4ComplexWsdlReader> READERS = new FastThreadLocal<>();
+
+    private static final FastThreadLocal<WSDLWriter> WRITERS = new FastThreadLocal<>();
+
     private BcGatewayServiceEndpointHelper() {
         // utility class
     }
 
+    private static WSDL4ComplexWsdlReader getReader() {
+        final boolean cached = FastThreadLocalThread.willCleanupFastThreadLocals(Thread.currentThread());
+        WSDL4ComplexWsdlReader reader = cached ? READERS.getIfExists() : null;
+        if (reader == null) {
+            try {
+                reader = WSDL4ComplexWsdlFactory.newInstance().newWSDLReader();
+            } catch (final WSDLException e) {
+                throw new IllegalStateException(e);
+            }
+            assert reader != null;
+            if (cached) {
+                READERS.set(reader);
+            }
+        }
+        return reader;
+    }
+
+    private static WSDLWriter getWriter() {
+        final boolean cached = FastThreadLocalThread.willCleanupFastThreadLocals(Thread.currentThread());
+        WSDLWriter writer = cached ? WRITERS.getIfExists() : null;
+        if (writer == null) {
+            try {
+                writer = WSDLFactory.newInstance().newWSDLWriter();
+            } catch (final WSDLException e) {
+                throw new IllegalStateException(e);
+            }
+            assert writer != null;
+            if (cached) {
+                WRITERS.set(writer);
+            }
+        }
+        return writer;
+    }
+
     public static Document generateDescription(final @Nullable Document originalDescription,
             final ServiceKey originalKey, final ServiceEndpointKey newKey, final QName newInterfaceName, final Logger logger)
             throws PEtALSCDKException {
 
         Description description = null;
         if (originalDescription != null) {
-            // TODO reuse the reader, the instance, or whatever
             try {
-                description = WSDL4ComplexWsdlFactory.newInstance().newWSDLReader().read(originalDescription);
+                description = getReader().read(originalDescription);
             } catch (final WSDLException | URISyntaxException e) {
                 final String msg = "Couldn't read the received description for " + originalKey
                         + ", generating a lightweigth description";
@@ -134,7 +184,7 @@ public class BcGatewayServiceEndpointHelper {
         assert description != null;
 
         try {
-            Document desc = WSDLUtilImpl.convertDescriptionToDocument(description);
+            final Document desc = getWriter().getDocument(description);
             assert desc != null;
             return desc;
         } catch (final WSDLException e) {
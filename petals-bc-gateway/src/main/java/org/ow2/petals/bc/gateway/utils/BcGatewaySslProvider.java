@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.utils;
+
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.ow2.petals.component.framework.api.exception.PEtALSCDKException;
+
+import io.netty.channel.Channel;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.util.AttributeKey;
+
+/**
+ * The TLS implementations usable by the domains of the component.
+ * 
+ * OpenSSL (through netty-tcnative and its statically linked BoringSSL) is much cheaper in CPU than the JDK, but it is
+ * only available if its native library can be loaded: if not, the JDK is used instead.
+ * 
+ * It is given by the component to the channels it creates with {@link #KEY}.
+ */
+public enum BcGatewaySslProvider {
+
+    JDK("jdk") {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public @Nullable Throwable unavailabilityCause() {
+            return null;
+        }
+
+        @Override
+        public SslProvider getNettyProvider() {
+            return SslProvider.JDK;
+        }
+    },
+    OPENSSL("openssl") {
+        @Override
+        public boolean isAvailable() {
+            try {
+                return OpenSsl.isAvailable();
+            } catch (final LinkageError e) {
+                return false;
+            }
+        }
+
+        @Override
+        public @Nullable Throwable unavailabilityCause() {
+            try {
+                return OpenSsl.unavailabilityCause();
+            } catch (final LinkageError e) {
+                return e;
+            }
+        }
+
+        @Override
+        public SslProvider getNettyProvider() {
+            return SslProvider.OPENSSL;
+        }
+    };
+
+    public static final AttributeKey<BcGatewaySslProvider> KEY = AttributeKey.valueOf(BcGatewaySslProvider.class,
+            "ssl-provider");
+
+    private final String value;
+
+    private BcGatewaySslProvider(final String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public abstract boolean isAvailable();
+
+    public abstract @Nullable Throwable unavailabilityCause();
+
+    public abstract SslProvider getNettyProvider();
+
+    public static BcGatewaySslProvider fromValue(final String value) throws PEtALSCDKException {
+        for (final BcGatewaySslProvider provider : values()) {
+            if (provider.value.equalsIgnoreCase(value.trim())) {
+                return provider;
+            }
+        }
+        throw new PEtALSCDKException(String.format("Unknown SSL provider '%s'", value));
+    }
+
+    /**
+     * @return the given provider if it is available, or else the JDK one
+     */
+    public static BcGatewaySslProvider select(final BcGatewaySslProvider wanted, final Logger logger) {
+        if (wanted.isAvailable()) {
+            return wanted;
+        }
+        logger.warning(String.format("SSL provider '%s' is not available (%s), falling back to '%s'", wanted.value,
+                wanted.unavailabilityCause(), JDK.value));
+        return JDK;
+    }
+
+    public static BcGatewaySslProvider get(final Channel channel) {
+        final BcGatewaySslProvider provider = channel.attr(KEY).get();
+        return provider != null ? provider : JDK;
+    }
+}
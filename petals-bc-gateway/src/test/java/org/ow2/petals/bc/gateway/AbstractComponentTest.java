@@ -18,6 +18,7 @@
 package org.ow2.petals.bc.gateway;
 
 import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -50,6 +51,7 @@ import org.ow2.petals.bc.gateway.inbound.ConsumerDomain;
 import org.ow2.petals.bc.gateway.junit.extensions.EnsurePortsAreOKExtension;
 import org.ow2.petals.bc.gateway.junit.extensions.api.EnsurePortsAreOK;
 import org.ow2.petals.bc.gateway.outbound.ProviderDomain;
+import org.ow2.petals.bc.gateway.outbound.TransportClient;
 import org.ow2.petals.commons.log.PetalsExecutionContext;
 import org.ow2.petals.component.framework.AbstractComponent;
 import org.ow2.petals.component.framework.api.message.Exchange;
@@ -70,6 +72,8 @@ import org.w3c.dom.Element;
 
 import com.ebmwebsourcing.easycommons.lang.reflect.ReflectionHelper;
 
+import io.netty.channel.Channel;
+
 public abstract class AbstractComponentTest extends AbstractEnvironmentTest implements BcGatewayJbiTestConstants {
 
     public static class BasicComponentConfiguration extends ComponentConfiguration {
@@ -153,6 +157,9 @@ public abstract class AbstractComponentTest extends AbstractEnvironmentTest impl
         assertTrue(ops.remove("removeTransportListener"));
         assertTrue(ops.remove("getTransportListeners"));
         assertTrue(ops.remove("reconnectDomains"));
+        assertTrue(ops.remove("getExchangesInProgress"));
+        assertTrue(ops.remove("getDomainsMetrics"));
+        assertTrue(ops.remove("getServicesMetrics"));
         assertTrue(ops.remove(AbstractComponent.METHOD_RELOAD_PLACEHOLDERS));
         assertTrue(ops.isEmpty());
     }
@@ -274,6 +281,39 @@ public abstract class AbstractComponentTest extends AbstractEnvironmentTest impl
                         clientRemoteCertificate, null, retryMax, retryDelay));
     }
 
+    protected ServiceEndpoint deployTwoDomains(final Map<String, String> consumerDomainAttributes,
+            final Map<String, String> providerDomainAttributes) throws Exception {
+        return deployTwoDomains(COMPONENT_UNDER_TEST, createHelloConsumes(consumerDomainAttributes),
+                createProvider(providerDomainAttributes));
+    }
+
+    /**
+     * @return the only provider domain deployed on the component under test
+     */
+    protected ProviderDomain getProviderDomain() {
+        final Collection<ProviderDomain> pds = getComponent().getServiceUnitManager().getProviderDomains();
+        assertEquals(1, pds.size());
+        return pds.iterator().next();
+    }
+
+    /**
+     * @return the connected channels of the pool of the only provider domain deployed on the component under test
+     */
+    protected List<Channel> getProviderDomainChannels() {
+        final Object client = ReflectionHelper.getFieldValue(ProviderDomain.class, getProviderDomain(), "client");
+        final Object[] connections = (Object[]) ReflectionHelper.getFieldValue(TransportClient.class, client,
+                "connections");
+        final List<Channel> channels = new ArrayList<>();
+        for (final Object connection : connections) {
+            final Channel channel = (Channel) ReflectionHelper.getFieldValue(connection.getClass(), connection,
+                    "channel");
+            if (channel != null && channel.isActive()) {
+                channels.add(channel);
+            }
+        }
+        return channels;
+    }
+
     protected RequestMessage helloRequest(final ServiceEndpoint endpoint, final URI pattern) {
         return new RequestToProviderMessage(COMPONENT_UNDER_TEST, endpoint.getEndpointName(),
                 endpoint.getServiceName(), null, HELLO_OPERATION, pattern, IN);
@@ -19,6 +19,8 @@ package org.ow2.petals.bc.gateway;
 
 import java.io.File;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import javax.jbi.servicedesc.ServiceEndpoint;
@@ -139,6 +141,15 @@ public class AbstractEnvironmentTest extends AbstractTest implements BcGatewayJb
                 pollingDelay, null);
     }
 
+    /**
+     * @param attributes
+     *            Extra attributes (e.g., {@code reliable}) to set on the consumer domain
+     */
+    protected static ConsumesServiceConfiguration createHelloConsumes(final Map<String, String> attributes) {
+        return createConsumes(HELLO_INTERFACE, HELLO_SERVICE, EXTERNAL_HELLO_ENDPOINT, null, null, null, null, null,
+                null, null, null, attributes);
+    }
+
     /**
      * @param interfaceName
      * @param service
@@ -171,6 +182,24 @@ public class AbstractEnvironmentTest extends AbstractTest implements BcGatewayJb
             final @Nullable String keyPlaceholderName, final @Nullable String remoteCertificateValue,
             final @Nullable String remoteCertificatePlaceholderName, final @Nullable Long pollingDelay,
             final @Nullable Long timeout) {
+        return createConsumes(interfaceName, service, endpoint, certificateValue, certificatePlaceholderName, keyValue,
+                keyPlaceholderName, remoteCertificateValue, remoteCertificatePlaceholderName, pollingDelay, timeout,
+                Collections.<String, String> emptyMap());
+    }
+
+    /**
+     * Same as
+     * {@link #createConsumes(QName, QName, String, String, String, String, String, String, String, Long, Long)}
+     * 
+     * @param attributes
+     *            Extra attributes to set on the consumer domain
+     */
+    protected static ConsumesServiceConfiguration createConsumes(final QName interfaceName,
+            final @Nullable QName service, final @Nullable String endpoint, final @Nullable String certificateValue,
+            final @Nullable String certificatePlaceholderName, final @Nullable String keyValue,
+            final @Nullable String keyPlaceholderName, final @Nullable String remoteCertificateValue,
+            final @Nullable String remoteCertificatePlaceholderName, final @Nullable Long pollingDelay,
+            final @Nullable Long timeout, final Map<String, String> attributes) {
 
         final ConsumesServiceConfiguration consumes = new ConsumesServiceConfiguration(interfaceName, service,
                 endpoint) {
@@ -201,6 +230,9 @@ public class AbstractEnvironmentTest extends AbstractTest implements BcGatewayJb
                 if (pollingDelay != null) {
                     cDomain.setAttribute(ATTR_SERVICES_CONSUMER_DOMAIN_POLLING_DELAY, "" + pollingDelay);
                 }
+                for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+                    cDomain.setAttribute(attribute.getKey(), attribute.getValue());
+                }
 
                 addElement(jbiDocument, cDomain, EL_SERVICES_CONSUMER_DOMAIN_AUTH_NAME, TEST_AUTH_NAME);
                 if (certificatePlaceholderName != null) {
@@ -255,6 +287,15 @@ public class AbstractEnvironmentTest extends AbstractTest implements BcGatewayJb
         return createProvider(authName, port, null, null, null, null, null, null, null, null);
     }
 
+    /**
+     * @param attributes
+     *            Extra attributes (e.g., {@code connections}) to set on the provider domain
+     */
+    protected static ServiceConfiguration createProvider(final Map<String, String> attributes) {
+        return createProvider(TEST_AUTH_NAME, TEST_TRANSPORT_PORT, null, null, null, null, null, null, null, null,
+                attributes);
+    }
+
     /**
      * @param authName
      * @param port
@@ -285,6 +326,23 @@ public class AbstractEnvironmentTest extends AbstractTest implements BcGatewayJb
             final @Nullable String keyValue, final @Nullable String keyPlaceholderName,
             final @Nullable String remoteCertificateValue, final @Nullable String remoteCertificatePlaceholderName,
             final @Nullable Integer retryMax, final @Nullable Long retryDelay) {
+        return createProvider(authName, port, certificateValue, certificatePlaceholderName, keyValue,
+                keyPlaceholderName, remoteCertificateValue, remoteCertificatePlaceholderName, retryMax, retryDelay,
+                Collections.<String, String> emptyMap());
+    }
+
+    /**
+     * Same as
+     * {@link #createProvider(String, int, String, String, String, String, String, String, Integer, Long)}
+     * 
+     * @param attributes
+     *            Extra attributes to set on the provider domain
+     */
+    protected static ServiceConfiguration createProvider(final String authName, final int port,
+            final @Nullable String certificateValue, final @Nullable String certificatePlaceholderName,
+            final @Nullable String keyValue, final @Nullable String keyPlaceholderName,
+            final @Nullable String remoteCertificateValue, final @Nullable String remoteCertificatePlaceholderName,
+            final @Nullable Integer retryMax, final @Nullable Long retryDelay, final Map<String, String> attributes) {
         final ServiceConfiguration provides = new ServiceConfiguration() {
             @Override
             protected void extraJBIConfiguration(final @Nullable Document jbiDocument) {
@@ -300,6 +358,9 @@ public class AbstractEnvironmentTest extends AbstractTest implements BcGatewayJb
                 if (retryDelay != null) {
                     pDomain.setAttribute(ATTR_SERVICES_PROVIDER_DOMAIN_RETRY_DELAY, "" + retryDelay);
                 }
+                for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+                    pDomain.setAttribute(attribute.getKey(), attribute.getValue());
+                }
                 addElement(jbiDocument, pDomain, EL_SERVICES_PROVIDER_DOMAIN_IP).setTextContent("localhost");
                 addElement(jbiDocument, pDomain, EL_SERVICES_PROVIDER_DOMAIN_PORT).setTextContent("" + port);
                 addElement(jbiDocument, pDomain, EL_SERVICES_PROVIDER_DOMAIN_AUTH_NAME).setTextContent(authName);
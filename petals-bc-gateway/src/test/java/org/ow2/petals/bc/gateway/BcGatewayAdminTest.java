@@ -24,12 +24,41 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.ow2.petals.bc.gateway.junit.extensions.api.EnsurePortsAreOK.assertAvailable;
 import static org.ow2.petals.bc.gateway.junit.extensions.api.EnsurePortsAreOK.assertNotAvailable;
 
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
 import org.ow2.petals.basisapi.exception.PetalsException;
+import org.ow2.petals.binding.gateway.clientserver.api.AdminRuntimeService;
 import org.ow2.petals.commons.log.Level;
 
 public class BcGatewayAdminTest extends AbstractComponentTest {
 
+    @Test
+    public void testDomainsMetrics() throws Exception {
+        twoDomainsTest(true, true);
+
+        final Map<String, Map<String, Long>> domains = getComponent().getDomainsMetrics();
+        assertEquals(2, domains.size());
+        for (final Map<String, Long> metrics : domains.values()) {
+            assertEquals(1L, (long) metrics.get(AdminRuntimeService.METRIC_STARTED));
+            assertEquals(1L, (long) metrics.get(AdminRuntimeService.METRIC_COMPLETED));
+            assertEquals(0L, (long) metrics.get(AdminRuntimeService.METRIC_ERRORED));
+            assertEquals(0L, (long) metrics.get(AdminRuntimeService.METRIC_TIMED_OUT));
+            assertEquals(0L, (long) metrics.get(AdminRuntimeService.METRIC_IN_FLIGHT));
+            assertTrue(metrics.get(AdminRuntimeService.METRIC_BYTES_IN) > 0);
+            assertTrue(metrics.get(AdminRuntimeService.METRIC_BYTES_OUT) > 0);
+            assertTrue(metrics.get(
+                    AdminRuntimeService.METRIC_REMOTE_LATENCY + AdminRuntimeService.METRIC_LATENCY_COUNT) > 0);
+        }
+
+        final Map<String, Map<String, Long>> services = getComponent().getServicesMetrics();
+        assertEquals(2, services.size());
+        for (final Map<String, Long> metrics : services.values()) {
+            assertEquals(1L, (long) metrics.get(AdminRuntimeService.METRIC_STARTED));
+            assertEquals(1L, (long) metrics.get(AdminRuntimeService.METRIC_COMPLETED));
+        }
+    }
+
     @Test
     public void testCantAddListener() throws Exception {
         assertNotAvailable(TEST_TRANSPORT_PORT);
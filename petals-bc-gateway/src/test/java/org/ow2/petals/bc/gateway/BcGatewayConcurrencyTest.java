@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.servicedesc.ServiceEndpoint;
+import javax.xml.namespace.QName;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.ow2.easywsdl.wsdl.api.abstractItf.AbsItfOperation.MEPPatternConstants;
+import org.ow2.petals.component.framework.junit.helpers.MessageChecks;
+import org.ow2.petals.component.framework.junit.helpers.ServiceProviderImplementation;
+import org.ow2.petals.component.framework.util.ServiceEndpointKey;
+
+/**
+ * Exchanges must keep on going through the propagated endpoints while the services and the connections of the
+ * component change concurrently.
+ */
+public class BcGatewayConcurrencyTest extends AbstractComponentTest {
+
+    private static final QName OTHER_SERVICE = new QName(HELLO_NS, "OtherService");
+
+    private static final int EXCHANGES = 20;
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    private final AtomicReference<@Nullable Throwable> error = new AtomicReference<>();
+
+    private @Nullable Thread background;
+
+    /**
+     * Runs the task again and again in the background until {@link #stopBackground()}
+     */
+    private void startBackground(final Callable<?> task) {
+        final Thread thread = new Thread(() -> {
+            while (running.get()) {
+                try {
+                    task.call();
+                } catch (final Throwable t) {
+                    error.compareAndSet(null, t);
+                    return;
+                }
+            }
+        });
+        background = thread;
+        thread.start();
+    }
+
+    /**
+     * It must be done before the services are undeployed
+     */
+    @AfterEach
+    public void stopBackground() throws InterruptedException {
+        running.set(false);
+        final Thread thread = background;
+        if (thread != null) {
+            thread.join();
+            background = null;
+        }
+    }
+
+    private void sendHellos(final ServiceEndpoint endpoint) throws Exception {
+        for (int i = 0; i < EXCHANGES; i++) {
+            sendHello(endpoint);
+        }
+    }
+
+    private void sendHello(final ServiceEndpoint endpoint) throws Exception {
+        COMPONENT.sendAndCheckResponseAndSendStatus(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()),
+                ServiceProviderImplementation.outMessage(OUT),
+                MessageChecks.hasOut().andThen(MessageChecks.hasXmlContent(OUT)), ExchangeStatus.DONE);
+    }
+
+    private void assertSamePropagatedEndpoint(final ServiceEndpoint endpoint) {
+        // the external one and the propagated one
+        assertEquals(2, COMPONENT_UNDER_TEST.getEndpointDirectory().resolveEndpointsForService(HELLO_SERVICE).size());
+        final ServiceEndpoint propagated = getPropagatedServiceEndpoint(COMPONENT_UNDER_TEST);
+        assertNotNull(propagated);
+        assertEquals(endpoint.getEndpointName(), propagated.getEndpointName());
+        for (final LogRecord r : COMPONENT_UNDER_TEST.getInMemoryLogHandler().getAllRecords(Level.WARNING)) {
+            assertFalse(r.getMessage().contains("propagated service"), r.getMessage());
+        }
+    }
+
+    @Test
+    public void testRoutingWhileRegistering() throws Exception {
+        final ServiceEndpoint endpoint = deployTwoDomains();
+
+        final BcGatewayComponent component = getComponent();
+        final ServiceEndpointKey key = new ServiceEndpointKey(OTHER_SERVICE, "otherEndpoint");
+        startBackground(() -> {
+            component.register(key, exchange -> {
+                throw new IllegalStateException("Nothing is sent to " + key);
+            });
+            return component.deregister(key);
+        });
+
+        sendHellos(endpoint);
+
+        stopBackground();
+        assertNull(error.get());
+    }
+
+    @Test
+    public void testRoutingWhilePropagationsAreUpdated() throws Exception {
+        final ServiceEndpoint endpoint = deployTwoDomains();
+
+        final BcGatewayComponent component = getComponent();
+        startBackground(() -> {
+            // everything is sent again to the provider domain, which must keep the same endpoint
+            component.refreshPropagations();
+            return null;
+        });
+
+        sendHellos(endpoint);
+
+        stopBackground();
+        assertNull(error.get());
+        assertSamePropagatedEndpoint(endpoint);
+    }
+
+    @Test
+    public void testConnectingWhilePropagationsAreUpdated() throws Exception {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put(ATTR_SERVICES_PROVIDER_DOMAIN_CONNECTIONS, "2");
+        attributes.put(ATTR_SERVICES_PROVIDER_DOMAIN_RETRY_DELAY, "100");
+        final ServiceEndpoint endpoint = deployTwoDomains(Collections.<String, String> emptyMap(), attributes);
+        await().atMost(Duration.ofSeconds(10)).until(() -> getProviderDomainChannels().size() == 2);
+
+        final BcGatewayComponent component = getComponent();
+        startBackground(() -> {
+            component.refreshPropagations();
+            return null;
+        });
+
+        for (int i = 0; i < 5; i++) {
+            // each connection in turn: the one reconnected in the previous round is then the only one left
+            getProviderDomainChannels().get(i % 2).close().sync();
+            await().atMost(Duration.ofSeconds(10)).until(() -> getProviderDomainChannels().size() == 2);
+            sendHello(endpoint);
+        }
+
+        stopBackground();
+        assertNull(error.get());
+        assertSamePropagatedEndpoint(endpoint);
+    }
+}
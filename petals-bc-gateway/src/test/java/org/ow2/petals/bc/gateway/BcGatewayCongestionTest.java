@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.servicedesc.ServiceEndpoint;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.easywsdl.wsdl.api.abstractItf.AbsItfOperation.MEPPatternConstants;
+import org.ow2.petals.bc.gateway.outbound.ProviderDomain;
+import org.ow2.petals.component.framework.junit.ResponseMessage;
+import org.ow2.petals.component.framework.junit.StatusMessage;
+import org.ow2.petals.component.framework.junit.helpers.MessageChecks;
+import org.ow2.petals.component.framework.junit.helpers.ServiceProviderImplementation;
+
+import com.ebmwebsourcing.easycommons.lang.reflect.ReflectionHelper;
+
+import io.netty.channel.Channel;
+
+public class BcGatewayCongestionTest extends AbstractComponentTest {
+
+    /**
+     * The user defined writability is combined by netty with the one coming from the write buffer water marks
+     */
+    private static void setWritable(final Channel channel, final boolean writable) throws Exception {
+        channel.eventLoop().submit(() -> channel.unsafe().outboundBuffer().setUserDefinedWritability(1, writable))
+                .sync();
+    }
+
+    private Queue<?> getCongested() {
+        return (Queue<?>) ReflectionHelper.getFieldValue(ProviderDomain.class, getProviderDomain(), "congested");
+    }
+
+    @Test
+    public void testRejectedWhenCongested() throws Exception {
+        // there is no congestion queue by default
+        final ServiceEndpoint endpoint = deployTwoDomains();
+
+        setWritable(getProviderDomainChannels().get(0), false);
+
+        COMPONENT_UNDER_TEST.pushRequestToProvider(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()));
+
+        final StatusMessage status = COMPONENT_UNDER_TEST.pollStatusFromProvider(DEFAULT_TIMEOUT_FOR_COMPONENT_SEND);
+        assertNotNull(status);
+        assertEquals(ExchangeStatus.ERROR, status.getMessageExchange().getStatus());
+        assertTrue(status.getError().getMessage().contains("is congested"));
+        assertEquals(0, COMPONENT_UNDER_TEST.getRequestsFromConsumerCount());
+    }
+
+    @Test
+    public void testQueuedUntilWritable() throws Exception {
+        final ServiceEndpoint endpoint = deployTwoDomains(Collections.<String, String> emptyMap(),
+                Collections.singletonMap(ATTR_SERVICES_PROVIDER_DOMAIN_CONGESTION_QUEUE_SIZE, "10"));
+
+        final Channel channel = getProviderDomainChannels().get(0);
+        setWritable(channel, false);
+
+        COMPONENT_UNDER_TEST.pushRequestToProvider(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()));
+
+        await().atMost(Duration.ofSeconds(2)).until(() -> getCongested().size() == 1);
+        assertEquals(0, COMPONENT_UNDER_TEST.getRequestsFromConsumerCount());
+
+        setWritable(channel, true);
+
+        final ServiceProviderImplementation provider = ServiceProviderImplementation.outMessage(OUT);
+        COMPONENT.receiveResponseAsExternalProvider(provider, false);
+
+        final ResponseMessage response = COMPONENT_UNDER_TEST
+                .pollResponseFromProvider(DEFAULT_TIMEOUT_FOR_COMPONENT_SEND);
+        MessageChecks.hasOut().andThen(MessageChecks.hasXmlContent(OUT)).checks(response);
+        COMPONENT.sendDoneStatus(response, provider);
+
+        assertTrue(getCongested().isEmpty());
+    }
+
+    @Test
+    public void testQueuedExpires() throws Exception {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put(ATTR_SERVICES_PROVIDER_DOMAIN_CONGESTION_QUEUE_SIZE, "10");
+        attributes.put(ATTR_SERVICES_PROVIDER_DOMAIN_EXCHANGE_EXPIRATION, "500");
+        final ServiceEndpoint endpoint = deployTwoDomains(Collections.<String, String> emptyMap(), attributes);
+
+        setWritable(getProviderDomainChannels().get(0), false);
+
+        COMPONENT_UNDER_TEST.pushRequestToProvider(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()));
+
+        final StatusMessage status = COMPONENT_UNDER_TEST.pollStatusFromProvider(DEFAULT_TIMEOUT_FOR_COMPONENT_SEND);
+        assertNotNull(status);
+        assertEquals(ExchangeStatus.ERROR, status.getMessageExchange().getStatus());
+        assertTrue(status.getError().getMessage().contains("stayed congested for too long"));
+        assertTrue(getCongested().isEmpty());
+        assertEquals(0, COMPONENT_UNDER_TEST.getRequestsFromConsumerCount());
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.logging.Level;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.servicedesc.ServiceEndpoint;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.easywsdl.wsdl.api.abstractItf.AbsItfOperation.MEPPatternConstants;
+import org.ow2.petals.component.framework.junit.RequestMessage;
+import org.ow2.petals.component.framework.junit.ResponseMessage;
+import org.ow2.petals.component.framework.junit.StatusMessage;
+import org.ow2.petals.component.framework.junit.helpers.MessageChecks;
+import org.ow2.petals.component.framework.junit.helpers.ServiceProviderImplementation;
+
+public class BcGatewayExchangesInProgressTest extends AbstractComponentTest {
+
+    @Test
+    public void testExpiredWithoutAnswer() throws Exception {
+        final ServiceEndpoint endpoint = deployTwoDomains(Collections.<String, String> emptyMap(),
+                Collections.singletonMap(ATTR_SERVICES_PROVIDER_DOMAIN_EXCHANGE_EXPIRATION, "500"));
+
+        COMPONENT_UNDER_TEST.pushRequestToProvider(helloRequest(endpoint, MEPPatternConstants.IN_ONLY.value()));
+
+        final RequestMessage request = COMPONENT_UNDER_TEST.pollRequestFromConsumer(DEFAULT_TIMEOUT_FOR_COMPONENT_SEND);
+        assertNotNull(request);
+
+        // the provider domain doesn't wait for the answer longer than its exchange expiration
+        final StatusMessage status = COMPONENT_UNDER_TEST.pollStatusFromProvider(DEFAULT_TIMEOUT_FOR_COMPONENT_SEND);
+        assertNotNull(status);
+        assertEquals(ExchangeStatus.ERROR, status.getMessageExchange().getStatus());
+        assertTrue(status.getError().getMessage().contains("No answer received from the other side of domain"));
+
+        // the answer arriving late is simply ignored
+        COMPONENT_UNDER_TEST.pushStatusToConsumer(
+                (StatusMessage) ServiceProviderImplementation.statusMessage(ExchangeStatus.DONE).provides(request),
+                false);
+        assertLogContains("that expired before, ignoring it", Level.WARNING, 1);
+    }
+
+    @Test
+    public void testRejectedAboveCapacity() throws Exception {
+        final ServiceEndpoint endpoint = deployTwoDomains(Collections.<String, String> emptyMap(),
+                Collections.singletonMap(ATTR_SERVICES_PROVIDER_DOMAIN_CAPACITY, "1"));
+
+        COMPONENT_UNDER_TEST.pushRequestToProvider(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()));
+
+        // let's wait for the first one to be on the service provider side
+        await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertEquals(1, COMPONENT_UNDER_TEST.getRequestsFromConsumerCount()));
+
+        COMPONENT_UNDER_TEST.pushRequestToProvider(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()));
+
+        final StatusMessage status = COMPONENT_UNDER_TEST.pollStatusFromProvider(DEFAULT_TIMEOUT_FOR_COMPONENT_SEND);
+        assertNotNull(status);
+        assertEquals(ExchangeStatus.ERROR, status.getMessageExchange().getStatus());
+        assertTrue(status.getError().getMessage().contains("Too many exchanges in progress (1)"));
+        assertEquals(1, COMPONENT_UNDER_TEST.getRequestsFromConsumerCount());
+
+        // the one in progress is not impacted
+        final ServiceProviderImplementation provider = ServiceProviderImplementation.outMessage(OUT);
+        COMPONENT.receiveResponseAsExternalProvider(provider, false);
+
+        final ResponseMessage response = COMPONENT_UNDER_TEST
+                .pollResponseFromProvider(DEFAULT_TIMEOUT_FOR_COMPONENT_SEND);
+        MessageChecks.hasOut().andThen(MessageChecks.hasXmlContent(OUT)).checks(response);
+        COMPONENT.sendDoneStatus(response, provider);
+    }
+}
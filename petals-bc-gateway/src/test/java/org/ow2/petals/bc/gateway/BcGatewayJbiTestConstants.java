@@ -34,6 +34,16 @@ public interface BcGatewayJbiTestConstants extends BcGatewayJbiConstants, JbiCon
 
     public static final String ATTR_SERVICES_PROVIDER_DOMAIN_RETRY_DELAY = "retry-delay";
 
+    public static final String ATTR_SERVICES_PROVIDER_DOMAIN_CONNECTIONS = "connections";
+
+    public static final String ATTR_SERVICES_PROVIDER_DOMAIN_CAPACITY = "exchanges-in-progress-capacity";
+
+    public static final String ATTR_SERVICES_PROVIDER_DOMAIN_EXCHANGE_EXPIRATION = "exchange-expiration";
+
+    public static final String ATTR_SERVICES_PROVIDER_DOMAIN_CONGESTION_QUEUE_SIZE = "congestion-queue-size";
+
+    public static final String ATTR_SERVICES_PROVIDER_DOMAIN_RELIABLE = "reliable";
+
     public static final QName EL_SERVICES_PROVIDER_DOMAIN_IP = new QName(GATEWAY_NS_URI, "remote-ip");
 
     public static final QName EL_SERVICES_PROVIDER_DOMAIN_PORT = new QName(GATEWAY_NS_URI, "remote-port");
@@ -52,6 +62,8 @@ public interface BcGatewayJbiTestConstants extends BcGatewayJbiConstants, JbiCon
 
     public static final String ATTR_SERVICES_CONSUMER_DOMAIN_POLLING_DELAY = "propagation-polling-max-delay";
 
+    public static final String ATTR_SERVICES_CONSUMER_DOMAIN_RELIABLE = "reliable";
+
     public static final QName EL_SERVICES_CONSUMER_DOMAIN_AUTH_NAME = new QName(GATEWAY_NS_URI, "auth-name");
 
     public static final QName EL_SERVICES_CONSUMER_DOMAIN_REMOTE_CRT = new QName(GATEWAY_NS_URI, "remote-certificate");
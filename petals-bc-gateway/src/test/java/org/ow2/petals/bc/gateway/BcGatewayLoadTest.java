@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import javax.jbi.servicedesc.ServiceEndpoint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.ow2.petals.bc.gateway.load.LoadHarness;
+import org.ow2.petals.bc.gateway.load.LoadReport;
+
+/**
+ * Not run by default because it takes time, launch it with:
+ * 
+ * <pre>
+ * mvn test -Dtest=BcGatewayLoadTest -Dload=true [-Dload.concurrency=16] [-Dload.duration=30] [-Dload.warmup=5]
+ *     [-Dload.mix=IN_OUT:8,IN_ONLY:1,ROBUST_IN_ONLY:1] [-Dload.payload=1024]
+ * </pre>
+ * 
+ * The durations are in seconds and the report is written in <code>target/load-reports</code>.
+ */
+@EnabledIfSystemProperty(named = "load", matches = "true")
+public class BcGatewayLoadTest extends AbstractComponentTest {
+
+    @Test
+    public void load() throws Exception {
+        final ServiceEndpoint endpoint = deployTwoDomains(COMPONENT_UNDER_TEST,
+                createHelloConsumes(true, true, TimeUnit.SECONDS.toMillis(30)), createProvider());
+
+        final LoadReport report = new LoadHarness(COMPONENT_UNDER_TEST, endpoint)
+                .concurrency(Integer.getInteger("load.concurrency", 16))
+                .warmup(TimeUnit.SECONDS.toMillis(Long.getLong("load.warmup", 5)))
+                .duration(TimeUnit.SECONDS.toMillis(Long.getLong("load.duration", 30)))
+                .mix(System.getProperty("load.mix", "IN_OUT:8,IN_ONLY:1,ROBUST_IN_ONLY:1"))
+                .payloadSize(Integer.getInteger("load.payload", 1024)).run();
+
+        report.print(System.out);
+        report.write(new File("target/load-reports"), "load-" + System.currentTimeMillis());
+
+        assertTrue(report.getExchanges() > 0);
+        assertEquals(0, report.getErrors());
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.servicedesc.ServiceEndpoint;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.easywsdl.wsdl.api.abstractItf.AbsItfOperation.MEPPatternConstants;
+import org.ow2.petals.component.framework.junit.helpers.MessageChecks;
+import org.ow2.petals.component.framework.junit.helpers.ServiceProviderImplementation;
+
+import io.netty.channel.Channel;
+
+public class BcGatewayPoolTest extends AbstractComponentTest {
+
+    private ServiceEndpoint deployWithPool(final long retryDelay) throws Exception {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put(ATTR_SERVICES_PROVIDER_DOMAIN_CONNECTIONS, "2");
+        attributes.put(ATTR_SERVICES_PROVIDER_DOMAIN_RETRY_DELAY, "" + retryDelay);
+
+        final ServiceEndpoint endpoint = deployTwoDomains(Collections.<String, String> emptyMap(), attributes);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> getProviderDomainChannels().size() == 2);
+
+        return endpoint;
+    }
+
+    private void sendHello(final ServiceEndpoint endpoint) throws Exception {
+        COMPONENT.sendAndCheckResponseAndSendStatus(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()),
+                ServiceProviderImplementation.outMessage(OUT),
+                MessageChecks.hasOut().andThen(MessageChecks.hasXmlContent(OUT)), ExchangeStatus.DONE);
+    }
+
+    @Test
+    public void testExchangesUseTheRemainingConnection() throws Exception {
+        // big enough so that the closed connection is not back before the end of the test
+        final ServiceEndpoint endpoint = deployWithPool(60000);
+
+        final Channel closed = getProviderDomainChannels().get(0);
+        closed.close().sync();
+
+        assertLogContains("was closed unexpectedly", Level.WARNING, 1);
+        assertEquals(1, getProviderDomainChannels().size());
+
+        // the propagated services are only removed when the last connection is lost
+        assertNotNull(getPropagatedServiceEndpoint(COMPONENT_UNDER_TEST));
+
+        for (int i = 0; i < 5; i++) {
+            sendHello(endpoint);
+        }
+    }
+
+    @Test
+    public void testClosedConnectionIsReopened() throws Exception {
+        final ServiceEndpoint endpoint = deployWithPool(100);
+
+        final Channel closed = getProviderDomainChannels().get(0);
+        closed.close().sync();
+
+        assertLogContains("was closed unexpectedly", Level.WARNING, 1);
+        await().atMost(Duration.ofSeconds(10)).until(() -> getProviderDomainChannels().size() == 2);
+
+        for (int i = 0; i < 5; i++) {
+            sendHello(endpoint);
+        }
+    }
+}
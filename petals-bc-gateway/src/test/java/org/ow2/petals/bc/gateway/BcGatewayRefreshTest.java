@@ -31,6 +31,7 @@ import org.awaitility.Awaitility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -64,6 +65,11 @@ public class BcGatewayRefreshTest extends AbstractComponentTest {
 
     private static final String TEST_ENDPOINT_NAME2 = "testEndpoint2";
 
+    /**
+     * For the transport listener of the second component
+     */
+    private static final int COMPONENT2_TRANSPORT_PORT = 7502;
+
     private static final MockServiceEndpoint SERVICE_ENDPOINT = new MockServiceEndpoint(TEST_ENDPOINT_NAME,
             TEST_SERVICE, TEST_INTERFACE);
 
@@ -294,6 +300,39 @@ public class BcGatewayRefreshTest extends AbstractComponentTest {
         }
     }
 
+    /**
+     * The propagations of the consumer domain are refreshed, without polling, when the component itself activates an
+     * endpoint it consumes: here the one propagated to its provider domain by the consumer domain of the second
+     * component, which gets it back through its own provider domain.
+     */
+    @Test
+    public void testRefreshOnOwnEndpointActivation() throws Exception {
+        final BcGatewayComponent component2 = (BcGatewayComponent) COMPONENT_UNDER_TEST2.getComponentObject();
+        COMPONENT_UNDER_TEST2.getEndpointDirectory().activateEndpoint(SERVICE_ENDPOINT);
+        try {
+            // disable propagation polling
+            COMPONENT_UNDER_TEST.deployService(SU_CONSUMER_NAME,
+                    createConsumes(TEST_INTERFACE, TEST_SERVICE, null, null, null, null, 0L));
+            COMPONENT_UNDER_TEST2.deployService(SU_PROVIDER_NAME, createProvider());
+            assertLogContains(COMPONENT_UNDER_TEST2.getInMemoryLogHandler(), "AuthAccept", Level.FINE, 1, false);
+
+            // the endpoint is only consumed by its name: the one propagated back to the second component is not
+            component2.addTransportListener(TEST_TRANSPORT_NAME, COMPONENT2_TRANSPORT_PORT);
+            COMPONENT_UNDER_TEST2.deployService(SU_CONSUMER_NAME,
+                    createConsumes(TEST_INTERFACE, TEST_SERVICE, TEST_ENDPOINT_NAME, null, null, null, null));
+            COMPONENT_UNDER_TEST.deployService(SU_PROVIDER_NAME,
+                    createProvider(TEST_AUTH_NAME, COMPONENT2_TRANSPORT_PORT));
+
+            // the original one and the one propagated back
+            checkEndpoints(2, 2, 0);
+            assertLogContains("Changes in endpoints notified: propagations refreshed!", Level.INFO, 1);
+        } finally {
+            COMPONENT_UNDER_TEST2.undeployAllServices();
+            component2.removeTransportListener(TEST_TRANSPORT_NAME);
+            COMPONENT_UNDER_TEST2.getEndpointDirectory().deactivateEndpoint(SERVICE_ENDPOINT);
+        }
+    }
+
     private void checkEndpoints(final int nbInterface, final int nbService, final int nbService1) {
         Awaitility.await().atMost(Duration.ofSeconds(5)).until(new Callable<Boolean>() {
             @Override
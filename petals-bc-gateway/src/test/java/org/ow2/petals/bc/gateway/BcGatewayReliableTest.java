@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.jbi.servicedesc.ServiceEndpoint;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.easywsdl.wsdl.api.abstractItf.AbsItfOperation.MEPPatternConstants;
+import org.ow2.petals.bc.gateway.inbound.ConsumerDomain;
+import org.ow2.petals.component.framework.junit.ResponseMessage;
+import org.ow2.petals.component.framework.junit.helpers.MessageChecks;
+import org.ow2.petals.component.framework.junit.helpers.ServiceProviderImplementation;
+
+import com.ebmwebsourcing.easycommons.lang.reflect.ReflectionHelper;
+
+import io.netty.channel.Channel;
+
+public class BcGatewayReliableTest extends AbstractComponentTest {
+
+    private ServiceEndpoint deployReliableDomains(final long retryDelay) throws Exception {
+        final Map<String, String> providerAttributes = new HashMap<>();
+        providerAttributes.put(ATTR_SERVICES_PROVIDER_DOMAIN_RELIABLE, "true");
+        providerAttributes.put(ATTR_SERVICES_PROVIDER_DOMAIN_RETRY_DELAY, "" + retryDelay);
+
+        return deployTwoDomains(Collections.singletonMap(ATTR_SERVICES_CONSUMER_DOMAIN_RELIABLE, "true"),
+                providerAttributes);
+    }
+
+    private Collection<?> getConsumerDomainChannels() {
+        final Collection<ConsumerDomain> cds = getComponent().getServiceUnitManager().getConsumerDomains();
+        assertEquals(1, cds.size());
+        return (Collection<?>) ReflectionHelper.getFieldValue(ConsumerDomain.class, cds.iterator().next(),
+                "channels");
+    }
+
+    /**
+     * The request was delivered on the previous connection: the answer must reach the consumer exactly once.
+     */
+    private void answerAndCheck(final ServiceProviderImplementation provider) throws Exception {
+        final ResponseMessage response = COMPONENT_UNDER_TEST
+                .pollResponseFromProvider(DEFAULT_TIMEOUT_FOR_COMPONENT_SEND);
+        MessageChecks.hasOut().andThen(MessageChecks.hasXmlContent(OUT)).checks(response);
+        COMPONENT.sendDoneStatus(response, provider);
+
+        assertNull(COMPONENT_UNDER_TEST.pollResponseFromProvider(500));
+        assertEquals(0, COMPONENT_UNDER_TEST.getRequestsFromConsumerCount());
+    }
+
+    @Test
+    public void testAnswerResentAfterReconnection() throws Exception {
+        final ServiceEndpoint endpoint = deployReliableDomains(1000);
+
+        COMPONENT_UNDER_TEST.pushRequestToProvider(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()));
+
+        // let's wait for the request to be on the service provider side
+        await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertEquals(1, COMPONENT_UNDER_TEST.getRequestsFromConsumerCount()));
+
+        getProviderDomainChannels().get(0).close().sync();
+        await().atMost(Duration.ofSeconds(2)).until(() -> getConsumerDomainChannels().isEmpty());
+
+        // the answer is kept by the consumer domain until the provider domain reconnects
+        final ServiceProviderImplementation provider = ServiceProviderImplementation.outMessage(OUT);
+        COMPONENT.receiveResponseAsExternalProvider(provider, false);
+
+        assertLogContains("Resent 1 messages not acknowledged by the other side of domain '" + TEST_CONSUMER_DOMAIN
+                + "'", Level.INFO, 1);
+
+        answerAndCheck(provider);
+    }
+
+    @Test
+    public void testAnswerSentOnNewConnection() throws Exception {
+        final ServiceEndpoint endpoint = deployReliableDomains(1000);
+
+        COMPONENT_UNDER_TEST.pushRequestToProvider(helloRequest(endpoint, MEPPatternConstants.IN_OUT.value()));
+
+        await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertEquals(1, COMPONENT_UNDER_TEST.getRequestsFromConsumerCount()));
+
+        final Channel previous = getProviderDomainChannels().get(0);
+        getComponent().reconnectDomains(true);
+        await().atMost(Duration.ofSeconds(10)).until(() -> getProviderDomainChannels().size() == 1
+                && getProviderDomainChannels().get(0) != previous && getConsumerDomainChannels().size() == 1);
+        assertNotSame(previous, getProviderDomainChannels().get(0));
+
+        // the answer goes through the new connection
+        final ServiceProviderImplementation provider = ServiceProviderImplementation.outMessage(OUT);
+        COMPONENT.receiveResponseAsExternalProvider(provider, false);
+
+        answerAndCheck(provider);
+    }
+}
@@ -17,11 +17,24 @@
  */
 package org.ow2.petals.bc.gateway;
 
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.Duration;
+
 import org.awaitility.core.ConditionTimeoutException;
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.jupiter.api.Test;
+import org.ow2.petals.bc.gateway.commons.AbstractDomain;
+import org.ow2.petals.bc.gateway.commons.SslContextCache;
+import org.ow2.petals.bc.gateway.inbound.ConsumerDomain;
+import org.ow2.petals.bc.gateway.outbound.ProviderDomain;
+import org.ow2.petals.bc.gateway.outbound.TransportClient;
+
+import com.ebmwebsourcing.easycommons.lang.reflect.ReflectionHelper;
 
 public class BcGatewaySSLTest extends AbstractComponentTest {
 
@@ -57,6 +70,35 @@ public class BcGatewaySSLTest extends AbstractComponentTest {
         });
     }
 
+    @Test
+    public void testSslContextReusedOnReconnection() throws Exception {
+        test(CLIENT_CRT, CLIENT_KEY, SERVER_CRT, SERVER_CRT, SERVER_KEY, CLIENT_CRT);
+
+        final ProviderDomain pd = getComponent().getServiceUnitManager().getProviderDomains().iterator().next();
+        final ConsumerDomain cd = getComponent().getServiceUnitManager().getConsumerDomains().iterator().next();
+        final Object clientContext = cachedSslContext(pd);
+        final Object serverContext = cachedSslContext(cd);
+        assertNotNull(clientContext);
+        assertNotNull(serverContext);
+
+        getComponent().reconnectDomains(true);
+
+        final TransportClient client = (TransportClient) ReflectionHelper.getFieldValue(ProviderDomain.class, pd,
+                "client");
+        await().atMost(Duration.ofSeconds(5)).until(client::isConnected);
+
+        assertSame(clientContext, cachedSslContext(pd));
+        assertSame(serverContext, cachedSslContext(cd));
+
+        pd.reload(pd.getJPD());
+
+        assertNull(cachedSslContext(pd));
+    }
+
+    private static @Nullable Object cachedSslContext(final AbstractDomain domain) {
+        return ReflectionHelper.getFieldValue(SslContextCache.class, domain.getSslContext(), "context");
+    }
+
     public void test(final @Nullable String clientCertificate, final @Nullable String clientKey,
             final @Nullable String clientRemoteCertificate, final @Nullable String serverCertificate,
             final @Nullable String serverKey, final @Nullable String serverRemoteCertificate) throws Exception {
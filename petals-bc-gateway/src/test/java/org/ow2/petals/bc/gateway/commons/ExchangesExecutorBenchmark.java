@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Compares the latency of the delivery to the NMR of the exchanges received by the domains for each mode of
+ * {@link ExchangesExecutor} when some of the NMR targets are slow: the exchanges are received by the event loops
+ * (as many as the default consumer-domains-max-pool-size) and a fraction of them block while being delivered.
+ * 
+ * The latencies reported are those of the exchanges whose target is not slow, from their reception to the end of their
+ * delivery.
+ * 
+ * This is not a test and is not run by the build, launch it (with Java 21 to include virtual threads) with:
+ * 
+ * <pre>
+ * java ... org.ow2.petals.bc.gateway.commons.ExchangesExecutorBenchmark [exchanges] [slow every] [slow delay in ms]
+ * </pre>
+ */
+public class ExchangesExecutorBenchmark {
+
+    private static final int EVENT_LOOPS = 6;
+
+    private static final int CHANNELS = 24;
+
+    /**
+     * The rate at which exchanges are received
+     */
+    private static final long ARRIVAL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    public static void main(final String[] args) throws Exception {
+        final int exchanges = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int slowEvery = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        final long slowDelay = args.length > 2 ? Long.parseLong(args[2]) : 20;
+
+        final Logger logger = Logger.getLogger(ExchangesExecutorBenchmark.class.getName());
+
+        run("event loops", ExchangesExecutor.DIRECT, exchanges, slowEvery, slowDelay, logger);
+        run("pool of " + EVENT_LOOPS + " threads",
+                new ExchangesExecutor(new DefaultEventExecutorGroup(EVENT_LOOPS, new DefaultThreadFactory("bench")), 0),
+                exchanges, slowEvery, slowDelay, logger);
+        final ExchangesExecutor virtualThreads = ExchangesExecutor.newVirtualThreads(logger, 0);
+        if (virtualThreads != null) {
+            run("virtual threads", virtualThreads, exchanges, slowEvery, slowDelay, logger);
+        } else {
+            logger.info(String.format("virtual threads: not available (%s)",
+                    ExchangesExecutor.virtualThreadsUnavailabilityCause()));
+        }
+    }
+
+    private static void run(final String mode, final ExchangesExecutor executor, final int exchanges,
+            final int slowEvery, final long slowDelay, final Logger logger) throws Exception {
+        final DefaultEventLoopGroup eventLoops = new DefaultEventLoopGroup(EVENT_LOOPS,
+                new DefaultThreadFactory("bench-event-loops"));
+        try {
+            final EventLoop[] channels = new EventLoop[CHANNELS];
+            for (int i = 0; i < CHANNELS; i++) {
+                channels[i] = eventLoops.next();
+            }
+
+            // warm up
+            deliver(channels, executor, exchanges / 10, slowEvery, slowDelay);
+
+            final long[] latencies = deliver(channels, executor, exchanges, slowEvery, slowDelay);
+            Arrays.sort(latencies);
+
+            logger.info(String.format("%s: latency mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us", mode,
+                    Arrays.stream(latencies).average().orElse(0) / 1e3, latencies[latencies.length / 2] / 1e3,
+                    latencies[(int) (latencies.length * 0.99)] / 1e3, latencies[latencies.length - 1] / 1e3));
+        } finally {
+            executor.shutdown();
+            eventLoops.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static long[] deliver(final EventLoop[] channels, final ExchangesExecutor executor, final int exchanges,
+            final int slowEvery, final long slowDelay) throws Exception {
+        final long[] latencies = new long[exchanges];
+        final CountDownLatch done = new CountDownLatch(exchanges);
+        for (int i = 0; i < exchanges; i++) {
+            final int exchange = i;
+            final boolean slow = slowEvery > 0 && exchange % slowEvery == 0;
+            final long receivedAt = System.nanoTime();
+            // the exchange is received by the event loop of its channel, which hands it over to the executor
+            channels[exchange % channels.length].execute(() -> executor.execute("exchange-" + exchange, () -> {
+                if (slow) {
+                    // the NMR target is slow
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(slowDelay));
+                    latencies[exchange] = -1;
+                } else {
+                    latencies[exchange] = System.nanoTime() - receivedAt;
+                }
+                done.countDown();
+            }));
+            LockSupport.parkNanos(ARRIVAL_INTERVAL_NANOS);
+        }
+        if (!done.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Exchanges not delivered in time");
+        }
+        return Arrays.stream(latencies).filter(l -> l >= 0).toArray();
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+
+public class ExchangesExecutorTest {
+
+    @Test
+    public void testDirect() {
+        final List<Thread> threads = new ArrayList<>();
+        ExchangesExecutor.DIRECT.execute("exchange", () -> threads.add(Thread.currentThread()));
+        assertEquals(1, threads.size());
+        assertSame(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void testOrderedPerExchange() throws Exception {
+        assertOrderedPerExchange(new ExchangesExecutor(new DefaultEventExecutorGroup(4), 0));
+    }
+
+    @Test
+    public void testOrderedPerExchangeWithVirtualThreads() throws Exception {
+        assumeTrue(ExchangesExecutor.isVirtualThreadsAvailable(), "virtual threads are not available");
+        final ExchangesExecutor executor = ExchangesExecutor
+                .newVirtualThreads(Logger.getLogger(ExchangesExecutorTest.class.getName()), 0);
+        assertNotNull(executor);
+        assertOrderedPerExchange(executor);
+    }
+
+    @Test
+    public void testChannelNotReadWhileTooManyPending() throws Exception {
+        final ExchangesExecutor executor = new ExchangesExecutor(new DefaultEventExecutorGroup(1), 4);
+        final EmbeddedChannel channel = new EmbeddedChannel();
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(4);
+            for (int i = 0; i < 3; i++) {
+                executor.execute("exchange-" + i, channel, () -> {
+                    try {
+                        blocked.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(channel.config().isAutoRead());
+            assertTrue(ExchangesExecutor.isReadable(channel));
+
+            executor.execute("exchange-3", channel, done::countDown);
+            assertFalse(channel.config().isAutoRead());
+            assertFalse(ExchangesExecutor.isReadable(channel));
+
+            blocked.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            // the channel is read again from its event loop, once the tasks are really over
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!channel.config().isAutoRead() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                channel.runPendingTasks();
+            }
+            assertTrue(channel.config().isAutoRead());
+            assertTrue(ExchangesExecutor.isReadable(channel));
+        } finally {
+            channel.finishAndReleaseAll();
+            executor.shutdown();
+        }
+    }
+
+    private static void assertOrderedPerExchange(final ExchangesExecutor executor) throws Exception {
+        try {
+            final int exchanges = 10;
+            final int steps = 100;
+            final List<List<Integer>> received = new ArrayList<>();
+            for (int i = 0; i < exchanges; i++) {
+                received.add(Collections.synchronizedList(new ArrayList<>()));
+            }
+            final CountDownLatch done = new CountDownLatch(exchanges * steps);
+            for (int step = 0; step < steps; step++) {
+                for (int i = 0; i < exchanges; i++) {
+                    final List<Integer> exchange = received.get(i);
+                    final int s = step;
+                    executor.execute("exchange-" + i, () -> {
+                        exchange.add(s);
+                        done.countDown();
+                    });
+                }
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            for (final List<Integer> r : received) {
+                assertEquals(steps, r.size());
+                for (int step = 0; step < steps; step++) {
+                    assertEquals(step, r.get(step).intValue());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
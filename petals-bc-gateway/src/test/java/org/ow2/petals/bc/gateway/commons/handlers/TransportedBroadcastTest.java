@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.petals.bc.gateway.commons.AbstractDomain;
+import org.ow2.petals.bc.gateway.commons.DomainMetrics;
+import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedDocument;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagations;
+import org.w3c.dom.Document;
+
+import com.ebmwebsourcing.easycommons.xml.XMLHelper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatchers;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.serialization.ClassResolvers;
+import io.netty.handler.codec.serialization.ObjectDecoder;
+import io.netty.handler.codec.serialization.ObjectEncoder;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+public class TransportedBroadcastTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final ServiceKey SERVICE = new ServiceKey("endpoint",
+            new QName("http://petals.ow2.org", "HelloService"), new QName("http://petals.ow2.org", "HelloInterface"));
+
+    private final DomainMetrics metrics = new DomainMetrics();
+
+    private static TransportedPropagations propagations(final int nbElements) throws Exception {
+        final StringBuilder sb = new StringBuilder("<a xmlns=\"http://petals.ow2.org\">");
+        for (int i = 0; i < nbElements; i++) {
+            sb.append("<b>").append(i).append("</b>");
+        }
+        sb.append("</a>");
+        final Document doc = XMLHelper.createDocumentFromString(sb.toString());
+        final Map<ServiceKey, TransportedDocument> propagations = new HashMap<>();
+        propagations.put(SERVICE, new TransportedDocument(doc));
+        return new TransportedPropagations(1, 1, propagations);
+    }
+
+    /**
+     * The same pipeline as the real channels: the broadcast frames must go through the encoders untouched
+     */
+    private EmbeddedChannel sender(final byte version, final TransportedFraming framing) {
+        final TransportedEncoder encoder = new TransportedEncoder(ClassResolvers.cacheDisabled(null),
+                framing.chunkSize, Logger.getLogger(TransportedBroadcastTest.class.getName()));
+        final EmbeddedChannel sender = new EmbeddedChannel(new ObjectEncoder(), encoder);
+        if (TransportedCodec.isSupported(version)) {
+            encoder.enable(version);
+        }
+        sender.attr(AbstractDomain.CODEC_VERSION).set(version);
+        sender.attr(TransportedFraming.KEY).set(framing);
+        sender.attr(DomainMetrics.KEY).set(metrics);
+        return sender;
+    }
+
+    private static int receive(final EmbeddedChannel sender) {
+        final TransportedFrameDecoder decoder = new TransportedFrameDecoder(ClassResolvers.cacheDisabled(null),
+                1024 * 1024);
+        decoder.enableChunks();
+        final EmbeddedChannel receiver = new EmbeddedChannel(decoder,
+                new ObjectDecoder(ClassResolvers.cacheDisabled(null)));
+        ByteBuf frame;
+        while ((frame = sender.readOutbound()) != null) {
+            receiver.writeInbound(frame);
+        }
+        final Object received = receiver.readInbound();
+        assertNull(receiver.readInbound());
+        receiver.finish();
+
+        assertInstanceOf(TransportedPropagations.class, received);
+        final TransportedPropagations propagations = (TransportedPropagations) received;
+        return propagations.getPropagations().get(SERVICE).getDocument().getDocumentElement().getChildNodes()
+                .getLength();
+    }
+
+    @Test
+    public void testEncodingsAreRespected() throws Exception {
+        final EmbeddedChannel binary1 = sender(TransportedCodec.VERSION, TransportedFraming.DEFAULT);
+        final EmbeddedChannel binary2 = sender(TransportedCodec.VERSION, TransportedFraming.DEFAULT);
+        final EmbeddedChannel chunked = sender(TransportedCodec.VERSION,
+                new TransportedFraming(CHUNK_SIZE, TransportedFraming.DEFAULT.maxReassemblySize));
+        final EmbeddedChannel serialized = sender(TransportedCodec.NO_VERSION, TransportedFraming.DEFAULT);
+
+        final ChannelGroup group = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        group.add(binary1);
+        group.add(binary2);
+        group.add(chunked);
+        group.add(serialized);
+
+        TransportedBroadcast.writeAndFlush(group, propagations(2000), ChannelMatchers.all());
+
+        // encoded once for both binary channels, but counted for each
+        assertEquals(3, metrics.getMessagesOut());
+
+        assertEquals(2000, receive(binary1));
+        assertEquals(2000, receive(binary2));
+        assertEquals(2000, receive(chunked));
+        assertEquals(2000, receive(serialized));
+
+        assertTrue(group.close().await(1000));
+    }
+
+    @Test
+    public void testMatcher() throws Exception {
+        final EmbeddedChannel included = sender(TransportedCodec.VERSION, TransportedFraming.DEFAULT);
+        final EmbeddedChannel excluded = sender(TransportedCodec.VERSION, TransportedFraming.DEFAULT);
+
+        final ChannelGroup group = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        group.add(included);
+        group.add(excluded);
+
+        TransportedBroadcast.writeAndFlush(group, propagations(10), ChannelMatchers.is(included));
+
+        assertEquals(10, receive(included));
+        assertNull(excluded.readOutbound());
+
+        assertTrue(group.close().await(1000));
+    }
+
+    @Test
+    public void testSameFramesForDifferentEncodings() throws Exception {
+        // smaller than the chunks: the frames are the same for both
+        final EmbeddedChannel binary = sender(TransportedCodec.VERSION, TransportedFraming.DEFAULT);
+        final EmbeddedChannel chunked = sender(TransportedCodec.VERSION,
+                new TransportedFraming(CHUNK_SIZE, TransportedFraming.DEFAULT.maxReassemblySize));
+
+        final ChannelGroup group = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        group.add(binary);
+        group.add(chunked);
+
+        TransportedBroadcast.writeAndFlush(group, propagations(1), ChannelMatchers.all());
+
+        assertEquals(1, receive(binary));
+        assertEquals(1, receive(chunked));
+
+        assertTrue(group.close().await(1000));
+    }
+
+    @Test
+    public void testReleaseWithoutWriting() throws Exception {
+        final EmbeddedChannel binary = sender(TransportedCodec.VERSION, TransportedFraming.DEFAULT);
+        final EmbeddedChannel serialized = sender(TransportedCodec.NO_VERSION, TransportedFraming.DEFAULT);
+
+        final ChannelGroup group = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        group.add(binary);
+        group.add(serialized);
+
+        TransportedBroadcast.encode(group, propagations(10), ChannelMatchers.all()).release();
+
+        assertNull(binary.readOutbound());
+        assertNull(serialized.readOutbound());
+
+        assertTrue(group.close().await(1000));
+    }
+}
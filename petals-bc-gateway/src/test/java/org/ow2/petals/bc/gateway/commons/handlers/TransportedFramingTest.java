@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedCodec;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedDocument;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedPropagations;
+import org.w3c.dom.Document;
+
+import com.ebmwebsourcing.easycommons.xml.XMLHelper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.serialization.ClassResolvers;
+
+public class TransportedFramingTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final ServiceKey SERVICE = new ServiceKey("endpoint",
+            new QName("http://petals.ow2.org", "HelloService"), new QName("http://petals.ow2.org", "HelloInterface"));
+
+    private static TransportedPropagations propagations(final int nbElements) throws Exception {
+        final StringBuilder sb = new StringBuilder("<a xmlns=\"http://petals.ow2.org\">");
+        for (int i = 0; i < nbElements; i++) {
+            sb.append("<b>").append(i).append("</b>");
+        }
+        sb.append("</a>");
+        final Document doc = XMLHelper.createDocumentFromString(sb.toString());
+        final Map<ServiceKey, TransportedDocument> propagations = new HashMap<>();
+        propagations.put(SERVICE, new TransportedDocument(doc));
+        return new TransportedPropagations(propagations);
+    }
+
+    private static List<ByteBuf> encode(final TransportedPropagations msg, final byte version) {
+        final TransportedEncoder encoder = new TransportedEncoder(ClassResolvers.cacheDisabled(null), CHUNK_SIZE,
+                Logger.getLogger(TransportedFramingTest.class.getName()));
+        encoder.enable(version);
+        final EmbeddedChannel sender = new EmbeddedChannel(encoder);
+        assertTrue(sender.writeOutbound(msg));
+        final List<ByteBuf> frames = new ArrayList<>();
+        ByteBuf frame;
+        while ((frame = sender.readOutbound()) != null) {
+            frames.add(frame);
+        }
+        sender.finish();
+        return frames;
+    }
+
+    private static EmbeddedChannel receiver(final int maxReassemblySize) {
+        final TransportedFrameDecoder decoder = new TransportedFrameDecoder(ClassResolvers.cacheDisabled(null),
+                maxReassemblySize);
+        // as done once authenticated
+        decoder.enableChunks();
+        return new EmbeddedChannel(decoder);
+    }
+
+    private static int countElements(final Object received) {
+        assertInstanceOf(TransportedPropagations.class, received);
+        return ((TransportedPropagations) received).getPropagations().get(SERVICE).getDocument()
+                .getDocumentElement().getChildNodes().getLength();
+    }
+
+    @Test
+    public void testChunks() throws Exception {
+        final List<ByteBuf> frames = encode(propagations(2000), TransportedCodec.VERSION);
+        assertTrue(frames.size() > 1);
+
+        final EmbeddedChannel receiver = receiver(1024 * 1024);
+        for (int i = 0; i < frames.size(); i++) {
+            receiver.writeInbound(frames.get(i));
+            if (i < frames.size() - 1) {
+                // nothing until the last chunk
+                assertNull(receiver.readInbound());
+            }
+        }
+        assertEquals(2000, countElements(receiver.readInbound()));
+        receiver.finish();
+    }
+
+    @Test
+    public void testNoChunksWithPreviousVersion() throws Exception {
+        final List<ByteBuf> frames = encode(propagations(2000), (byte) (TransportedCodec.CHUNKED_VERSION - 1));
+        assertEquals(1, frames.size());
+
+        final EmbeddedChannel receiver = receiver(CHUNK_SIZE);
+        receiver.writeInbound(frames.get(0));
+        assertEquals(2000, countElements(receiver.readInbound()));
+        receiver.finish();
+    }
+
+    @Test
+    public void testReassemblyBudget() throws Exception {
+        final List<ByteBuf> frames = encode(propagations(2000), TransportedCodec.VERSION);
+        assertTrue(frames.size() > 4);
+
+        final EmbeddedChannel receiver = receiver(4 * CHUNK_SIZE);
+        boolean failed = false;
+        for (final ByteBuf frame : frames) {
+            if (failed) {
+                // the rest of the message is ignored
+                receiver.writeInbound(frame);
+            } else {
+                try {
+                    receiver.writeInbound(frame);
+                } catch (final TooLongFrameException e) {
+                    failed = true;
+                }
+            }
+            assertNull(receiver.readInbound());
+        }
+        assertTrue(failed);
+
+        // the QNames interned by the sender in the dropped message would be missing for the next ones
+        assertFalse(receiver.isOpen());
+        receiver.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testNoChunksBeforeAuthentication() throws Exception {
+        final List<ByteBuf> frames = encode(propagations(2000), TransportedCodec.VERSION);
+        assertTrue(frames.size() > 1);
+
+        final EmbeddedChannel receiver = new EmbeddedChannel(
+                new TransportedFrameDecoder(ClassResolvers.cacheDisabled(null), 1024 * 1024));
+        assertThrows(CorruptedFrameException.class, () -> receiver.writeInbound(frames.get(0)));
+        assertFalse(receiver.isOpen());
+        for (int i = 1; i < frames.size(); i++) {
+            frames.get(i).release();
+        }
+        receiver.finishAndReleaseAll();
+    }
+}
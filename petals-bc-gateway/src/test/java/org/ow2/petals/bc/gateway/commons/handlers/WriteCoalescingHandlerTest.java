@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class WriteCoalescingHandlerTest {
+
+    private static final Logger LOG = Logger.getLogger(WriteCoalescingHandlerTest.class.getName());
+
+    private static EmbeddedChannel channel(final int maxFlushes) {
+        return new EmbeddedChannel(new WriteCoalescingHandler(new WriteCoalescing(true, maxFlushes, 0), LOG),
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(final @Nullable ChannelHandlerContext ctx, final @Nullable Object msg) {
+                        assert ctx != null;
+                        // echo
+                        ctx.writeAndFlush(msg);
+                    }
+                });
+    }
+
+    private static WriteCoalescingHandler.Stats stats(final EmbeddedChannel channel) {
+        final WriteCoalescingHandler.Stats stats = WriteCoalescingHandler.getStats(channel);
+        assertNotNull(stats);
+        return stats;
+    }
+
+    @Test
+    public void testFlushesConsolidatedUntilEndOfTask() {
+        final EmbeddedChannel channel = channel(256);
+        for (int i = 0; i < 3; i++) {
+            channel.writeAndFlush("m" + i);
+        }
+        assertEquals(0, channel.outboundMessages().size());
+        assertEquals(0, stats(channel).getFlushes());
+
+        channel.runPendingTasks();
+
+        assertEquals(3, channel.outboundMessages().size());
+        assertEquals(1, stats(channel).getFlushes());
+        assertEquals(3, stats(channel).getMessages());
+        assertEquals(3, stats(channel).getMaxBatchSize());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testMaxFlushes() {
+        final EmbeddedChannel channel = channel(2);
+        for (int i = 0; i < 5; i++) {
+            channel.writeAndFlush("m" + i);
+        }
+        assertEquals(4, channel.outboundMessages().size());
+
+        channel.runPendingTasks();
+
+        assertEquals(5, channel.outboundMessages().size());
+        assertEquals(3, stats(channel).getFlushes());
+        assertEquals(2, stats(channel).getMaxBatchSize());
+        assertEquals(1, stats(channel).getBatchSizeHistogram()[0]);
+        assertEquals(2, stats(channel).getBatchSizeHistogram()[1]);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFlushesConsolidatedUntilEndOfRead() {
+        final EmbeddedChannel channel = channel(256);
+        channel.writeInbound("a", "b", "c");
+
+        // flushed at the read complete, no need to run the pending tasks
+        assertEquals(3, channel.outboundMessages().size());
+        assertEquals(1, stats(channel).getFlushes());
+        assertEquals(3, stats(channel).getMessages());
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.commons.messages;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.messaging.NormalizedMessage;
+import javax.xml.namespace.QName;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.petals.commons.log.FlowAttributes;
+import org.w3c.dom.Document;
+
+import com.ebmwebsourcing.easycommons.xml.XMLHelper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.serialization.ClassResolvers;
+
+public class TransportedCodecTest {
+
+    private static final QName INTERFACE = new QName("http://petals.ow2.org", "HelloInterface");
+
+    private static final QName SERVICE = new QName("http://petals.ow2.org", "HelloService");
+
+    private final TransportedCodec encoder = new TransportedCodec(ClassResolvers.cacheDisabled(null));
+
+    private final TransportedCodec decoder = new TransportedCodec(ClassResolvers.cacheDisabled(null));
+
+    private Transported roundTrip(final Transported msg) throws Exception {
+        return roundTrip(msg, TransportedCodec.VERSION);
+    }
+
+    private Transported roundTrip(final Transported msg, final byte version) throws Exception {
+        final ByteBuf buf = Unpooled.buffer();
+        try {
+            encoder.encode(msg, buf, version);
+            assertEquals(TransportedCodec.MAGIC, buf.getByte(0));
+            final Transported res = decoder.decode(buf);
+            assertEquals(0, buf.readableBytes());
+            return res;
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testPropagations() throws Exception {
+        final Document doc = XMLHelper.createDocumentFromString("<a xmlns=\"http://petals.ow2.org\"><b/></a>");
+        assertNotNull(doc);
+
+        final Map<ServiceKey, TransportedDocument> propagations = new HashMap<>();
+        final ServiceKey withDoc = new ServiceKey("endpoint", SERVICE, INTERFACE);
+        final ServiceKey withoutDoc = new ServiceKey(null, SERVICE, INTERFACE);
+        propagations.put(withDoc, new TransportedDocument(doc));
+        propagations.put(withoutDoc, null);
+
+        // the second time, the QNames are interned
+        for (int i = 0; i < 2; i++) {
+            final Transported res = roundTrip(new TransportedPropagations(propagations));
+            assertInstanceOf(TransportedPropagations.class, res);
+
+            final Map<ServiceKey, TransportedDocument> received = ((TransportedPropagations) res).getPropagations();
+            assertEquals(propagations.keySet(), received.keySet());
+            assertTrue(received.containsKey(withoutDoc));
+            assertNull(received.get(withoutDoc));
+            assertEquals("a", received.get(withDoc).getDocument().getDocumentElement().getLocalName());
+        }
+    }
+
+    @Test
+    public void testVersionedPropagations() throws Exception {
+        final ServiceKey service = new ServiceKey(null, SERVICE, INTERFACE);
+        final TransportedPropagations propagations = new TransportedPropagations(42, 7,
+                Collections.singletonMap(service, null));
+
+        final Transported res = roundTrip(propagations);
+        assertInstanceOf(TransportedPropagations.class, res);
+        final TransportedPropagations received = (TransportedPropagations) res;
+        assertTrue(received.isVersioned());
+        assertEquals(42, received.getEpoch());
+        assertEquals(7, received.getVersion());
+        assertEquals(propagations.getPropagations().keySet(), received.getPropagations().keySet());
+
+        // older versions don't know about it
+        final Transported old = roundTrip(propagations, (byte) (TransportedCodec.DELTA_VERSION - 1));
+        assertFalse(((TransportedPropagations) old).isVersioned());
+        assertEquals(propagations.getPropagations().keySet(), ((TransportedPropagations) old).getPropagations()
+                .keySet());
+    }
+
+    @Test
+    public void testPropagationsDelta() throws Exception {
+        final Document doc = XMLHelper.createDocumentFromString("<a xmlns=\"http://petals.ow2.org\"><b/></a>");
+        assertNotNull(doc);
+
+        final ServiceKey updated = new ServiceKey("endpoint", SERVICE, INTERFACE);
+        final ServiceKey removed = new ServiceKey(null, SERVICE, INTERFACE);
+        final TransportedDocument document = new TransportedDocument(doc);
+
+        final Transported res = roundTrip(new TransportedPropagationsDelta(42, 7, 8,
+                Collections.singletonMap(updated, document), Collections.singleton(removed)));
+        assertInstanceOf(TransportedPropagationsDelta.class, res);
+
+        final TransportedPropagationsDelta received = (TransportedPropagationsDelta) res;
+        assertEquals(42, received.epoch);
+        assertEquals(7, received.baseVersion);
+        assertEquals(8, received.version);
+        assertEquals(Collections.singleton(updated), received.updated.keySet());
+        assertEquals(Collections.singleton(removed), received.removed);
+        // the received bytes have the same digest as the document that was sent
+        assertTrue(TransportedDocument.sameContent(document, received.updated.get(updated)));
+
+        assertInstanceOf(TransportedPropagationsResync.class, roundTrip(new TransportedPropagationsResync()));
+    }
+
+    @Test
+    public void testMessage() throws Exception {
+        final byte[] content = "<a xmlns=\"http://petals.ow2.org\"><b/></a>".getBytes(StandardCharsets.UTF_8);
+        final TransportedNormalizedMessage in = new TransportedNormalizedMessage(TransportedBytes.wrap(content));
+        in.putProperty("prop", "value");
+        in.putAttachment("att", "application/octet-stream", TransportedBytes.wrap(new byte[] { 1, 2, 3 }));
+
+        final TransportedMessageExchange exchange = new TransportedMessageExchange("me", ExchangeStatus.ACTIVE,
+                new QName("http://petals.ow2.org", "sayHello"), URI.create("http://www.w3.org/2004/08/wsdl/in-out"),
+                new HashMap<String, Serializable>(), null, null, in, null);
+        final TransportedMessage m = new TransportedMessage(new ServiceKey("endpoint", SERVICE, INTERFACE),
+                "exchange", exchange, 1, false, Boolean.TRUE, null, null);
+
+        // the second time, what we received is sent again as is
+        Transported msg = m;
+        for (int i = 0; i < 2; i++) {
+            final Transported res = roundTrip(msg);
+            assertInstanceOf(TransportedMessage.class, res);
+
+            final TransportedMessage received = (TransportedMessage) res;
+            assertEquals("exchange", received.exchangeId);
+            assertEquals(1, received.step);
+            assertEquals(ExchangeStatus.ACTIVE, received.exchange.getStatus());
+            assertNull(received.exchange.getFault());
+            assertNull(received.exchange.getMessage("out"));
+
+            final NormalizedMessage receivedIn = received.exchange.getMessage("in");
+            assertInstanceOf(TransportedNormalizedMessage.class, receivedIn);
+            assertEquals("value", receivedIn.getProperty("prop"));
+            try (final InputStream is = receivedIn.getAttachment("att").getInputStream()) {
+                assertArrayEquals(new byte[] { 1, 2, 3 }, is.readAllBytes());
+            }
+
+            // the content can be read more than once
+            for (int j = 0; j < 2; j++) {
+                final Source source = receivedIn.getContent();
+                assertInstanceOf(StreamSource.class, source);
+                try (final InputStream is = ((StreamSource) source).getInputStream()) {
+                    assertArrayEquals(content, is.readAllBytes());
+                }
+            }
+
+            msg = received;
+        }
+    }
+
+    @Test
+    public void testException() throws Exception {
+        final FlowAttributes fa = new FlowAttributes("instance", "step");
+        final TransportedException te = new TransportedException("exchange", fa, new Exception("error"));
+
+        final Transported res = roundTrip(te);
+        assertInstanceOf(TransportedException.class, res);
+
+        final TransportedException received = (TransportedException) res;
+        assertEquals("exchange", received.exchangeId);
+        assertNotNull(received.senderExtStep);
+        assertEquals("instance", received.senderExtStep.getFlowInstanceId());
+        assertEquals("step", received.senderExtStep.getFlowStepId());
+        assertEquals("error", received.cause.getMessage());
+    }
+
+    @Test
+    public void testAck() throws Exception {
+        final Transported res = roundTrip(new TransportedAck("exchange", 3));
+        assertInstanceOf(TransportedAck.class, res);
+
+        final TransportedAck received = (TransportedAck) res;
+        assertEquals("exchange", received.exchangeId);
+        assertEquals(3, received.step);
+    }
+
+    @Test
+    public void testVarInt() throws Exception {
+        final ByteBuf buf = Unpooled.buffer();
+        try {
+            for (final int i : new int[] { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE }) {
+                TransportedCodec.writeVarInt(buf, i);
+                assertEquals(i, TransportedCodec.readVarInt(buf));
+            }
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.inbound;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.jbi.servicedesc.ServiceEndpoint;
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.petals.bc.gateway.commons.messages.TransportedDocument;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+
+import com.ebmwebsourcing.easycommons.xml.XMLHelper;
+
+public class DescriptionCacheTest {
+
+    private static final ServiceEndpoint ENDPOINT = new ServiceEndpoint() {
+
+        @Override
+        public DocumentFragment getAsReference(final QName operationName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getEndpointName() {
+            return "endpoint";
+        }
+
+        @Override
+        public QName[] getInterfaces() {
+            return new QName[] { new QName("http://petals.ow2.org", "HelloInterface") };
+        }
+
+        @Override
+        public QName getServiceName() {
+            return new QName("http://petals.ow2.org", "HelloService");
+        }
+    };
+
+    private static Document document(final String content) throws Exception {
+        return XMLHelper.createDocumentFromString("<a xmlns=\"http://petals.ow2.org\">" + content + "</a>");
+    }
+
+    @Test
+    public void testSameDocument() throws Exception {
+        final DescriptionCache cache = new DescriptionCache();
+        final Document doc = document("<b/>");
+        assertSame(cache.get(ENDPOINT, doc), cache.get(ENDPOINT, doc));
+    }
+
+    @Test
+    public void testSameContent() throws Exception {
+        final DescriptionCache cache = new DescriptionCache();
+        final TransportedDocument first = cache.get(ENDPOINT, document("<b/>"));
+        assertSame(first, cache.get(ENDPOINT, document("<b/>")));
+
+        final TransportedDocument changed = cache.get(ENDPOINT, document("<c/>"));
+        assertNotSame(first, changed);
+        assertFalse(TransportedDocument.sameContent(first, changed));
+    }
+
+    @Test
+    public void testEvictUnused() throws Exception {
+        final DescriptionCache cache = new DescriptionCache();
+        final TransportedDocument first = cache.get(ENDPOINT, document("<b/>"));
+
+        // it was used since the previous eviction
+        cache.evictUnused();
+        assertSame(first, cache.get(ENDPOINT, document("<b/>")));
+
+        cache.evictUnused();
+        cache.evictUnused();
+        final TransportedDocument again = cache.get(ENDPOINT, document("<b/>"));
+        assertNotSame(first, again);
+        assertTrue(TransportedDocument.sameContent(first, again));
+    }
+}
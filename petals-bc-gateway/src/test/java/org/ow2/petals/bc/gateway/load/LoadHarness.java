@@ -0,0 +1,416 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.LogRecord;
+
+import javax.jbi.messaging.ExchangeStatus;
+import javax.jbi.servicedesc.ServiceEndpoint;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.ow2.easywsdl.wsdl.api.abstractItf.AbsItfOperation.MEPPatternConstants;
+import org.ow2.petals.bc.gateway.AbstractEnvironmentTest;
+import org.ow2.petals.component.framework.junit.Message;
+import org.ow2.petals.component.framework.junit.RequestMessage;
+import org.ow2.petals.component.framework.junit.ResponseMessage;
+import org.ow2.petals.component.framework.junit.StatusMessage;
+import org.ow2.petals.component.framework.junit.extensions.api.ComponentUnderTest;
+import org.ow2.petals.component.framework.junit.helpers.ServiceProviderImplementation;
+import org.ow2.petals.component.framework.junit.impl.message.RequestToProviderMessage;
+import org.ow2.petals.component.framework.junit.impl.message.StatusToProviderMessage;
+
+/**
+ * Drives a sustained load through two gateway domains deployed in the same component (see
+ * {@link AbstractEnvironmentTest#deployTwoDomains}): the exchanges go through real Netty loopback sockets between the
+ * provider domain and the consumer domain.
+ * 
+ * A fixed number of consumers (the concurrency) each send one exchange at a time, with a pattern chosen according to
+ * the configured mix, while this harness also plays the external service provider. The latency of each exchange (from
+ * the request to the answer going back to the consumer) is recorded after the warmup in {@link Histogram}s.
+ */
+public class LoadHarness {
+
+    private static final long POLL_TIMEOUT = 100;
+
+    private static final String ANSWER = "<b/>";
+
+    private final ComponentUnderTest component;
+
+    private final ServiceEndpoint endpoint;
+
+    private int concurrency = 16;
+
+    private long warmup = TimeUnit.SECONDS.toMillis(5);
+
+    private long duration = TimeUnit.SECONDS.toMillis(30);
+
+    private long exchangeTimeout = TimeUnit.SECONDS.toMillis(30);
+
+    private String payload = "<a/>";
+
+    private final Map<MEPPatternConstants, Integer> mix = new EnumMap<>(MEPPatternConstants.class);
+
+    private final ConcurrentMap<String, Pending> pendings = new ConcurrentHashMap<>();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private volatile boolean running;
+
+    private volatile long measureFrom;
+
+    private final ConcurrentHistogram all = new ConcurrentHistogram(3);
+
+    private final Map<MEPPatternConstants, ConcurrentHistogram> byMep = new EnumMap<>(MEPPatternConstants.class);
+
+    private static class Pending {
+
+        private final MEPPatternConstants mep;
+
+        private final long start = System.nanoTime();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        public Pending(final MEPPatternConstants mep) {
+            this.mep = mep;
+        }
+    }
+
+    public LoadHarness(final ComponentUnderTest component, final ServiceEndpoint endpoint) {
+        this.component = component;
+        this.endpoint = endpoint;
+        mix.put(MEPPatternConstants.IN_OUT, 1);
+    }
+
+    public LoadHarness concurrency(final int concurrency) {
+        assert concurrency > 0;
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * @param warmup
+     *            in milliseconds, the exchanges started before its end are not measured
+     */
+    public LoadHarness warmup(final long warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    /**
+     * @param duration
+     *            in milliseconds, after the warmup
+     */
+    public LoadHarness duration(final long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * @param exchangeTimeout
+     *            in milliseconds, after which an exchange without answer is counted as an error
+     */
+    public LoadHarness exchangeTimeout(final long exchangeTimeout) {
+        this.exchangeTimeout = exchangeTimeout;
+        return this;
+    }
+
+    /**
+     * @param size
+     *            approximate size (in bytes) of the content of the requests
+     */
+    public LoadHarness payloadSize(final int size) {
+        final StringBuilder sb = new StringBuilder(size + 16);
+        sb.append("<a>");
+        while (sb.length() < size) {
+            sb.append("<item>Hello from a Petals domain to another one!</item>");
+        }
+        sb.append("</a>");
+        this.payload = sb.toString();
+        return this;
+    }
+
+    /**
+     * @param mix
+     *            the weight of each pattern, for example <code>IN_OUT:8,IN_ONLY:1,ROBUST_IN_ONLY:1</code>
+     */
+    public LoadHarness mix(final String mix) {
+        this.mix.clear();
+        for (final String weighted : mix.split(",")) {
+            final String[] parts = weighted.trim().split(":");
+            final int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight > 0) {
+                this.mix.put(MEPPatternConstants.valueOf(parts[0].trim()), weight);
+            }
+        }
+        assert !this.mix.isEmpty();
+        return this;
+    }
+
+    public LoadReport run() throws Exception {
+        for (final MEPPatternConstants mep : mix.keySet()) {
+            byMep.put(mep, new ConcurrentHistogram(3));
+        }
+
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        final long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long heapMax = heapBefore;
+
+        running = true;
+        final long start = System.currentTimeMillis();
+        measureFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmup);
+        final long end = start + warmup + duration;
+
+        final List<Thread> threads = new ArrayList<>();
+        threads.add(newThread("load-provider", new Runnable() {
+            @Override
+            public void run() {
+                provide();
+            }
+        }));
+        threads.add(newThread("load-provider-statuses", new Runnable() {
+            @Override
+            public void run() {
+                drainStatusesFromConsumer();
+            }
+        }));
+        threads.add(newThread("load-responses", new Runnable() {
+            @Override
+            public void run() {
+                collectResponses();
+            }
+        }));
+        threads.add(newThread("load-statuses", new Runnable() {
+            @Override
+            public void run() {
+                collectStatuses();
+            }
+        }));
+        final List<Thread> consumers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            consumers.add(newThread("load-consumer-" + i, new Runnable() {
+                @Override
+                public void run() {
+                    consume(end);
+                }
+            }));
+        }
+
+        long logRecords = 0;
+        while (System.currentTimeMillis() < end) {
+            Thread.sleep(1000);
+            heapMax = Math.max(heapMax, memory.getHeapMemoryUsage().getUsed());
+            // the in memory log handler would otherwise be the first cause of heap growth
+            logRecords += clearLogs();
+        }
+
+        for (final Thread consumer : consumers) {
+            consumer.join();
+        }
+        running = false;
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final long elapsed = System.currentTimeMillis() - start - warmup;
+
+        logRecords += clearLogs();
+        System.gc();
+        final long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        return new LoadReport(concurrency, mix, payload.length(), elapsed, all, byMep, errors.get(), heapBefore,
+                heapMax, heapAfter, logRecords);
+    }
+
+    private static Thread newThread(final String name, final Runnable runnable) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * @return the number of cleared log records
+     */
+    private long clearLogs() {
+        final List<LogRecord> records = component.getInMemoryLogHandler().getAllRecords();
+        for (final LogRecord r : records) {
+            // asserts are ALWAYS a bug!
+            if (r.getThrown() instanceof AssertionError || String.valueOf(r.getMessage()).contains("AssertionError")) {
+                errors.incrementAndGet();
+            }
+        }
+        component.getInMemoryLogHandler().clear();
+        return records.size();
+    }
+
+    private MEPPatternConstants nextMep() {
+        int total = 0;
+        for (final int weight : mix.values()) {
+            total += weight;
+        }
+        int chosen = ThreadLocalRandom.current().nextInt(total);
+        for (final Map.Entry<MEPPatternConstants, Integer> e : mix.entrySet()) {
+            chosen -= e.getValue();
+            if (chosen < 0) {
+                return e.getKey();
+            }
+        }
+        throw new IllegalStateException("Impossible case");
+    }
+
+    private void consume(final long end) {
+        while (System.currentTimeMillis() < end) {
+            final MEPPatternConstants mep = nextMep();
+            final URI pattern = mep.value();
+            assert pattern != null;
+            final RequestMessage request = new RequestToProviderMessage(component, endpoint.getEndpointName(),
+                    endpoint.getServiceName(), null, AbstractEnvironmentTest.HELLO_OPERATION, pattern, payload);
+            final String exchangeId = request.getMessageExchange().getExchangeId();
+            final Pending pending = new Pending(mep);
+            pendings.put(exchangeId, pending);
+            try {
+                component.pushRequestToProvider(request);
+                if (!pending.done.await(exchangeTimeout, TimeUnit.MILLISECONDS)) {
+                    pendings.remove(exchangeId);
+                    errors.incrementAndGet();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Exception e) {
+                pendings.remove(exchangeId);
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    private void completed(final String exchangeId, final boolean success) {
+        final Pending pending = pendings.remove(exchangeId);
+        if (pending == null) {
+            // it timed out before
+            return;
+        }
+        if (!success) {
+            errors.incrementAndGet();
+        } else if (pending.start >= measureFrom) {
+            final long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - pending.start);
+            all.recordValue(latency);
+            final ConcurrentHistogram histogram = byMep.get(pending.mep);
+            assert histogram != null;
+            histogram.recordValue(latency);
+        }
+        pending.done.countDown();
+    }
+
+    /**
+     * Plays the external service provider
+     */
+    private void provide() {
+        while (running) {
+            try {
+                final RequestMessage request = component.pollRequestFromConsumer(POLL_TIMEOUT);
+                if (request == null) {
+                    continue;
+                }
+                final ServiceProviderImplementation impl;
+                if (MEPPatternConstants.IN_OUT.value().equals(request.getMessageExchange().getPattern())) {
+                    impl = ServiceProviderImplementation.outMessage(ANSWER);
+                } else {
+                    impl = ServiceProviderImplementation.statusMessage(ExchangeStatus.DONE);
+                }
+                final Message answer = impl.provides(request);
+                if (answer instanceof ResponseMessage) {
+                    component.pushResponseToConsumer((ResponseMessage) answer, false);
+                } else {
+                    component.pushStatusToConsumer((StatusMessage) answer, false);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Exception e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The DONE sent back by the consumers for InOut exchanges
+     */
+    private void drainStatusesFromConsumer() {
+        while (running) {
+            try {
+                component.pollStatusFromConsumer(POLL_TIMEOUT);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Exception e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    private void collectResponses() {
+        while (running) {
+            try {
+                final ResponseMessage response = component.pollResponseFromProvider(POLL_TIMEOUT);
+                if (response == null) {
+                    continue;
+                }
+                component.pushStatusToProvider(new StatusToProviderMessage(response, ExchangeStatus.DONE), false);
+                completed(response.getMessageExchange().getExchangeId(), true);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Exception e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    private void collectStatuses() {
+        while (running) {
+            try {
+                final StatusMessage status = component.pollStatusFromProvider(POLL_TIMEOUT);
+                if (status == null) {
+                    continue;
+                }
+                completed(status.getMessageExchange().getExchangeId(),
+                        status.getMessageExchange().getStatus() == ExchangeStatus.DONE);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Exception e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
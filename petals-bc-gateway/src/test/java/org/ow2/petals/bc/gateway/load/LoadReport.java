@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.load;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.HdrHistogram.Histogram;
+import org.ow2.easywsdl.wsdl.api.abstractItf.AbsItfOperation.MEPPatternConstants;
+
+/**
+ * The result of a {@link LoadHarness} run: the latencies are in microseconds.
+ * 
+ * {@link #write(File, String)} produces the <code>.hgrm</code> percentile distributions of HdrHistogram, so that a
+ * run can be compared with a baseline (for example with the HdrHistogram plotter).
+ */
+public class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final int concurrency;
+
+    private final Map<MEPPatternConstants, Integer> mix;
+
+    private final int payloadSize;
+
+    private final long elapsed;
+
+    private final Histogram all;
+
+    private final Map<MEPPatternConstants, ? extends Histogram> byMep;
+
+    private final long errors;
+
+    private final long heapBefore;
+
+    private final long heapMax;
+
+    private final long heapAfter;
+
+    private final long logRecords;
+
+    public LoadReport(final int concurrency, final Map<MEPPatternConstants, Integer> mix, final int payloadSize,
+            final long elapsed, final Histogram all, final Map<MEPPatternConstants, ? extends Histogram> byMep,
+            final long errors, final long heapBefore, final long heapMax, final long heapAfter,
+            final long logRecords) {
+        this.concurrency = concurrency;
+        this.mix = mix;
+        this.payloadSize = payloadSize;
+        this.elapsed = elapsed;
+        this.all = all;
+        this.byMep = byMep;
+        this.errors = errors;
+        this.heapBefore = heapBefore;
+        this.heapMax = heapMax;
+        this.heapAfter = heapAfter;
+        this.logRecords = logRecords;
+    }
+
+    public long getExchanges() {
+        return all.getTotalCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the measured exchanges per second
+     */
+    public double getThroughput() {
+        return elapsed > 0 ? all.getTotalCount() * 1000.0 / elapsed : 0;
+    }
+
+    public Histogram getLatencies() {
+        return all;
+    }
+
+    public long getHeapGrowth() {
+        return heapAfter - heapBefore;
+    }
+
+    public void print(final PrintStream out) {
+        out.printf("Load test: concurrency=%d, mix=%s, payload=%d bytes, measured during %d ms%n", concurrency, mix,
+                payloadSize, elapsed);
+        out.printf("Exchanges: %d (%.1f/s), errors: %d%n", all.getTotalCount(), getThroughput(), errors);
+        out.printf("Heap: %d KB before, %d KB max, %d KB after (growth %d KB), %d log records discarded%n",
+                heapBefore / 1024, heapMax / 1024, heapAfter / 1024, getHeapGrowth() / 1024, logRecords);
+        printLatencies(out, "all", all);
+        for (final Entry<MEPPatternConstants, ? extends Histogram> e : byMep.entrySet()) {
+            printLatencies(out, e.getKey().name(), e.getValue());
+        }
+    }
+
+    private static void printLatencies(final PrintStream out, final String name, final Histogram histogram) {
+        out.printf("Latency (ms) %s: p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f%n", name,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI, histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    /**
+     * Writes the summary and one percentile distribution (in milliseconds) per histogram in the given directory, with
+     * the given prefix for the file names.
+     */
+    public void write(final File directory, final String prefix) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        try (final PrintStream out = new PrintStream(new FileOutputStream(new File(directory, prefix + ".txt")), true,
+                StandardCharsets.UTF_8.name())) {
+            print(out);
+        }
+        writeDistribution(new File(directory, prefix + ".hgrm"), all);
+        for (final Entry<MEPPatternConstants, ? extends Histogram> e : byMep.entrySet()) {
+            writeDistribution(new File(directory, prefix + "-" + e.getKey().name() + ".hgrm"), e.getValue());
+        }
+    }
+
+    private static void writeDistribution(final File file, final Histogram histogram) throws IOException {
+        try (final PrintStream out = new PrintStream(new FileOutputStream(file), true,
+                StandardCharsets.UTF_8.name())) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
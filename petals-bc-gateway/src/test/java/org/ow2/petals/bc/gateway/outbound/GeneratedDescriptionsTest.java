@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.outbound;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.api.Test;
+import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
+import org.ow2.petals.component.framework.util.ServiceEndpointKey;
+import org.w3c.dom.Document;
+
+public class GeneratedDescriptionsTest {
+
+    private static final QName INTERFACE = new QName("http://petals.ow2.org", "HelloInterface");
+
+    private static final QName SERVICE = new QName("http://petals.ow2.org", "HelloService");
+
+    private static final ServiceKey SOURCE = new ServiceKey(null, SERVICE, INTERFACE);
+
+    private static final ServiceEndpointKey KEY = new ServiceEndpointKey(SERVICE, "endpoint");
+
+    private final GeneratedDescriptions descriptions = new GeneratedDescriptions(
+            Logger.getLogger(GeneratedDescriptionsTest.class.getName()));
+
+    @Test
+    public void testSameSource() throws Exception {
+        final Document first = descriptions.get(null, SOURCE, KEY, INTERFACE);
+        final Document second = descriptions.get(null, SOURCE, KEY, INTERFACE);
+        // each caller owns its copy
+        assertNotSame(first, second);
+        assertTrue(first.isEqualNode(second));
+    }
+
+    @Test
+    public void testCopiesAreIndependent() throws Exception {
+        final Document first = descriptions.get(null, SOURCE, KEY, INTERFACE);
+        first.removeChild(first.getDocumentElement());
+        assertNotNull(descriptions.get(null, SOURCE, KEY, INTERFACE).getDocumentElement());
+    }
+
+    @Test
+    public void testOtherInterface() throws Exception {
+        final Document first = descriptions.get(null, SOURCE, KEY, INTERFACE);
+        assertFalse(first.isEqualNode(
+                descriptions.get(null, SOURCE, KEY, new QName("http://petals.ow2.org", "OtherInterface"))));
+    }
+
+    @Test
+    public void testKeptPerService() throws Exception {
+        assertNull(descriptions.getKey(SOURCE));
+        descriptions.get(null, SOURCE, KEY, INTERFACE);
+        assertEquals(KEY, descriptions.getKey(SOURCE));
+
+        // another endpoint for the same service replaces it
+        final ServiceEndpointKey other = new ServiceEndpointKey(SERVICE, "other");
+        descriptions.get(null, SOURCE, other, INTERFACE);
+        assertEquals(other, descriptions.getKey(SOURCE));
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        descriptions.get(null, SOURCE, KEY, INTERFACE);
+        descriptions.evict(SOURCE);
+        assertNull(descriptions.getKey(SOURCE));
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.outbound;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import javax.xml.namespace.QName;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.ow2.petals.bc.gateway.commons.messages.ServiceKey;
+import org.ow2.petals.bc.gateway.jbidescriptor.generated.JbiProvidesConfig;
+import org.ow2.petals.bc.gateway.utils.BcGatewayJbiHelper.Pair;
+import org.ow2.petals.component.framework.jbidescriptor.generated.Provides;
+
+public class Service2ProvidesMatcherTest {
+
+    private static final QName INTERFACE = new QName("http://petals.ow2.org", "HelloInterface");
+
+    private static final QName OTHER_INTERFACE = new QName("http://petals.ow2.org", "OtherInterface");
+
+    private static final QName SERVICE = new QName("http://petals.ow2.org", "HelloService");
+
+    private static final QName OTHER_SERVICE = new QName("http://petals.ow2.org", "OtherService");
+
+    private static Pair<Provides, JbiProvidesConfig> provides(final QName interfaceName,
+            final @Nullable QName serviceName, final @Nullable String endpointName) {
+        final JbiProvidesConfig config = new JbiProvidesConfig();
+        config.setProviderInterfaceName(interfaceName);
+        config.setProviderServiceName(serviceName);
+        config.setProviderEndpointName(endpointName);
+        return Pair.of(new Provides(), config);
+    }
+
+    @Test
+    public void testSpecificEndpoint() throws Exception {
+        final Pair<Provides, JbiProvidesConfig> p = provides(INTERFACE, SERVICE, "endpoint");
+        final Service2ProvidesMatcher matcher = new Service2ProvidesMatcher(Arrays.asList(p));
+
+        assertSame(p.getA(), matcher.getProvides(new ServiceKey("endpoint", SERVICE, INTERFACE)));
+        assertNull(matcher.getProvides(new ServiceKey("other", SERVICE, INTERFACE)));
+        assertNull(matcher.getProvides(new ServiceKey(null, SERVICE, INTERFACE)));
+    }
+
+    @Test
+    public void testAnyEndpoint() throws Exception {
+        final Pair<Provides, JbiProvidesConfig> p = provides(INTERFACE, SERVICE, null);
+        final Service2ProvidesMatcher matcher = new Service2ProvidesMatcher(Arrays.asList(p));
+
+        assertSame(p.getA(), matcher.getProvides(new ServiceKey(null, SERVICE, INTERFACE)));
+        assertSame(p.getA(), matcher.getProvides(new ServiceKey("endpoint", SERVICE, INTERFACE)));
+        assertNull(matcher.getProvides(new ServiceKey("endpoint", OTHER_SERVICE, INTERFACE)));
+        assertNull(matcher.getProvides(new ServiceKey("endpoint", SERVICE, OTHER_INTERFACE)));
+    }
+
+    @Test
+    public void testAnyService() throws Exception {
+        final Pair<Provides, JbiProvidesConfig> specific = provides(INTERFACE, SERVICE, "endpoint");
+        final Pair<Provides, JbiProvidesConfig> any = provides(OTHER_INTERFACE, null, null);
+        final Service2ProvidesMatcher matcher = new Service2ProvidesMatcher(Arrays.asList(specific, any));
+
+        assertSame(specific.getA(), matcher.getProvides(new ServiceKey("endpoint", SERVICE, INTERFACE)));
+        assertSame(any.getA(), matcher.getProvides(new ServiceKey("endpoint", SERVICE, OTHER_INTERFACE)));
+        assertSame(any.getA(), matcher.getProvides(new ServiceKey(null, OTHER_SERVICE, OTHER_INTERFACE)));
+        assertNull(matcher.getProvides(new ServiceKey(null, OTHER_SERVICE, INTERFACE)));
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2026 Linagora
+ * 
+ * This program/library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or (at your
+ * option) any later version.
+ * 
+ * This program/library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program/library; If not, see http://www.gnu.org/licenses/
+ * for the GNU Lesser General Public License version 2.1.
+ */
+package org.ow2.petals.bc.gateway.utils;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Loopback benchmark of the available {@link BcGatewayNettyTransport}s: it measures the round-trip latency of one
+ * message at a time and the throughput of pipelined messages against an echo server.
+ * 
+ * This is not a test and is not run by the build, launch it with:
+ * 
+ * <pre>
+ * java ... org.ow2.petals.bc.gateway.utils.BcGatewayNettyTransportBenchmark [message size] [iterations]
+ * </pre>
+ */
+public class BcGatewayNettyTransportBenchmark {
+
+    private static final int FLUSH_EVERY = 64;
+
+    public static void main(final String[] args) throws Exception {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+        final Logger logger = Logger.getLogger(BcGatewayNettyTransportBenchmark.class.getName());
+
+        for (final BcGatewayNettyTransport transport : BcGatewayNettyTransport.values()) {
+            if (!transport.isAvailable()) {
+                logger.info(String.format("%s: not available (%s)", transport.value(),
+                        transport.unavailabilityCause()));
+                continue;
+            }
+            run(transport, size, iterations, logger);
+        }
+    }
+
+    private static void run(final BcGatewayNettyTransport transport, final int size, final int iterations,
+            final Logger logger) throws Exception {
+        final EventLoopGroup serverGroup = transport.newEventLoopGroup(1, new DefaultThreadFactory("bench-server"));
+        final EventLoopGroup clientGroup = transport.newEventLoopGroup(1, new DefaultThreadFactory("bench-client"));
+        try {
+            final Channel server = new ServerBootstrap().group(serverGroup)
+                    .channel(transport.getServerSocketChannelClass()).childOption(ChannelOption.TCP_NODELAY, true)
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(final @Nullable ChannelHandlerContext ctx,
+                                final @Nullable Object msg) {
+                            assert ctx != null;
+                            ctx.write(msg);
+                        }
+
+                        @Override
+                        public void channelReadComplete(final @Nullable ChannelHandlerContext ctx) {
+                            assert ctx != null;
+                            ctx.flush();
+                        }
+                    }).bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+            final Counter counter = new Counter();
+            final Channel client = new Bootstrap().group(clientGroup).channel(transport.getSocketChannelClass())
+                    .option(ChannelOption.TCP_NODELAY, true).handler(counter).connect(server.localAddress()).sync()
+                    .channel();
+
+            final ByteBuf payload = Unpooled.unreleasableBuffer(Unpooled.directBuffer(size).writeZero(size));
+
+            // warm up
+            latencies(client, counter, payload, iterations / 10);
+            throughput(client, counter, payload, iterations / 10);
+
+            final long[] latencies = latencies(client, counter, payload, iterations);
+            Arrays.sort(latencies);
+            final long elapsed = throughput(client, counter, payload, iterations);
+
+            final double seconds = elapsed / 1e9;
+            logger.info(String.format(
+                    "%s: latency mean %.1f us, p50 %.1f us, p99 %.1f us; throughput %.0f msg/s, %.1f MB/s",
+                    transport.value(), Arrays.stream(latencies).average().orElse(0) / 1e3,
+                    latencies[latencies.length / 2] / 1e3, latencies[(int) (latencies.length * 0.99)] / 1e3,
+                    iterations / seconds, (double) size * iterations / seconds / 1e6));
+
+            client.close().sync();
+            server.close().sync();
+        } finally {
+            clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static long[] latencies(final Channel client, final Counter counter, final ByteBuf payload,
+            final int iterations) throws Exception {
+        final long[] latencies = new long[Math.max(iterations, 1)];
+        for (int i = 0; i < iterations; i++) {
+            final CompletableFuture<Void> done = counter.expect(payload.readableBytes());
+            final long start = System.nanoTime();
+            client.writeAndFlush(payload.duplicate());
+            done.get(10, TimeUnit.SECONDS);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static long throughput(final Channel client, final Counter counter, final ByteBuf payload,
+            final int iterations) throws Exception {
+        final CompletableFuture<Void> done = counter.expect((long) payload.readableBytes() * iterations);
+        final long start = System.nanoTime();
+        for (int i = 1; i <= iterations; i++) {
+            client.write(payload.duplicate());
+            if (i % FLUSH_EVERY == 0) {
+                client.flush();
+            }
+        }
+        client.flush();
+        done.get(1, TimeUnit.MINUTES);
+        return System.nanoTime() - start;
+    }
+
+    @Sharable
+    private static class Counter extends ChannelInboundHandlerAdapter {
+
+        private volatile long expected;
+
+        private volatile long received;
+
+        private volatile CompletableFuture<Void> done = new CompletableFuture<>();
+
+        /**
+         * Must be called before writing the messages so that it happens before they are received
+         */
+        public CompletableFuture<Void> expect(final long bytes) {
+            final CompletableFuture<Void> done = new CompletableFuture<>();
+            this.received = 0;
+            this.expected = bytes;
+            this.done = done;
+            return done;
+        }
+
+        @Override
+        public void channelRead(final @Nullable ChannelHandlerContext ctx, final @Nullable Object msg) {
+            assert msg != null;
+            try {
+                received += ((ByteBuf) msg).readableBytes();
+                if (received >= expected) {
+                    done.complete(null);
+                }
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+    }
+}